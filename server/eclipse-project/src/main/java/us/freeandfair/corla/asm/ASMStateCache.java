@@ -0,0 +1,332 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.asm;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.hibernate.Session;
+
+import us.freeandfair.corla.persistence.Persistence;
+import us.freeandfair.corla.query.PersistentASMStateQueries;
+
+/**
+ * A cache of the states of abstract state machines, by ASM class and
+ * identity, so that building an ASM does not require a database query.
+ *
+ * The cache is tagged with a change stamp for the whole asm_state table
+ * (its row count, highest ID and total row version), which changes whenever
+ * any node commits a change to any ASM state. Each transaction reads the
+ * stamp once, the first time it needs an ASM state, and uses the cache only
+ * if the cache carries the same stamp; otherwise the cache is emptied and
+ * refilled from the database. States saved by a transaction are written
+ * through to that transaction's own view, and become visible to other
+ * transactions through the stamp once the transaction commits; a
+ * transaction that has saved states never fills the shared cache, so a
+ * rollback cannot leave uncommitted states in it.
+ *
+ * The cached states and their stamp are held together in one immutable
+ * snapshot, which is replaced (never modified) when a state is added, so a
+ * state is only ever read from the cache together with the stamp it was
+ * read under.
+ *
+ * @version 1.0.0
+ */
+public final class ASMStateCache {
+  /**
+   * An empty cache.
+   */
+  private static final Snapshot EMPTY = new Snapshot(null, Collections.emptyMap());
+
+  /**
+   * The cached states, with their change stamp.
+   */
+  private static final AtomicReference<Snapshot> CACHE = new AtomicReference<>(EMPTY);
+
+  /**
+   * The current transaction's view of the cache.
+   */
+  private static final ThreadLocal<TransactionView> VIEW = new ThreadLocal<>();
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private ASMStateCache() {
+    // empty
+  }
+
+  /**
+   * Gets the current state of the specified ASM, as seen by the current
+   * transaction.
+   *
+   * @param the_class The ASM class.
+   * @param the_identity The ASM identity.
+   * @return the state, or null if the ASM has no persistent state.
+   * @exception IllegalArgumentException if the persistent state of the ASM
+   * contains invalid information.
+   */
+  public static ASMState state(final Class<? extends AbstractStateMachine> the_class,
+                               final String the_identity) {
+    return state(view(), new Key(the_class, the_identity), ASMStateCache::load);
+  }
+
+  /**
+   * Gets the current state of the specified ASM, as seen by a transaction.
+   *
+   * @param the_view The transaction's view of the cache.
+   * @param the_key The key.
+   * @param the_loader The function that reads a state from the database,
+   * returning null if the ASM has no persistent state.
+   * @return the state, or null if the ASM has no persistent state.
+   */
+  static ASMState state(final TransactionView the_view, final Key the_key,
+                        final Function<Key, ASMState> the_loader) {
+    ASMState result = the_view.my_saved.get(the_key);
+    if (result == null && the_view.my_stamp != null) {
+      result = CACHE.get().get(the_view.my_stamp, the_key);
+    }
+    if (result == null) {
+      result = the_loader.apply(the_key);
+      if (result != null && the_view.my_stamp != null && the_view.my_saved.isEmpty()) {
+        put(the_view.my_stamp, the_key, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Records that the state of an ASM has been saved in the current
+   * transaction.
+   *
+   * @param the_asm The ASM.
+   */
+  public static void saved(final AbstractStateMachine the_asm) {
+    saved(view(), new Key(the_asm.getClass(), the_asm.identity()), the_asm.currentState());
+  }
+
+  /**
+   * Records that the state of an ASM has been saved in a transaction.
+   *
+   * @param the_view The transaction's view of the cache.
+   * @param the_key The key.
+   * @param the_state The saved state.
+   */
+  static void saved(final TransactionView the_view, final Key the_key,
+                    final ASMState the_state) {
+    the_view.my_saved.put(the_key, the_state);
+  }
+
+  /**
+   * Empties the cache.
+   */
+  public static void invalidateAll() {
+    CACHE.set(EMPTY);
+  }
+
+  /**
+   * Adds a state to the cache, replacing the cached states if they have a
+   * different change stamp.
+   *
+   * @param the_stamp The change stamp under which the state was read.
+   * @param the_key The key.
+   * @param the_state The state.
+   */
+  private static void put(final List<Long> the_stamp, final Key the_key,
+                          final ASMState the_state) {
+    CACHE.updateAndGet(the_cache -> the_cache.with(the_stamp, the_key, the_state));
+  }
+
+  /**
+   * Reads the state of an ASM from the database.
+   *
+   * @param the_key The key.
+   * @return the state, or null if the ASM has no persistent state.
+   * @exception IllegalArgumentException if the persistent state of the ASM
+   * contains invalid information.
+   */
+  private static ASMState load(final Key the_key) {
+    final PersistentASMState asm_state =
+        PersistentASMStateQueries.get(the_key.my_class, the_key.my_identity);
+    ASMState result = null;
+    if (asm_state != null) {
+      result = PersistentASMState.asmStateFor(asm_state);
+      if (result == null) {
+        throw new IllegalArgumentException("no ASM state found for state " + asm_state);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the current transaction's view of the cache, starting a new one
+   * (and reading the change stamp) if the transaction has changed.
+   *
+   * @return the view.
+   */
+  private static TransactionView view() {
+    final Session session = Persistence.currentSession();
+    TransactionView result = VIEW.get();
+    if (result == null || result.my_session != session) {
+      result = new TransactionView(session, PersistentASMStateQueries.changeStamp());
+      VIEW.set(result);
+    }
+    return result;
+  }
+
+  /**
+   * A cache key: an ASM class and identity.
+   */
+  static class Key {
+    /**
+     * The ASM class.
+     */
+    private final Class<? extends AbstractStateMachine> my_class;
+
+    /**
+     * The ASM identity.
+     */
+    private final String my_identity;
+
+    /**
+     * Constructs a new key.
+     *
+     * @param the_class The ASM class.
+     * @param the_identity The ASM identity.
+     */
+    Key(final Class<? extends AbstractStateMachine> the_class,
+        final String the_identity) {
+      my_class = the_class;
+      my_identity = the_identity;
+    }
+
+    /**
+     * Compare this object with another for equivalence.
+     *
+     * @param the_other The other object.
+     * @return true if the objects are equivalent, false otherwise.
+     */
+    @Override
+    public boolean equals(final Object the_other) {
+      boolean result = false;
+      if (the_other instanceof Key) {
+        final Key other_key = (Key) the_other;
+        result = my_class.equals(other_key.my_class) &&
+                 Objects.equals(my_identity, other_key.my_identity);
+      }
+      return result;
+    }
+
+    /**
+     * @return a hash code for this object.
+     */
+    @Override
+    public int hashCode() {
+      return Objects.hash(my_class, my_identity);
+    }
+  }
+
+  /**
+   * A transaction's view of the cache.
+   */
+  static class TransactionView {
+    /**
+     * The session of the transaction.
+     */
+    private final Session my_session;
+
+    /**
+     * The change stamp read by the transaction, or null if it could not
+     * be read.
+     */
+    private final List<Long> my_stamp;
+
+    /**
+     * The states saved by the transaction.
+     */
+    private final Map<Key, ASMState> my_saved = new HashMap<>();
+
+    /**
+     * Constructs a new view.
+     *
+     * @param the_session The session, or null if there is none.
+     * @param the_stamp The change stamp.
+     */
+    TransactionView(final Session the_session, final List<Long> the_stamp) {
+      my_session = the_session;
+      my_stamp = the_stamp;
+    }
+  }
+
+  /**
+   * An immutable set of cached states, with their change stamp.
+   */
+  private static class Snapshot {
+    /**
+     * The change stamp, or null if there are no states.
+     */
+    private final List<Long> my_stamp;
+
+    /**
+     * The states.
+     */
+    private final Map<Key, ASMState> my_states;
+
+    /**
+     * Constructs a new snapshot.
+     *
+     * @param the_stamp The change stamp.
+     * @param the_states The states, which must not be modified afterwards.
+     */
+    Snapshot(final List<Long> the_stamp, final Map<Key, ASMState> the_states) {
+      my_stamp = the_stamp;
+      my_states = the_states;
+    }
+
+    /**
+     * Gets a state, if it was cached under the specified change stamp.
+     *
+     * @param the_stamp The change stamp.
+     * @param the_key The key.
+     * @return the state, or null if there is none.
+     */
+    ASMState get(final List<Long> the_stamp, final Key the_key) {
+      ASMState result = null;
+      if (the_stamp.equals(my_stamp)) {
+        result = my_states.get(the_key);
+      }
+      return result;
+    }
+
+    /**
+     * Makes a snapshot with an added state, which keeps this snapshot's
+     * states only if they have the same change stamp.
+     *
+     * @param the_stamp The change stamp under which the state was read.
+     * @param the_key The key.
+     * @param the_state The state.
+     * @return the new snapshot.
+     */
+    Snapshot with(final List<Long> the_stamp, final Key the_key,
+                  final ASMState the_state) {
+      final Map<Key, ASMState> states = new HashMap<>();
+      if (the_stamp.equals(my_stamp)) {
+        states.putAll(my_states);
+      }
+      states.put(the_key, the_state);
+      return new Snapshot(the_stamp, states);
+    }
+  }
+}
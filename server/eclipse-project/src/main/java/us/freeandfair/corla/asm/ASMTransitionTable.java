@@ -0,0 +1,193 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.asm;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The transition function of an ASM class, compiled into tables indexed by
+ * state and event. Each ASM class builds its table once, when the class is
+ * loaded; after that, finding the next state for an event, or the events
+ * enabled in a state, is a table lookup that allocates nothing.
+ *
+ * @param <S> The type of the ASM's states.
+ * @param <E> The type of the ASM's events.
+ * @version 1.0.0
+ */
+public class ASMTransitionTable<S extends Enum<S> & ASMState, E extends Enum<E> & ASMEvent>
+    implements Serializable {
+  /**
+   * The serialVersionUID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The states.
+   */
+  private final Set<ASMState> my_states;
+
+  /**
+   * The events.
+   */
+  private final Set<ASMEvent> my_events;
+
+  /**
+   * The transitions.
+   */
+  private final Set<ASMTransition> my_transitions;
+
+  /**
+   * The next state for each state and event; absent entries are illegal
+   * transitions.
+   */
+  private final Map<S, Map<E, S>> my_next_states;
+
+  /**
+   * The ASM events enabled in each state.
+   */
+  private final Map<S, Set<ASMEvent>> my_enabled_asm_events;
+
+  /**
+   * The UI events enabled in each state.
+   */
+  private final Map<S, Set<UIEvent>> my_enabled_ui_events;
+
+  /**
+   * Constructs a transition table.
+   *
+   * @param the_state_class The class of the states.
+   * @param the_event_class The class of the events.
+   * @param the_transitions The transitions. Only legal transitions need be
+   * specified; all unspecified transitions are considered illegal.
+   * @exception IllegalArgumentException if a transition has a state or
+   * event of the wrong class, or if two transitions lead from the same state
+   * on the same event to different states.
+   */
+  public ASMTransitionTable(final Class<S> the_state_class,
+                            final Class<E> the_event_class,
+                            final Set<ASMTransition> the_transitions) {
+    my_states = Collections.unmodifiableSet(EnumSet.allOf(the_state_class));
+    my_events = Collections.unmodifiableSet(EnumSet.allOf(the_event_class));
+    my_transitions = Collections.unmodifiableSet(new HashSet<>(the_transitions));
+    my_next_states = new EnumMap<>(the_state_class);
+    my_enabled_asm_events = new EnumMap<>(the_state_class);
+    my_enabled_ui_events = new EnumMap<>(the_state_class);
+
+    for (final S state : the_state_class.getEnumConstants()) {
+      my_next_states.put(state, new EnumMap<>(the_event_class));
+    }
+    for (final ASMTransition t : the_transitions) {
+      final S end_state = checked(the_state_class, t.endState(), t);
+      for (final ASMState start_state : t.startStates()) {
+        final Map<E, S> next = my_next_states.get(checked(the_state_class, start_state, t));
+        for (final ASMEvent event : t.events()) {
+          final S previous = next.put(checked(the_event_class, event, t), end_state);
+          if (previous != null && previous != end_state) {
+            throw new IllegalArgumentException("transition " + t + " conflicts with " +
+                                               "another transition to " + previous);
+          }
+        }
+      }
+    }
+
+    final UIToASMEventRelation relation = new UIToASMEventRelation();
+    for (final Map.Entry<S, Map<E, S>> entry : my_next_states.entrySet()) {
+      final Set<ASMEvent> asm_events = new HashSet<>(entry.getValue().keySet());
+      final Set<UIEvent> ui_events = new HashSet<>();
+      for (final ASMEvent event : asm_events) {
+        ui_events.addAll(relation.leftArrow(event));
+      }
+      my_enabled_asm_events.put(entry.getKey(), Collections.unmodifiableSet(asm_events));
+      my_enabled_ui_events.put(entry.getKey(), Collections.unmodifiableSet(ui_events));
+    }
+  }
+
+  /**
+   * Checks that a state or event of a transition has the expected class.
+   *
+   * @param the_class The expected class.
+   * @param the_value The state or event.
+   * @param the_transition The transition.
+   * @return the state or event.
+   * @exception IllegalArgumentException if it has the wrong class.
+   */
+  private static <T> T checked(final Class<T> the_class, final Object the_value,
+                               final ASMTransition the_transition) {
+    if (!the_class.isInstance(the_value)) {
+      throw new IllegalArgumentException("transition " + the_transition +
+                                         " does not belong to " + the_class);
+    }
+    return the_class.cast(the_value);
+  }
+
+  /**
+   * @return the states.
+   */
+  public Set<ASMState> states() {
+    return my_states;
+  }
+
+  /**
+   * @return the events.
+   */
+  public Set<ASMEvent> events() {
+    return my_events;
+  }
+
+  /**
+   * @return the transitions.
+   */
+  public Set<ASMTransition> transitions() {
+    return my_transitions;
+  }
+
+  /**
+   * Gets the next state for a state and event.
+   *
+   * @param the_state The state.
+   * @param the_event The event.
+   * @return the next state, or null if the transition is illegal.
+   */
+  public ASMState nextState(final ASMState the_state, final ASMEvent the_event) {
+    ASMState result = null;
+    final Map<E, S> next = my_next_states.get(the_state);
+    if (next != null) {
+      result = next.get(the_event);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the ASM events enabled in a state.
+   *
+   * @param the_state The state.
+   * @return the (unmodifiable) set of events.
+   */
+  public Set<ASMEvent> enabledASMEvents(final ASMState the_state) {
+    return my_enabled_asm_events.getOrDefault(the_state, Collections.emptySet());
+  }
+
+  /**
+   * Gets the UI events enabled in a state.
+   *
+   * @param the_state The state.
+   * @return the (unmodifiable) set of events.
+   */
+  public Set<UIEvent> enabledUIEvents(final ASMState the_state) {
+    return my_enabled_ui_events.getOrDefault(the_state, Collections.emptySet());
+  }
+}
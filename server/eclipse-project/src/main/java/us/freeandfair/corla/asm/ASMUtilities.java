@@ -13,6 +13,8 @@ package us.freeandfair.corla.asm;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.PersistenceException;
 
@@ -27,6 +29,12 @@ import us.freeandfair.corla.query.PersistentASMStateQueries;
  * @version 1.0.0
  */
 public final class ASMUtilities {
+  /**
+   * The constructors to use for ASM classes.
+   */
+  private static final Map<Class<?>, Constructor<?>> CONSTRUCTORS = 
+      new ConcurrentHashMap<>();
+  
   /**
    * Private constructor to prevent instantiation.
    */
@@ -36,7 +44,8 @@ public final class ASMUtilities {
   
   /**
    * Gets the ASM for the specified ASM class and identity, initialized to its
-   * state on the database.
+   * state on the database. The state is obtained through the ASMStateCache,
+   * so this does not usually require a database query.
    * 
    * @param the_class The class.
    * @param the_identity The identity.
@@ -47,21 +56,15 @@ public final class ASMUtilities {
     T result = null;
     
     try {
-      // first, check for a no-argument constructor
-      final Constructor<?>[] constructors = the_class.getConstructors();
-      for (final Constructor<?> c : constructors) {
-        @SuppressWarnings("unchecked") // this cast is safe because of the call above
-        final Constructor<T> constructor = (Constructor<T>) c;
-        if (constructor.getParameterTypes().length == 0) {
-          // default constructor
-          result = constructor.newInstance();
-          break;
-        } else if (constructor.getParameterTypes().length == 1 &&
-                   constructor.getParameterTypes()[0].equals(String.class)) {
-          // 1-argument constructor that takes a String
-          result = constructor.newInstance(the_identity);
-          break;
-        }
+      final Constructor<T> constructor = constructorFor(the_class);
+      if (constructor == null) {
+        Main.LOGGER.error("No usable constructor for ASM of class " + the_class);
+      } else if (constructor.getParameterTypes().length == 0) {
+        // default constructor
+        result = constructor.newInstance();
+      } else {
+        // 1-argument constructor that takes a String
+        result = constructor.newInstance(the_identity);
       }
     } catch (final IllegalAccessException | InstantiationException | 
                    InvocationTargetException e) {
@@ -69,19 +72,43 @@ public final class ASMUtilities {
                         " with identity " + the_identity);
     }
     
-    final PersistentASMState asm_state = 
-        PersistentASMStateQueries.get(the_class, the_identity);
+    final ASMState state = ASMStateCache.state(the_class, the_identity);
     
-    if (asm_state == null) {
+    if (state == null) {
       Main.LOGGER.error("Unable to retrieve ASM state for class " + the_class + 
                         " with identity " + the_identity);
     } else if (result != null) {
-      asm_state.applyTo(result);
+      result.setCurrentState(state);
     } 
     
     return result;
   }
   
+  /**
+   * Finds the constructor to use for the specified ASM class: a no-argument
+   * constructor, or one that takes a String identity. Constructors are 
+   * looked up only once for each class.
+   * 
+   * @param the_class The class.
+   * @return the constructor, or null if there is none.
+   */
+  @SuppressWarnings("unchecked") // the constructors are those of the_class
+  private static <T extends AbstractStateMachine> Constructor<T> 
+      constructorFor(final Class<T> the_class) {
+    return (Constructor<T>) CONSTRUCTORS.computeIfAbsent(the_class, the_key -> {
+      Constructor<?> result = null;
+      for (final Constructor<?> c : the_key.getConstructors()) {
+        if (c.getParameterTypes().length == 0 ||
+            c.getParameterTypes().length == 1 && 
+            c.getParameterTypes()[0].equals(String.class)) {
+          result = c;
+          break;
+        }
+      }
+      return result;
+    });
+  }
+  
   /**
    * Saves the state of the specified ASM to the database.
    * 
@@ -100,6 +127,7 @@ public final class ASMUtilities {
       asm_state.updateFrom(the_asm);
       try {
         Persistence.saveOrUpdate(asm_state);
+        ASMStateCache.saved(the_asm);
         result = true;
       } catch (final PersistenceException e) {
         Main.LOGGER.error("Could not save state for ASM " + the_asm);
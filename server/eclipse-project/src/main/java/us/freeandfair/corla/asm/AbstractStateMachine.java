@@ -59,10 +59,10 @@ public abstract class AbstractStateMachine implements Serializable {
   protected final Set<ASMTransition> my_transition_function; 
   
   /**
-   * The relation between UI events and ASM transitions.
+   * The transition function, compiled into tables. This is shared by all
+   * ASMs of the same class.
    */
-  protected final UIToASMEventRelation my_ui_to_asm_relation = 
-      new UIToASMEventRelation();
+  protected final ASMTransitionTable<?, ?> my_transition_table;
   
   /**
    * The current state of this ASM. Initialized to the initial state
@@ -77,28 +77,23 @@ public abstract class AbstractStateMachine implements Serializable {
   protected String my_identity;
   
   /**
-   * Constructs an ASM. This constructor takes ownership of all the 
-   * Collections passed to it.
+   * Constructs an ASM. This constructor takes ownership of the set of 
+   * final states passed to it.
    * 
-   * @param the_states the states of the new ASM.
-   * @param the_events the events of the new ASM.
-   * @param the_transition_function the transition function of the new
-   * ASM. This function, represented as a set of ASMTransitionFunction
-   * elements, need only specify legal transitions; all unspecified
-   * transitions are considered illegal.
+   * @param the_transition_table the transition table of the new ASM, 
+   * which determines its states, events and transition function.
    * @param the_initial_state The initial state of the new ASM.
    * @param the_final_states The final states of the new ASM.
    * @param the_identity The identity of the new ASM.
    */
-  public AbstractStateMachine(final Set<ASMState> the_states,
-                              final Set<ASMEvent> the_events,
-                              final Set<ASMTransition> the_transition_function,
+  public AbstractStateMachine(final ASMTransitionTable<?, ?> the_transition_table,
                               final ASMState the_initial_state,
                               final Set<ASMState> the_final_states,
                               final String the_identity) {
-    my_states = the_states;
-    my_events = the_events;
-    my_transition_function = the_transition_function;
+    my_transition_table = the_transition_table;
+    my_states = the_transition_table.states();
+    my_events = the_transition_table.events();
+    my_transition_function = the_transition_table.transitions();
     my_initial_state = the_initial_state;
     my_current_state = the_initial_state;
     my_final_states = the_final_states;
@@ -157,32 +152,21 @@ public abstract class AbstractStateMachine implements Serializable {
   
   /**
    * @return the UI events enabled in this ASM.  I.e., which UI events
-   * correspond to those states reachable from the current state?
+   * correspond to those states reachable from the current state? The 
+   * returned set is unmodifiable.
    */
   public Set<UIEvent> enabledUIEvents() {
-    final Set<ASMEvent> asm_events_enabled = enabledASMEvents();
-    final Set<UIEvent> result = new HashSet<UIEvent>();
-    // For each enabled ASM event, look up which UI events it corresponds to.
-    for (final ASMEvent e : asm_events_enabled) {
-      result.addAll(my_ui_to_asm_relation.leftArrow(e));
-    }
-    return result;
+    return my_transition_table.enabledUIEvents(my_current_state);
   }
   
   /**
    * @return the transitions of this ASM that are enabled. I.e., which
    * states are reachable from the current state, given any possible
-   * event?
+   * event? The returned set is unmodifiable.
    * @trace asm.enabled_events
    */
   public Set<ASMEvent> enabledASMEvents() {
-    final Set<ASMEvent> result = new HashSet<>();
-    for (final ASMTransition t : my_transition_function) {
-      if (t.startStates().contains(my_current_state)) {
-        result.addAll(t.events());
-      }
-    }
-    return result;
+    return my_transition_table.enabledASMEvents(my_current_state);
   }
   
   /**
@@ -223,14 +207,7 @@ public abstract class AbstractStateMachine implements Serializable {
   @SuppressWarnings("PMD.CyclomaticComplexity")
   public ASMState stepEvent(final ASMEvent the_event)
       throws IllegalStateException {  
-    ASMState result = null;
-    for (final ASMTransition t : my_transition_function) {
-      if (t.startStates().contains(my_current_state) &&
-          t.events().contains(the_event)) {
-        result = t.endState();
-        break;
-      }
-    }
+    final ASMState result = my_transition_table.nextState(my_current_state, the_event);
     if (result == null) {
       Main.LOGGER.error("ASM event " + the_event + 
                         " failed from state " + my_current_state); 
@@ -12,7 +12,6 @@
 package us.freeandfair.corla.asm;
 
 import java.util.Arrays;
-import java.util.HashSet;
 
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
@@ -43,6 +42,15 @@ public class AuditBoardDashboardASM extends AbstractStateMachine {
       {AuditBoardDashboardState.AUDIT_COMPLETE,
        AuditBoardDashboardState.UNABLE_TO_AUDIT,
        AuditBoardDashboardState.AUDIT_ABORTED};
+
+  /**
+   * The transition table of this ASM.
+   */
+  private static final
+      ASMTransitionTable<AuditBoardDashboardState, AuditBoardDashboardEvent> TRANSITION_TABLE =
+      new ASMTransitionTable<>(AuditBoardDashboardState.class, AuditBoardDashboardEvent.class,
+                               transitionsFor(Arrays.asList(
+                                   AuditBoardDashboardTransitionFunction.values())));
   
   /**
    * Create the Audit Board Dashboard ASM for the specified county.
@@ -52,10 +60,7 @@ public class AuditBoardDashboardASM extends AbstractStateMachine {
    */
   //@ requires the_county_id != null;
   public AuditBoardDashboardASM(final String the_county_id) {
-    super(new HashSet<ASMState>(Arrays.asList(AuditBoardDashboardState.values())),
-          new HashSet<ASMEvent>(Arrays.asList(AuditBoardDashboardEvent.values())),
-          transitionsFor(Arrays.
-                         asList(AuditBoardDashboardTransitionFunction.values())),
+    super(TRANSITION_TABLE,
           AuditBoardDashboardState.AUDIT_INITIAL_STATE,
           SetCreator.setOf(FINAL_STATES),
           the_county_id);
@@ -12,7 +12,6 @@
 package us.freeandfair.corla.asm;
 
 import java.util.Arrays;
-import java.util.HashSet;
 
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
@@ -43,6 +42,15 @@ public class CountyDashboardASM extends AbstractStateMachine {
       {CountyDashboardState.DEADLINE_MISSED,
        CountyDashboardState.COUNTY_AUDIT_COMPLETE};
 
+  /**
+   * The transition table of this ASM.
+   */
+  private static final
+      ASMTransitionTable<CountyDashboardState, CountyDashboardEvent> TRANSITION_TABLE =
+      new ASMTransitionTable<>(CountyDashboardState.class, CountyDashboardEvent.class,
+                               transitionsFor(Arrays.asList(
+                                   CountyDashboardTransitionFunction.values())));
+
   /**
    * Create the County Dashboard ASM.
    * 
@@ -51,10 +59,7 @@ public class CountyDashboardASM extends AbstractStateMachine {
    */
   //@ requires the_county_id != null
   public CountyDashboardASM(final String the_county_id) {
-    super(new HashSet<ASMState>(Arrays.asList(CountyDashboardState.values())),
-          new HashSet<ASMEvent>(Arrays.asList(CountyDashboardEvent.values())),
-          transitionsFor(Arrays.
-                         asList(CountyDashboardTransitionFunction.values())),
+    super(TRANSITION_TABLE,
           CountyDashboardState.COUNTY_INITIAL_STATE,
           SetCreator.setOf(FINAL_STATES),
           the_county_id);
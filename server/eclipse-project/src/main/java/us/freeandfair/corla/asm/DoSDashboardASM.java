@@ -12,7 +12,6 @@
 package us.freeandfair.corla.asm;
 
 import java.util.Arrays;
-import java.util.HashSet;
 
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
@@ -47,15 +46,21 @@ public class DoSDashboardASM extends AbstractStateMachine {
   private static final ASMState[] FINAL_STATES = 
       {DoSDashboardState.AUDIT_RESULTS_PUBLISHED};
 
+  /**
+   * The transition table of this ASM.
+   */
+  private static final
+      ASMTransitionTable<DoSDashboardState, DoSDashboardEvent> TRANSITION_TABLE =
+      new ASMTransitionTable<>(DoSDashboardState.class, DoSDashboardEvent.class,
+                               transitionsFor(Arrays.asList(
+                                   DoSDashboardTransitionFunction.values())));
+
   /**
    * Create the Department of State Dashboard ASM.
    * @trace asm.dos_asm 
    */
   public DoSDashboardASM() {
-    super(new HashSet<ASMState>(Arrays.asList(DoSDashboardState.values())),
-          new HashSet<ASMEvent>(Arrays.asList(DoSDashboardEvent.values())),
-          transitionsFor(Arrays.
-                         asList(DoSDashboardTransitionFunction.values())),
+    super(TRANSITION_TABLE,
           DoSDashboardState.DOS_INITIAL_STATE,
           SetCreator.setOf(FINAL_STATES),
           IDENTITY); // there is only one DoS dashboard
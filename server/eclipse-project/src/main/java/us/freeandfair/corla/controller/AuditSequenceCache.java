@@ -0,0 +1,154 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.controller;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import us.freeandfair.corla.crypto.PseudoRandomNumberGenerator;
+
+/**
+ * A cache of audit sequence generators, one per county. An audit sequence
+ * is completely determined by the random seed and the number of CVRs in the
+ * county, so a county's generator can be reused (and its sequence extended
+ * only as far as necessary) for as long as neither of those changes.
+ *
+ * @version 1.0.0
+ */
+public final class AuditSequenceCache {
+  /**
+   * The cached sequences, by county ID.
+   */
+  private static final Map<Long, CachedSequence> SEQUENCES = new HashMap<>();
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private AuditSequenceCache() {
+    // empty
+  }
+
+  /**
+   * Gets the specified range of the audit sequence for the specified county,
+   * seed and CVR count. Only the part of the sequence that has not been
+   * requested before is actually generated.
+   *
+   * @param the_county_id The county ID.
+   * @param the_seed The random seed.
+   * @param the_cvr_count The number of CVRs in the county.
+   * @param the_min_index The minimum index to return.
+   * @param the_max_index The maximum index to return.
+   * @return the list of sequence numbers, of size
+   * the_max_index - the_min_index + 1.
+   */
+  public static List<Integer> sequence(final Long the_county_id,
+                                       final String the_seed,
+                                       final int the_cvr_count,
+                                       final int the_min_index,
+                                       final int the_max_index) {
+    return generatorFor(the_county_id, the_seed, the_cvr_count).
+        getRandomNumbers(the_min_index, the_max_index);
+  }
+
+  /**
+   * Invalidates the cached sequence for the specified county.
+   *
+   * @param the_county_id The county ID.
+   */
+  public static synchronized void invalidate(final Long the_county_id) {
+    SEQUENCES.remove(the_county_id);
+  }
+
+  /**
+   * Invalidates all cached sequences.
+   */
+  public static synchronized void invalidateAll() {
+    SEQUENCES.clear();
+  }
+
+  /**
+   * Gets the generator for the specified county, seed and CVR count,
+   * replacing any cached generator that was created for a different seed
+   * or CVR count.
+   *
+   * @param the_county_id The county ID.
+   * @param the_seed The random seed.
+   * @param the_cvr_count The number of CVRs in the county.
+   * @return the generator.
+   */
+  private static synchronized PseudoRandomNumberGenerator
+      generatorFor(final Long the_county_id, final String the_seed,
+                   final int the_cvr_count) {
+    CachedSequence result = SEQUENCES.get(the_county_id);
+    if (result == null || !result.matches(the_seed, the_cvr_count)) {
+      // CVRs are indexed from 0, and the generator's range is inclusive
+      result = new CachedSequence(the_seed, the_cvr_count,
+                                  new PseudoRandomNumberGenerator(the_seed, true,
+                                                                  0, the_cvr_count - 1));
+      SEQUENCES.put(the_county_id, result);
+    }
+    return result.generator();
+  }
+
+  /**
+   * A cached audit sequence, along with the parameters that determine it.
+   */
+  private static class CachedSequence {
+    /**
+     * The seed.
+     */
+    private final String my_seed;
+
+    /**
+     * The CVR count.
+     */
+    private final int my_cvr_count;
+
+    /**
+     * The generator.
+     */
+    private final PseudoRandomNumberGenerator my_generator;
+
+    /**
+     * Constructs a new cached sequence.
+     *
+     * @param the_seed The seed.
+     * @param the_cvr_count The CVR count.
+     * @param the_generator The generator.
+     */
+    CachedSequence(final String the_seed, final int the_cvr_count,
+                   final PseudoRandomNumberGenerator the_generator) {
+      my_seed = the_seed;
+      my_cvr_count = the_cvr_count;
+      my_generator = the_generator;
+    }
+
+    /**
+     * Checks whether this sequence was generated with the specified
+     * parameters.
+     *
+     * @param the_seed The seed.
+     * @param the_cvr_count The CVR count.
+     * @return true if it was, false otherwise.
+     */
+    boolean matches(final String the_seed, final int the_cvr_count) {
+      return my_seed.equals(the_seed) && my_cvr_count == the_cvr_count;
+    }
+
+    /**
+     * @return the generator.
+     */
+    PseudoRandomNumberGenerator generator() {
+      return my_generator;
+    }
+  }
+}
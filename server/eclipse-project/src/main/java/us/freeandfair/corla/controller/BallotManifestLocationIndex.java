@@ -0,0 +1,233 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.controller;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import us.freeandfair.corla.model.BallotManifestInfo;
+import us.freeandfair.corla.model.CastVoteRecord;
+import us.freeandfair.corla.model.CountyDashboard;
+import us.freeandfair.corla.model.UploadedFile;
+import us.freeandfair.corla.query.BallotManifestInfoQueries;
+
+/**
+ * An immutable index from (scanner ID, batch ID) to storage location for
+ * the ballot manifest of one county, and a cache of such indexes, one per
+ * county. A cached index is tagged with the ID of the manifest file it was
+ * built from, and is only used while that file is the county's current
+ * manifest; so an index built from a manifest whose import is later rolled
+ * back is never used.
+ *
+ * @version 1.0.0
+ */
+public final class BallotManifestLocationIndex {
+  /**
+   * The cached indexes, by county ID.
+   */
+  private static final Map<Long, CachedIndex> INDEXES = new HashMap<>();
+
+  /**
+   * The empty index.
+   */
+  private static final BallotManifestLocationIndex EMPTY =
+      new BallotManifestLocationIndex(Collections.<Long, String>emptyMap());
+
+  /**
+   * The storage locations, by packed (scanner ID, batch ID) key.
+   */
+  private final Map<Long, String> my_locations;
+
+  /**
+   * Constructs a new BallotManifestLocationIndex.
+   *
+   * @param the_locations The locations, which must not be modified later.
+   */
+  private BallotManifestLocationIndex(final Map<Long, String> the_locations) {
+    my_locations = the_locations;
+  }
+
+  /**
+   * Gets the location index for the specified county dashboard's current
+   * ballot manifest, loading it from the database if it is not cached.
+   *
+   * @param the_cdb The county dashboard.
+   * @return the index; if the county has no ballot manifest, or the manifest
+   * cannot be read, the index is empty.
+   */
+  public static BallotManifestLocationIndex forCounty(final CountyDashboard the_cdb) {
+    final UploadedFile manifest = the_cdb.manifestFile();
+    if (manifest == null) {
+      return EMPTY;
+    }
+    BallotManifestLocationIndex result = cached(the_cdb.id(), manifest.id());
+    if (result == null) {
+      final List<BallotManifestInfo> bmis =
+          BallotManifestInfoQueries.getMatching(the_cdb.id());
+      if (bmis == null) {
+        result = EMPTY;
+      } else {
+        final Builder builder = new Builder();
+        for (final BallotManifestInfo bmi : bmis) {
+          builder.add(bmi);
+        }
+        result = builder.build();
+        install(the_cdb.id(), manifest.id(), result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Caches the specified index for the specified county and manifest file.
+   *
+   * @param the_county_id The county ID.
+   * @param the_manifest_id The ID of the manifest file the index was built from.
+   * @param the_index The index.
+   */
+  public static synchronized void install(final Long the_county_id,
+                                          final Long the_manifest_id,
+                                          final BallotManifestLocationIndex the_index) {
+    INDEXES.put(the_county_id, new CachedIndex(the_manifest_id, the_index));
+  }
+
+  /**
+   * Invalidates the cached index for the specified county.
+   *
+   * @param the_county_id The county ID.
+   */
+  public static synchronized void invalidate(final Long the_county_id) {
+    INDEXES.remove(the_county_id);
+  }
+
+  /**
+   * Invalidates all cached indexes.
+   */
+  public static synchronized void invalidateAll() {
+    INDEXES.clear();
+  }
+
+  /**
+   * Gets the cached index for the specified county and manifest file.
+   *
+   * @param the_county_id The county ID.
+   * @param the_manifest_id The manifest file ID.
+   * @return the index, or null if none is cached for that manifest file.
+   */
+  private static synchronized BallotManifestLocationIndex
+      cached(final Long the_county_id, final Long the_manifest_id) {
+    final CachedIndex cached = INDEXES.get(the_county_id);
+    BallotManifestLocationIndex result = null;
+    if (cached != null && cached.my_manifest_id.equals(the_manifest_id)) {
+      result = cached.my_index;
+    }
+    return result;
+  }
+
+  /**
+   * Packs a scanner ID and a batch ID into a single key.
+   *
+   * @param the_scanner_id The scanner ID.
+   * @param the_batch_id The batch ID.
+   * @return the key.
+   */
+  private static long key(final int the_scanner_id, final int the_batch_id) {
+    return ((long) the_scanner_id << Integer.SIZE) | (the_batch_id & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Gets the storage location of the specified batch.
+   *
+   * @param the_scanner_id The scanner ID.
+   * @param the_batch_id The batch ID.
+   * @return the location, or null if the batch is not in the manifest.
+   */
+  public String location(final int the_scanner_id, final int the_batch_id) {
+    return my_locations.get(key(the_scanner_id, the_batch_id));
+  }
+
+  /**
+   * Gets the storage location of the specified CVR.
+   *
+   * @param the_cvr The CVR.
+   * @return the location, or null if the CVR's batch is not in the manifest.
+   */
+  public String location(final CastVoteRecord the_cvr) {
+    String result = null;
+    if (the_cvr.scannerID() != null && the_cvr.batchID() != null) {
+      result = location(the_cvr.scannerID(), the_cvr.batchID());
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of batches in this index.
+   */
+  public int size() {
+    return my_locations.size();
+  }
+
+  /**
+   * A builder for location indexes.
+   */
+  public static class Builder {
+    /**
+     * The locations added so far.
+     */
+    private final Map<Long, String> my_locations = new HashMap<>();
+
+    /**
+     * Adds the location of the specified manifest record. If more than one
+     * record has the same scanner and batch, the first one added is used.
+     *
+     * @param the_bmi The manifest record.
+     */
+    public void add(final BallotManifestInfo the_bmi) {
+      my_locations.putIfAbsent(key(the_bmi.scannerID(), the_bmi.batchID()),
+                               the_bmi.storageLocation());
+    }
+
+    /**
+     * @return an index of the locations added so far.
+     */
+    public BallotManifestLocationIndex build() {
+      return new BallotManifestLocationIndex(new HashMap<>(my_locations));
+    }
+  }
+
+  /**
+   * A cached index, along with the manifest file it was built from.
+   */
+  private static class CachedIndex {
+    /**
+     * The manifest file ID.
+     */
+    private final Long my_manifest_id;
+
+    /**
+     * The index.
+     */
+    private final BallotManifestLocationIndex my_index;
+
+    /**
+     * Constructs a new cached index.
+     *
+     * @param the_manifest_id The manifest file ID.
+     * @param the_index The index.
+     */
+    CachedIndex(final Long the_manifest_id, final BallotManifestLocationIndex the_index) {
+      my_manifest_id = the_manifest_id;
+      my_index = the_index;
+    }
+  }
+}
@@ -13,6 +13,7 @@ package us.freeandfair.corla.controller;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -23,9 +24,10 @@ import java.util.OptionalLong;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import us.freeandfair.corla.Main;
-import us.freeandfair.corla.crypto.PseudoRandomNumberGenerator;
 import us.freeandfair.corla.model.AuditReason;
 import us.freeandfair.corla.model.AuditType;
 import us.freeandfair.corla.model.CVRAuditInfo;
@@ -42,6 +44,7 @@ import us.freeandfair.corla.model.CountyDashboard;
 import us.freeandfair.corla.model.DoSDashboard;
 import us.freeandfair.corla.model.Round;
 import us.freeandfair.corla.persistence.Persistence;
+import us.freeandfair.corla.query.CVRAuditInfoQueries;
 import us.freeandfair.corla.query.CastVoteRecordQueries;
 import us.freeandfair.corla.query.CountyContestResultQueries;
 
@@ -84,19 +87,13 @@ public final class ComparisonAuditController {
 
     final String seed = 
         Persistence.getByID(DoSDashboard.ID, DoSDashboard.class).auditInfo().seed();
-    final boolean with_replacement = true;
-    // assuming that CVRs are indexed from 0
-    final int minimum = 0;
-    // the number of CVRs for the_contest_to_audit - note that the sequence
-    // generator generates a sequence of the numbers minimum ... maximum 
-    // inclusive, so we subtract 1 from the number of CVRs to give it the
-    // correct range for our actual list of CVRs (indexed from 0).
-    final int maximum = (int) count.getAsLong() - 1;
-
-    final PseudoRandomNumberGenerator prng = 
-        new PseudoRandomNumberGenerator(seed, with_replacement,
-                                        minimum, maximum);
-    return prng.getRandomNumbers(the_min_index, the_max_index);
+    // the sequence generator generates (with replacement) a sequence of the 
+    // numbers 0 ... count - 1 inclusive, corresponding to our actual list of
+    // CVRs (indexed from 0); the cache extends the county's sequence only as
+    // far as is necessary, so asking for the same prefix repeatedly is cheap
+    return AuditSequenceCache.sequence(the_county.id(), seed, 
+                                       (int) count.getAsLong(),
+                                       the_min_index, the_max_index);
   }
   
   /**
@@ -139,6 +136,36 @@ public final class ComparisonAuditController {
     return getCVRsForSequenceNumbers(the_county, list_of_cvrs_to_audit);
   }
   
+  /**
+   * Get summaries of the cast vote records to audit, in order, for the given 
+   * county in the specified range in the audit sequence. The summaries have 
+   * no contest information and are not part of the persistence context (see 
+   * CastVoteRecordQueries.getSummaries); they are sufficient for ballot lists.
+   * 
+   * @param the_county The county.
+   * @param the_min_index The minimum index to return.
+   * @param the_max_index The maximum index to return.
+   * @return the list of ballot card summaries, of size 
+   * the_max_index - the_min_index + 1.
+   */
+  public static List<CastVoteRecord> 
+      getCVRSummariesInAuditSequence(final County the_county,
+                                     final int the_min_index,
+                                     final int the_max_index) {
+    final List<Integer> list_of_cvrs_to_audit = 
+        getCVRSeqNumsInAuditSequence(the_county, the_min_index, the_max_index);
+    final Map<Integer, CastVoteRecord> matching_cvrs = 
+        CastVoteRecordQueries.getSummaries(the_county.id(), RecordType.UPLOADED, 
+                                           list_of_cvrs_to_audit);
+    final List<CastVoteRecord> result = new ArrayList<>();
+    
+    for (final int index : list_of_cvrs_to_audit) {
+      result.add(matching_cvrs.get(index));
+    }
+    
+    return result;
+  }
+  
   /**
    * Gets all CVRs to audit in the specified round for the specified county
    * dashboard. This returns a list in audit random sequence order.
@@ -187,7 +214,8 @@ public final class ComparisonAuditController {
   /**
    * Compute the ballot (cards) for audit, for a particular county dashboard and 
    * start index. This returns the specified number of cards, with or without 
-   * duplicates (as requested).
+   * duplicates (as requested). The cards are summaries, without contest 
+   * information, as returned by getCVRSummariesInAuditSequence.
    * 
    * @param the_cdb The dashboard.
    * @param the_start_index The start index.
@@ -195,7 +223,6 @@ public final class ComparisonAuditController {
    * @param the_duplicates true to include duplicates, false otherwise.
    * @param the_audited true to include already-audited ballots, false otherwise.
    */
-  @SuppressWarnings("PMD.UselessParentheses")
   public static List<CastVoteRecord> computeBallotOrder(final CountyDashboard the_cdb,
                                                         final int the_start_index,
                                                         final int the_ballot_count,
@@ -210,7 +237,42 @@ public final class ComparisonAuditController {
       // we can't generate a list for this county
       return new ArrayList<>();
     }
+    final int possible_ballots = Math.min(the_ballot_count, (int) county_ballots);
+    return selectBallots(the_start_index, the_ballot_count, possible_ballots, 
+                         the_duplicates, the_audited,
+        (the_min, the_max) -> getCVRSummariesInAuditSequence(the_cdb.county(), 
+                                                             the_min, the_max),
+        CVRAuditInfoQueries::auditedIDs);
+  }
+  
+  /**
+   * Selects the ballot (cards) for audit from a county's audit sequence, as
+   * described for computeBallotOrder. The sequence is read in windows, and 
+   * each window's summaries are new instances even when they are duplicates 
+   * of summaries in earlier windows, so audit flags are looked up once per 
+   * CVR ID and set on every summary before it is filtered.
+   * 
+   * @param the_start_index The start index.
+   * @param the_ballot_count The number of ballots.
+   * @param the_possible_ballots The number of distinct ballots that can be 
+   * selected.
+   * @param the_duplicates true to include duplicates, false otherwise.
+   * @param the_audited true to include already-audited ballots, false otherwise.
+   * @param the_window The function that reads the summaries in a range of 
+   * the audit sequence (bounds inclusive).
+   * @param the_audited_ids The function that finds which of a set of CVR IDs 
+   * have been audited.
+   * @return the selected ballot (cards).
+   */
+  @SuppressWarnings({"PMD.UselessParentheses", "checkstyle:parameternumber"})
+  static List<CastVoteRecord> 
+      selectBallots(final int the_start_index, final int the_ballot_count,
+                    final int the_possible_ballots, final boolean the_duplicates,
+                    final boolean the_audited,
+                    final BiFunction<Integer, Integer, List<CastVoteRecord>> the_window,
+                    final Function<Set<Long>, Set<Long>> the_audited_ids) {
     final Set<CastVoteRecord> cvr_set = new HashSet<>();
+    final Map<Long, Boolean> audit_flags = new HashMap<>();
     final List<CastVoteRecord> cvr_to_audit_list = new ArrayList<>();
     
     // we need to get the CVRs for the county's sequence, starting at START, and 
@@ -220,19 +282,26 @@ public final class ComparisonAuditController {
     int start = the_start_index;
     int end = start + the_ballot_count - 1; // end is inclusive
     
-    final int possible_ballots = Math.min(the_ballot_count, (int) county_ballots);
-    
     // if duplicates is set we go until the list has the right number; if not,
     // we go until we hit the end of our CVR pool
     while ((the_duplicates && cvr_to_audit_list.size() < the_ballot_count) || 
-           (!the_duplicates && cvr_set.size() < possible_ballots)) {
-      final List<CastVoteRecord> new_cvrs = 
-          getCVRsInAuditSequence(the_cdb.county(), start, end);
+           (!the_duplicates && cvr_set.size() < the_possible_ballots)) {
+      final List<CastVoteRecord> new_cvrs = the_window.apply(start, end);
+      final Set<Long> unseen_ids = new HashSet<>();
+      for (final CastVoteRecord cvr : new_cvrs) {
+        if (!audit_flags.containsKey(cvr.id())) {
+          unseen_ids.add(cvr.id());
+        }
+      }
+      if (!unseen_ids.isEmpty()) {
+        final Set<Long> audited_ids = the_audited_ids.apply(unseen_ids);
+        for (final Long id : unseen_ids) {
+          audit_flags.put(id, audited_ids.contains(id));
+        }
+      }
       for (int i = 0; i < new_cvrs.size(); i++) {
         final CastVoteRecord cvr = new_cvrs.get(i);
-        if (!cvr_set.contains(cvr)) {
-          cvr.setAuditFlag(audited(the_cdb, cvr));
-        }
+        cvr.setAuditFlag(audit_flags.get(cvr.id()));
         if ((the_duplicates || !cvr_set.contains(cvr)) && 
             (the_audited || !cvr.auditFlag())) {
           cvr_to_audit_list.add(cvr);
@@ -289,10 +358,13 @@ public final class ComparisonAuditController {
                                                      the_start_index - 1));
     }
 
+    final List<CastVoteRecord> unseen_cvrs = new ArrayList<>(cvrs);
+    unseen_cvrs.removeAll(previous_cvr_set);
+    setAuditFlags(unseen_cvrs);
+
     for (int i = 0; i < cvrs.size(); i++) {
       final CastVoteRecord cvr = cvrs.get(i);
       if (!cvr_set.contains(cvr) && !previous_cvr_set.contains(cvr)) {
-        cvr.setAuditFlag(audited(the_cdb, cvr));
         if (the_audited || !cvr.auditFlag()) {
           cvr_to_audit_list.add(cvr);
         }
@@ -306,6 +378,8 @@ public final class ComparisonAuditController {
   /**
    * Compute the ballot (cards) for audit, for a particular county and 
    * round. The returned list does not have duplicates, and is in _arbitrary order_.
+   * The cards are summaries, without contest information, as returned by
+   * CastVoteRecordQueries.getSummaries.
    * 
    * @param the_cdb The dashboard.
    * @param the_round The round number.
@@ -325,11 +399,10 @@ public final class ComparisonAuditController {
     final Round round = the_cdb.rounds().get(the_round - 1);
     
     // we already have the list of CVR IDs for the round
-    final List<CastVoteRecord> cvrs = CastVoteRecordQueries.get(round.ballotSequence());
+    final List<CastVoteRecord> cvrs = 
+        CastVoteRecordQueries.getSummaries(round.ballotSequence());
     
-    for (final CastVoteRecord cvr : cvrs) {
-      cvr.setAuditFlag(audited(the_cdb, cvr));
-    }
+    setAuditFlags(cvrs);
 
     return cvrs;
   }
@@ -718,6 +791,27 @@ public final class ComparisonAuditController {
     return result;
   }
   
+  /**
+   * Sets the audit flags on the specified CVRs, as audited() does for a
+   * single CVR, using one set-based query for all of them rather than one
+   * query per CVR.
+   * 
+   * @param the_cvrs The CVRs.
+   */
+  private static void setAuditFlags(final Collection<CastVoteRecord> the_cvrs) {
+    if (the_cvrs.isEmpty()) {
+      return;
+    }
+    final Set<Long> ids = new HashSet<>();
+    for (final CastVoteRecord cvr : the_cvrs) {
+      ids.add(cvr.id());
+    }
+    final Set<Long> audited_ids = CVRAuditInfoQueries.auditedIDs(ids);
+    for (final CastVoteRecord cvr : the_cvrs) {
+      cvr.setAuditFlag(audited_ids.contains(cvr.id()));
+    }
+  }
+  
 
   /**
    * Updates a round object with the disagreements and discrepancies
@@ -760,10 +854,8 @@ public final class ComparisonAuditController {
         
         final int multiplicity = Collections.frequency(the_round.auditSubsequence(),
                                                        cvr_id);
-        for (int i = 0; i < multiplicity; i++) {
-          the_round.addDiscrepancy(discrepancies);
-          the_round.addDisagreement(disagreements);
-        }
+        the_round.addDiscrepancy(discrepancies, multiplicity);
+        the_round.addDisagreement(disagreements, multiplicity);
         
         cvrai.setMultiplicity(cvrai.multiplicity() + multiplicity);
         cvrai.setCounted(cvrai.counted() + multiplicity);
@@ -804,15 +896,11 @@ public final class ComparisonAuditController {
       final OptionalInt discrepancy = 
           ca.computeDiscrepancy(cvr_under_audit, audit_cvr);
       if (discrepancy.isPresent()) {
-        for (int i = 0; i < audit_count; i++) {
-          ca.recordDiscrepancy(the_info, discrepancy.getAsInt());
-        }
+        ca.recordDiscrepancy(the_info, discrepancy.getAsInt(), audit_count);
         discrepancies.add(ca.auditReason());
       }
       if (contest_disagreements.contains(ca.contest())) {
-        for (int i = 0; i < audit_count; i++) {
-          ca.recordDisagreement(the_info);
-        }
+        ca.recordDisagreement(the_info, audit_count);
         disagreements.add(ca.auditReason());
       }
       ca.signalSampleAudited(audit_count);
@@ -860,15 +948,11 @@ public final class ComparisonAuditController {
       final OptionalInt discrepancy = 
           ca.computeDiscrepancy(cvr_under_audit, audit_cvr);
       if (discrepancy.isPresent()) {
-        for (int i = 0; i < result; i++) {
-          ca.removeDiscrepancy(the_info, discrepancy.getAsInt());
-        }
+        ca.removeDiscrepancy(the_info, discrepancy.getAsInt(), result);
         discrepancies.add(ca.auditReason());
       }
       if (contest_disagreements.contains(ca.contest())) {
-        for (int i = 0; i < result; i++) {
-          ca.removeDisagreement(the_info);
-        }
+        ca.removeDisagreement(the_info, result);
         disagreements.add(ca.auditReason());
       }
       ca.signalSampleUnaudited(result);
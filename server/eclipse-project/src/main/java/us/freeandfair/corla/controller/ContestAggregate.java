@@ -0,0 +1,303 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.controller;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import us.freeandfair.corla.math.Audit;
+
+/**
+ * The results and audit state of a contest, combined across the counties
+ * in which it appears: the vote totals, winners and diluted margin of the
+ * contest as a whole, the discrepancies found by all its county audits,
+ * and the resulting contest-wide sample size. An aggregate for a single
+ * county is the same as that county's results and audit.
+ *
+ * Aggregates are immutable; they are produced by the ContestAggregator.
+ *
+ * @version 1.0.0
+ */
+public final class ContestAggregate {
+  /**
+   * The lowest discrepancy type.
+   */
+  private static final int MIN_DISCREPANCY = -2;
+
+  /**
+   * The contest name.
+   */
+  private final String my_name;
+
+  /**
+   * The IDs of the counties in which the contest appears.
+   */
+  private final SortedSet<Long> my_counties;
+
+  /**
+   * The number of winners allowed.
+   */
+  private final int my_winners_allowed;
+
+  /**
+   * The vote totals, by choice.
+   */
+  private final SortedMap<String, Long> my_vote_totals;
+
+  /**
+   * The winners.
+   */
+  private final Set<String> my_winners;
+
+  /**
+   * The minimum margin between a winner and a loser.
+   */
+  private final long my_min_margin;
+
+  /**
+   * The number of ballots cast in the counties in which the contest appears.
+   */
+  private final long my_county_ballot_count;
+
+  /**
+   * The number of ballots cast that contain the contest.
+   */
+  private final long my_contest_ballot_count;
+
+  /**
+   * The diluted margin of the contest.
+   */
+  private final BigDecimal my_diluted_margin;
+
+  /**
+   * The discrepancy counts, indexed by discrepancy type + 2.
+   */
+  private final int[] my_discrepancy_counts;
+
+  /**
+   * The number of samples audited.
+   */
+  private final int my_audited_sample_count;
+
+  /**
+   * The contest-wide number of samples to audit, assuming no further
+   * overstatements, or null if the contest is not under audit.
+   */
+  private final Integer my_samples_to_audit;
+
+  /**
+   * The largest optimistic number of ballots left to audit in any county,
+   * or null if the contest is not under audit.
+   */
+  private final Integer my_optimistic_remaining;
+
+  /**
+   * The largest estimated number of ballots left to audit in any county,
+   * or null if the contest is not under audit.
+   */
+  private final Integer my_estimated_remaining;
+
+  /**
+   * The largest measured risk in any county, or null if the contest is not
+   * under audit.
+   */
+  private final BigDecimal my_measured_risk;
+
+  /**
+   * Constructs an aggregate from a tally.
+   *
+   * @param the_tally The tally.
+   */
+  ContestAggregate(final ContestAggregator.Tally the_tally) {
+    my_name = the_tally.my_name;
+    my_counties = Collections.unmodifiableSortedSet(new TreeSet<>(the_tally.my_counties));
+    my_winners_allowed = the_tally.my_winners_allowed;
+    my_vote_totals = Collections.unmodifiableSortedMap(new TreeMap<>(the_tally.my_votes));
+    my_county_ballot_count = the_tally.my_county_ballot_count;
+    my_contest_ballot_count = the_tally.my_contest_ballot_count;
+    my_discrepancy_counts = the_tally.my_discrepancy_counts.clone();
+    my_audited_sample_count = the_tally.my_audited_sample_count;
+    my_optimistic_remaining = the_tally.my_optimistic_remaining;
+    my_estimated_remaining = the_tally.my_estimated_remaining;
+    my_measured_risk = the_tally.my_measured_risk;
+
+    // rank the choices by votes, breaking ties by name so the ranking is
+    // the same however the tallies were combined
+    final List<String> ranked = new ArrayList<>(my_vote_totals.keySet());
+    ranked.sort(Comparator.comparing((String the_choice) -> my_vote_totals.get(the_choice)).
+                reversed().thenComparing(Comparator.naturalOrder()));
+    final int winner_count = Math.min(my_winners_allowed, ranked.size());
+    my_winners =
+        Collections.unmodifiableSet(new LinkedHashSet<>(ranked.subList(0, winner_count)));
+    if (winner_count == 0 || winner_count == ranked.size()) {
+      // if we only have winners, there is no margin
+      my_min_margin = 0;
+      my_diluted_margin = BigDecimal.ONE;
+    } else {
+      my_min_margin = my_vote_totals.get(ranked.get(winner_count - 1)) -
+                      my_vote_totals.get(ranked.get(winner_count));
+      if (my_county_ballot_count > 0) {
+        my_diluted_margin =
+            BigDecimal.valueOf(my_min_margin).
+            divide(BigDecimal.valueOf(my_county_ballot_count), MathContext.DECIMAL128);
+      } else {
+        my_diluted_margin = BigDecimal.ZERO;
+      }
+    }
+
+    if (the_tally.my_risk_limit == null) {
+      my_samples_to_audit = null;
+    } else if (my_diluted_margin.signum() == 0) {
+      // the contest is not auditable, so use the number of ballots
+      // (for lack of a better number)
+      my_samples_to_audit = (int) my_county_ballot_count;
+    } else {
+      my_samples_to_audit =
+          Audit.optimistic(the_tally.my_risk_limit, my_diluted_margin, the_tally.my_gamma,
+                           discrepancyCount(-2), discrepancyCount(-1),
+                           discrepancyCount(1), discrepancyCount(2)).intValue();
+    }
+  }
+
+  /**
+   * @return the contest name.
+   */
+  public String name() {
+    return my_name;
+  }
+
+  /**
+   * @return the IDs of the counties in which the contest appears.
+   */
+  public SortedSet<Long> counties() {
+    return my_counties;
+  }
+
+  /**
+   * @return the number of winners allowed.
+   */
+  public int winnersAllowed() {
+    return my_winners_allowed;
+  }
+
+  /**
+   * @return the vote totals, by choice.
+   */
+  public Map<String, Long> voteTotals() {
+    return my_vote_totals;
+  }
+
+  /**
+   * @return the winners.
+   */
+  public Set<String> winners() {
+    return my_winners;
+  }
+
+  /**
+   * @return the minimum margin between a winner and a loser.
+   */
+  public long minMargin() {
+    return my_min_margin;
+  }
+
+  /**
+   * @return the number of ballots cast in the counties in which the
+   * contest appears.
+   */
+  public long countyBallotCount() {
+    return my_county_ballot_count;
+  }
+
+  /**
+   * @return the number of ballots cast that contain the contest.
+   */
+  public long contestBallotCount() {
+    return my_contest_ballot_count;
+  }
+
+  /**
+   * @return the diluted margin of the contest, defined as the minimum margin
+   * divided by the number of ballots cast in the counties in which the
+   * contest appears.
+   */
+  public BigDecimal dilutedMargin() {
+    return my_diluted_margin;
+  }
+
+  /**
+   * Returns the count of the specified type of discrepancy. -2 and -1 represent
+   * understatements, 0 represents a discrepancy that doesn't affect the RLA
+   * calculations, and 1 and 2 represent overstatements.
+   *
+   * @param the_type The type of discrepancy.
+   * @return the count.
+   * @exception IllegalArgumentException if an invalid discrepancy type is
+   * specified.
+   */
+  public int discrepancyCount(final int the_type) {
+    final int index = the_type - MIN_DISCREPANCY;
+    if (index < 0 || my_discrepancy_counts.length <= index) {
+      throw new IllegalArgumentException("invalid discrepancy type: " + the_type);
+    }
+    return my_discrepancy_counts[index];
+  }
+
+  /**
+   * @return the number of samples audited.
+   */
+  public int auditedSampleCount() {
+    return my_audited_sample_count;
+  }
+
+  /**
+   * @return the contest-wide number of samples to audit, assuming no further
+   * overstatements, or null if the contest is not under audit.
+   */
+  public Integer samplesToAudit() {
+    return my_samples_to_audit;
+  }
+
+  /**
+   * @return the largest optimistic number of ballots left to audit in any
+   * county, or null if the contest is not under audit.
+   */
+  public Integer optimisticRemaining() {
+    return my_optimistic_remaining;
+  }
+
+  /**
+   * @return the largest estimated number of ballots left to audit in any
+   * county, or null if the contest is not under audit.
+   */
+  public Integer estimatedRemaining() {
+    return my_estimated_remaining;
+  }
+
+  /**
+   * @return the largest measured risk in any county, or null if the contest
+   * is not under audit.
+   */
+  public BigDecimal measuredRisk() {
+    return my_measured_risk;
+  }
+}
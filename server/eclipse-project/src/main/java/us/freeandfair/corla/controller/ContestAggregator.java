@@ -0,0 +1,480 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.controller;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+import javax.persistence.PersistenceException;
+
+import us.freeandfair.corla.model.Choice;
+import us.freeandfair.corla.model.Contest;
+import us.freeandfair.corla.model.County;
+import us.freeandfair.corla.model.CountyContestComparisonAudit;
+import us.freeandfair.corla.model.CountyContestResult;
+import us.freeandfair.corla.model.CountyDashboard;
+import us.freeandfair.corla.persistence.Persistence;
+import us.freeandfair.corla.query.CountyContestComparisonAuditQueries;
+import us.freeandfair.corla.query.CountyContestResultQueries;
+
+/**
+ * The aggregator of contest results and audits across counties. Contests
+ * are stored per county; a contest that appears in several counties is
+ * identified by its name and its set of choice names, so that distinct
+ * county contests which merely share a name (such as commissioner district
+ * races) are combined only if their choices also match. Callers should only
+ * ask for contest-wide aggregates of contests that the Department of State
+ * has designated as statewide. The aggregator keeps a tally of each county's
+ * contests, which is reloaded only when a stamp computed from the versions
+ * of the county's contest results, comparison audits and dashboard
+ * changes, and combines the tallies of all counties into contest-wide
+ * aggregates with a parallel reduction, only when some county's tallies
+ * have changed. Aggregates are read from a snapshot, which a caller takes
+ * once (for example, once per response) and then reads as often as it 
+ * likes; taking a snapshot costs two small grouped queries, rather than a 
+ * scan of every county.
+ *
+ * The methods of this class must be called within a transaction.
+ *
+ * @version 1.0.0
+ */
+public final class ContestAggregator {
+  /**
+   * The tallies of each county, by county ID.
+   */
+  private static final Map<Long, CountyTallies> COUNTIES = new HashMap<>();
+
+  /**
+   * The aggregates of single county contests, by contest ID. The map is
+   * replaced, never modified, so snapshots can share it.
+   */
+  private static Map<Long, ContestAggregate> county_contests = Collections.emptyMap();
+
+  /**
+   * The contest-wide aggregates, by contest key, or null if they must be
+   * recomputed. The map is replaced, never modified, so snapshots can 
+   * share it.
+   */
+  private static Map<List<String>, ContestAggregate> statewide_contests;
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private ContestAggregator() {
+    // empty
+  }
+
+  /**
+   * Takes a snapshot of the current aggregates, reloading the tallies of
+   * any county that has changed since the last snapshot.
+   *
+   * @return the snapshot.
+   * @exception PersistenceException if the database cannot be read.
+   */
+  public static synchronized Snapshot snapshot() {
+    refresh();
+    if (statewide_contests == null) {
+      statewide_contests = Collections.unmodifiableMap(reduce(COUNTIES.values()));
+    }
+    return new Snapshot(county_contests, statewide_contests);
+  }
+
+  /**
+   * Invalidates all cached tallies and aggregates.
+   */
+  public static synchronized void invalidateAll() {
+    COUNTIES.clear();
+    county_contests = Collections.emptyMap();
+    statewide_contests = null;
+  }
+
+  /**
+   * Reloads the tallies of every county whose stamp has changed, and
+   * forgets the tallies of counties that no longer have contest results.
+   *
+   * @exception PersistenceException if the database cannot be read.
+   */
+  private static void refresh() {
+    final Map<Long, List<Long>> result_stamps = CountyContestResultQueries.changeStamps();
+    final Map<Long, List<Long>> audit_stamps =
+        CountyContestComparisonAuditQueries.changeStamps();
+    if (result_stamps == null || audit_stamps == null) {
+      throw new PersistenceException("could not read contest aggregate stamps");
+    }
+
+    boolean changed = COUNTIES.keySet().retainAll(result_stamps.keySet());
+    for (final Map.Entry<Long, List<Long>> entry : result_stamps.entrySet()) {
+      final List<Long> stamp = new ArrayList<>(entry.getValue());
+      stamp.addAll(audit_stamps.getOrDefault(entry.getKey(), Collections.emptyList()));
+      final CountyTallies cached = COUNTIES.get(entry.getKey());
+      if (cached == null || !cached.my_stamp.equals(stamp)) {
+        COUNTIES.put(entry.getKey(), load(entry.getKey(), stamp));
+        changed = true;
+      }
+    }
+
+    if (changed) {
+      final Map<Long, ContestAggregate> contests = new HashMap<>();
+      for (final CountyTallies county : COUNTIES.values()) {
+        for (final Map.Entry<Long, Tally> entry : county.my_tallies.entrySet()) {
+          contests.put(entry.getKey(), new ContestAggregate(entry.getValue()));
+        }
+      }
+      county_contests = Collections.unmodifiableMap(contests);
+      statewide_contests = null;
+    }
+  }
+
+  /**
+   * Loads the tallies of a county.
+   *
+   * @param the_county_id The county ID.
+   * @param the_stamp The county's current stamp.
+   * @return the tallies.
+   * @exception PersistenceException if the database cannot be read.
+   */
+  private static CountyTallies load(final Long the_county_id, final List<Long> the_stamp) {
+    final County county = Persistence.getByID(the_county_id, County.class);
+    final CountyDashboard cdb = Persistence.getByID(the_county_id, CountyDashboard.class);
+    final Set<CountyContestResult> results = CountyContestResultQueries.forCounty(county);
+    if (results == null) {
+      throw new PersistenceException("could not read contest results for county " +
+                                     the_county_id);
+    }
+
+    final Map<Long, CountyContestComparisonAudit> audits = new HashMap<>();
+    if (cdb != null) {
+      for (final CountyContestComparisonAudit ccca : cdb.comparisonAudits()) {
+        audits.put(ccca.contest().id(), ccca);
+      }
+    }
+    final Map<Long, Tally> tallies = new HashMap<>();
+    for (final CountyContestResult ccr : results) {
+      tallies.put(ccr.contest().id(),
+                  new Tally(ccr, audits.get(ccr.contest().id()), cdb));
+    }
+    return new CountyTallies(the_stamp, tallies);
+  }
+
+  /**
+   * Combines the tallies of counties into contest-wide aggregates.
+   *
+   * @param the_counties The tallies of the counties.
+   * @return the aggregates, by contest key.
+   */
+  static Map<List<String>, ContestAggregate> 
+      reduce(final Collection<CountyTallies> the_counties) {
+    final Collector<Tally, Tally, ContestAggregate> combine =
+        Collector.of(Tally::new, Tally::add, Tally::add, ContestAggregate::new);
+    return the_counties.parallelStream().
+        flatMap(the_county -> the_county.my_tallies.values().stream()).
+        collect(Collectors.groupingBy(the_tally -> the_tally.my_key, combine));
+  }
+
+  /**
+   * Gets the key that identifies a contest across counties: its name,
+   * followed by its choice names in sorted order.
+   *
+   * @param the_name The contest name.
+   * @param the_choices The choice names.
+   * @return the key.
+   */
+  static List<String> key(final String the_name, final Collection<String> the_choices) {
+    final List<String> result = new ArrayList<>(the_choices);
+    Collections.sort(result);
+    result.add(0, the_name);
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Gets the key that identifies a contest across counties.
+   *
+   * @param the_contest The contest.
+   * @return the key.
+   */
+  static List<String> key(final Contest the_contest) {
+    final List<String> choices = new ArrayList<>();
+    for (final Choice choice : the_contest.choices()) {
+      choices.add(choice.name());
+    }
+    return key(the_contest.name(), choices);
+  }
+
+  /**
+   * The aggregates at one point in time.
+   */
+  public static final class Snapshot {
+    /**
+     * The aggregates of single county contests, by contest ID.
+     */
+    private final Map<Long, ContestAggregate> my_county_contests;
+
+    /**
+     * The contest-wide aggregates, by contest key.
+     */
+    private final Map<List<String>, ContestAggregate> my_statewide_contests;
+
+    /**
+     * Constructs a new snapshot.
+     *
+     * @param the_county_contests The aggregates of single county contests.
+     * @param the_statewide_contests The contest-wide aggregates.
+     */
+    Snapshot(final Map<Long, ContestAggregate> the_county_contests,
+             final Map<List<String>, ContestAggregate> the_statewide_contests) {
+      my_county_contests = the_county_contests;
+      my_statewide_contests = the_statewide_contests;
+    }
+
+    /**
+     * Gets the aggregate for a contest in a single county.
+     *
+     * @param the_contest_id The contest ID.
+     * @return the aggregate, or null if there are no results for the contest.
+     */
+    public ContestAggregate forContest(final Long the_contest_id) {
+      return my_county_contests.get(the_contest_id);
+    }
+
+    /**
+     * Gets the aggregate for a contest across all the counties in which a
+     * contest with the same name and choices appears.
+     *
+     * @param the_contest The contest, in any of its counties.
+     * @return the aggregate, or null if there are no results for the contest.
+     */
+    public ContestAggregate statewide(final Contest the_contest) {
+      return my_statewide_contests.get(key(the_contest));
+    }
+  }
+
+  /**
+   * The tallies of one county's contests, with the stamp from which they
+   * were loaded.
+   */
+  static class CountyTallies {
+    /**
+     * The stamp.
+     */
+    private final List<Long> my_stamp;
+
+    /**
+     * The tallies, by contest ID.
+     */
+    private final Map<Long, Tally> my_tallies;
+
+    /**
+     * Constructs new county tallies.
+     *
+     * @param the_stamp The stamp.
+     * @param the_tallies The tallies, by contest ID.
+     */
+    CountyTallies(final List<Long> the_stamp, final Map<Long, Tally> the_tallies) {
+      my_stamp = the_stamp;
+      my_tallies = the_tallies;
+    }
+  }
+
+  /**
+   * A mutable tally of a contest's results and audit state, in one or more
+   * counties. Tallies are copied out of persistent entities before they
+   * are combined, so they can be combined on any thread.
+   */
+  @SuppressWarnings("PMD.TooManyFields")
+  static class Tally {
+    /**
+     * The number of discrepancy types.
+     */
+    private static final int DISCREPANCY_TYPES = 5;
+
+    /**
+     * The lowest discrepancy type.
+     */
+    private static final int MIN_DISCREPANCY = -2;
+
+    /**
+     * The contest name.
+     */
+    String my_name;
+
+    /**
+     * The contest key.
+     */
+    List<String> my_key;
+
+    /**
+     * The IDs of the counties tallied.
+     */
+    final Set<Long> my_counties = new HashSet<>();
+
+    /**
+     * The number of winners allowed.
+     */
+    int my_winners_allowed;
+
+    /**
+     * The vote totals, by choice.
+     */
+    final Map<String, Long> my_votes = new HashMap<>();
+
+    /**
+     * The number of ballots cast in the counties tallied.
+     */
+    long my_county_ballot_count;
+
+    /**
+     * The number of ballots cast that contain the contest.
+     */
+    long my_contest_ballot_count;
+
+    /**
+     * The discrepancy counts, indexed by discrepancy type + 2.
+     */
+    final int[] my_discrepancy_counts = new int[DISCREPANCY_TYPES];
+
+    /**
+     * The number of samples audited.
+     */
+    int my_audited_sample_count;
+
+    /**
+     * The smallest risk limit of any county audit, or null if none.
+     */
+    BigDecimal my_risk_limit;
+
+    /**
+     * The largest error inflation factor of any county audit, or null if none.
+     */
+    BigDecimal my_gamma;
+
+    /**
+     * The largest optimistic number of ballots left to audit, or null.
+     */
+    Integer my_optimistic_remaining;
+
+    /**
+     * The largest estimated number of ballots left to audit, or null.
+     */
+    Integer my_estimated_remaining;
+
+    /**
+     * The largest measured risk, or null.
+     */
+    BigDecimal my_measured_risk;
+
+    /**
+     * Constructs an empty tally.
+     */
+    Tally() {
+      // empty
+    }
+
+    /**
+     * Constructs a tally of a contest in one county.
+     *
+     * @param the_result The contest result.
+     * @param the_audit The comparison audit of the contest, or null if none.
+     * @param the_dashboard The county dashboard.
+     */
+    Tally(final CountyContestResult the_result,
+          final CountyContestComparisonAudit the_audit,
+          final CountyDashboard the_dashboard) {
+      my_name = the_result.contest().name();
+      my_key = key(the_result.contest());
+      my_counties.add(the_result.county().id());
+      my_winners_allowed = the_result.winnersAllowed();
+      for (final Map.Entry<String, Integer> entry : the_result.voteTotals().entrySet()) {
+        my_votes.put(entry.getKey(), entry.getValue().longValue());
+      }
+      my_county_ballot_count = the_result.countyBallotCount();
+      my_contest_ballot_count = the_result.contestBallotCount();
+      if (the_audit != null) {
+        for (int i = 0; i < DISCREPANCY_TYPES; i++) {
+          my_discrepancy_counts[i] = the_audit.discrepancyCount(i + MIN_DISCREPANCY);
+        }
+        my_audited_sample_count = the_audit.auditedSampleCount();
+        my_risk_limit = the_audit.riskLimit();
+        my_gamma = the_audit.gamma();
+        final int prefix = the_dashboard.auditedPrefixLength();
+        my_optimistic_remaining = Math.max(0, the_audit.optimisticSamplesToAudit() - prefix);
+        my_estimated_remaining = Math.max(0, the_audit.estimatedSamplesToAudit() - prefix);
+        my_measured_risk = the_audit.measuredRisk();
+      }
+    }
+
+    /**
+     * Adds another tally of the same contest to this one.
+     *
+     * @param the_other The other tally.
+     * @return this tally.
+     */
+    Tally add(final Tally the_other) {
+      if (my_name == null) {
+        my_name = the_other.my_name;
+        my_key = the_other.my_key;
+      }
+      my_counties.addAll(the_other.my_counties);
+      my_winners_allowed = Math.max(my_winners_allowed, the_other.my_winners_allowed);
+      for (final Map.Entry<String, Long> entry : the_other.my_votes.entrySet()) {
+        my_votes.merge(entry.getKey(), entry.getValue(), Long::sum);
+      }
+      my_county_ballot_count = my_county_ballot_count + the_other.my_county_ballot_count;
+      my_contest_ballot_count = my_contest_ballot_count + the_other.my_contest_ballot_count;
+      for (int i = 0; i < DISCREPANCY_TYPES; i++) {
+        my_discrepancy_counts[i] = my_discrepancy_counts[i] +
+                                   the_other.my_discrepancy_counts[i];
+      }
+      my_audited_sample_count = my_audited_sample_count + the_other.my_audited_sample_count;
+      my_risk_limit = combine(my_risk_limit, the_other.my_risk_limit, true);
+      my_gamma = combine(my_gamma, the_other.my_gamma, false);
+      my_optimistic_remaining =
+          combine(my_optimistic_remaining, the_other.my_optimistic_remaining, false);
+      my_estimated_remaining =
+          combine(my_estimated_remaining, the_other.my_estimated_remaining, false);
+      my_measured_risk = combine(my_measured_risk, the_other.my_measured_risk, false);
+      return this;
+    }
+
+    /**
+     * Combines two optional values.
+     *
+     * @param the_first The first value, or null.
+     * @param the_second The second value, or null.
+     * @param the_min true to take the smaller value, false to take the larger.
+     * @return the smaller or larger value, the non-null value if only one is
+     * non-null, or null if both are null.
+     */
+    private static <T extends Comparable<T>> T combine(final T the_first,
+                                                       final T the_second,
+                                                       final boolean the_min) {
+      final T result;
+      if (the_first == null) {
+        result = the_second;
+      } else if (the_second == null) {
+        result = the_first;
+      } else if (the_first.compareTo(the_second) < 0 == the_min) {
+        result = the_first;
+      } else {
+        result = the_second;
+      }
+      return result;
+    }
+  }
+}
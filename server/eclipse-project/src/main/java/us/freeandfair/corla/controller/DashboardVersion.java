@@ -0,0 +1,87 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.controller;
+
+import java.util.List;
+
+import javax.persistence.PersistenceException;
+
+import us.freeandfair.corla.query.DashboardQueries;
+
+/**
+ * Versions of the state shown on the dashboards. A version is derived from
+ * the change stamps of the committed entities a dashboard is built from, so
+ * it changes whenever that state changes, whichever server instance changed
+ * it. A version read in the same transaction as the state a dashboard is
+ * built from is consistent with that state; the dashboard is up to date for
+ * as long as the version does not change.
+ *
+ * @version 1.0.0
+ */
+public final class DashboardVersion {
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private DashboardVersion() {
+    // empty
+  }
+
+  /**
+   * @return the current version of the Department of State dashboard.
+   * @exception PersistenceException if the version cannot be read.
+   */
+  public static String dos() {
+    return version(DashboardQueries.dosStamp());
+  }
+
+  /**
+   * Gets the current version of a county's dashboard.
+   *
+   * @param the_county_id The county ID.
+   * @return the version.
+   * @exception PersistenceException if the version cannot be read.
+   */
+  public static String county(final Long the_county_id) {
+    return version(DashboardQueries.countyStamp(the_county_id));
+  }
+
+  /**
+   * Gets an HTTP entity tag for the specified version.
+   *
+   * @param the_prefix A prefix identifying the kind of entity.
+   * @param the_version The version.
+   * @return the entity tag, including its quotes.
+   */
+  public static String entityTag(final String the_prefix, final String the_version) {
+    return "\"" + the_prefix + "-" + the_version + "\"";
+  }
+
+  /**
+   * Turns a change stamp into a version.
+   *
+   * @param the_stamp The change stamp.
+   * @return the version.
+   * @exception PersistenceException if there is no change stamp.
+   */
+  private static String version(final List<Long> the_stamp) {
+    if (the_stamp == null) {
+      throw new PersistenceException("could not read dashboard version");
+    }
+    final StringBuilder result = new StringBuilder();
+    for (final Long element : the_stamp) {
+      if (result.length() > 0) {
+        result.append('.');
+      }
+      result.append(element);
+    }
+    return result.toString();
+  }
+}
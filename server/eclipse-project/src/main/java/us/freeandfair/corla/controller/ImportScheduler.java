@@ -0,0 +1,381 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.controller;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import us.freeandfair.corla.Main;
+
+/**
+ * A scheduler for per-county import jobs, which runs them on a fixed-size
+ * pool of worker threads. Each county can have at most one job queued or
+ * running at a time, and jobs are started in the order they were submitted,
+ * so no county can delay another by submitting repeatedly; the size of the
+ * pool bounds the number of database connections imports can use at once.
+ *
+ * A job can be cancelled whether it is queued or running. A cancelled job
+ * that is still queued is run anyway, so that it can clean up after itself;
+ * a cancelled job that is running has its worker thread interrupted. In
+ * either case, the job can find out that it was cancelled by calling
+ * isCurrentJobCancelled().
+ *
+ * @version 1.0.0
+ */
+@SuppressWarnings("PMD.DoNotUseThreads")
+public class ImportScheduler {
+  /**
+   * The job running on the current thread, if any.
+   */
+  private static final ThreadLocal<Job> CURRENT_JOB = new ThreadLocal<Job>();
+
+  /**
+   * The jobs that are queued or running, by county ID, in submission order.
+   */
+  private final Map<Long, Job> my_jobs = new LinkedHashMap<Long, Job>();
+
+  /**
+   * The executor that runs the jobs.
+   */
+  private final ThreadPoolExecutor my_executor;
+
+  /**
+   * The number of worker threads.
+   */
+  private final int my_workers;
+
+  /**
+   * Constructs a new scheduler.
+   *
+   * @param the_name The name of the scheduler, used to name its threads.
+   * @param the_workers The number of worker threads; values less than 1
+   * are treated as 1.
+   */
+  public ImportScheduler(final String the_name, final int the_workers) {
+    my_workers = Math.max(1, the_workers);
+    my_executor =
+        new ThreadPoolExecutor(my_workers, my_workers, 0L, TimeUnit.MILLISECONDS,
+                               new LinkedBlockingQueue<Runnable>(),
+                               new WorkerThreadFactory(the_name));
+  }
+
+  /**
+   * @return true if the current thread is running a job that has been
+   * cancelled, false otherwise.
+   */
+  public static boolean isCurrentJobCancelled() {
+    final Job job = CURRENT_JOB.get();
+    return job != null && job.isCancelled();
+  }
+
+  /**
+   * Submits a job for the specified county.
+   *
+   * @param the_county_id The county ID.
+   * @param the_job The job.
+   * @return true if the job was queued, false if the county already has a
+   * job queued or running.
+   */
+  public synchronized boolean submit(final Long the_county_id, final Runnable the_job) {
+    boolean result = false;
+    if (!my_jobs.containsKey(the_county_id)) {
+      final Job job = new Job(the_county_id, the_job);
+      my_jobs.put(the_county_id, job);
+      my_executor.execute(job);
+      result = true;
+      Main.LOGGER.info("queued import for county " + the_county_id + ", " +
+                       queueDepth() + " imports waiting");
+    }
+    return result;
+  }
+
+  /**
+   * Checks whether the specified county has a job queued or running.
+   *
+   * @param the_county_id The county ID.
+   * @return true if it does, false otherwise.
+   */
+  public synchronized boolean isScheduled(final Long the_county_id) {
+    return my_jobs.containsKey(the_county_id);
+  }
+
+  /**
+   * Cancels the job for the specified county.
+   *
+   * @param the_county_id The county ID.
+   * @return true if the county had a job queued or running, false otherwise.
+   */
+  public synchronized boolean cancel(final Long the_county_id) {
+    final Job job = my_jobs.get(the_county_id);
+    if (job != null) {
+      Main.LOGGER.info("cancelling import for county " + the_county_id);
+      job.cancel();
+    }
+    return job != null;
+  }
+
+  /**
+   * @return the number of worker threads.
+   */
+  public int workers() {
+    return my_workers;
+  }
+
+  /**
+   * @return the number of jobs waiting for a worker.
+   */
+  public synchronized int queueDepth() {
+    int result = 0;
+    for (final Job job : my_jobs.values()) {
+      if (job.status().started() == null) {
+        result = result + 1;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the status of every job that is queued or running, in
+   * submission order.
+   */
+  public synchronized List<JobStatus> jobs() {
+    final List<JobStatus> result = new ArrayList<>();
+    for (final Job job : my_jobs.values()) {
+      result.add(job.status());
+    }
+    return result;
+  }
+
+  /**
+   * Removes a finished job from the set of jobs, and detaches it from its
+   * worker thread so that a late cancellation cannot interrupt the worker's
+   * next job.
+   *
+   * @param the_job The job.
+   */
+  synchronized void finished(final Job the_job) {
+    the_job.detach();
+    my_jobs.remove(the_job.countyID());
+    // clear any interrupt that arrived after the job stopped looking
+    Thread.interrupted();
+  }
+
+  /**
+   * A snapshot of the status of a job.
+   */
+  public static class JobStatus {
+    /**
+     * The county ID.
+     */
+    private final Long my_county_id;
+
+    /**
+     * The time the job was submitted.
+     */
+    private final Instant my_submitted;
+
+    /**
+     * The time the job started, or null if it is still queued.
+     */
+    private final Instant my_started;
+
+    /**
+     * Whether the job has been cancelled.
+     */
+    private final boolean my_cancelled;
+
+    /**
+     * Constructs a new job status.
+     *
+     * @param the_county_id The county ID.
+     * @param the_submitted The time the job was submitted.
+     * @param the_started The time the job started, or null.
+     * @param the_cancelled Whether the job has been cancelled.
+     */
+    JobStatus(final Long the_county_id, final Instant the_submitted,
+              final Instant the_started, final boolean the_cancelled) {
+      my_county_id = the_county_id;
+      my_submitted = the_submitted;
+      my_started = the_started;
+      my_cancelled = the_cancelled;
+    }
+
+    /**
+     * @return the county ID.
+     */
+    public Long countyID() {
+      return my_county_id;
+    }
+
+    /**
+     * @return the time the job was submitted.
+     */
+    public Instant submitted() {
+      return my_submitted;
+    }
+
+    /**
+     * @return the time the job started, or null if it is still queued.
+     */
+    public Instant started() {
+      return my_started;
+    }
+
+    /**
+     * @return true if the job has been cancelled, false otherwise.
+     */
+    public boolean cancelled() {
+      return my_cancelled;
+    }
+  }
+
+  /**
+   * A queued or running job.
+   */
+  private class Job implements Runnable {
+    /**
+     * The county ID.
+     */
+    private final Long my_county_id;
+
+    /**
+     * The work to do.
+     */
+    private final Runnable my_work;
+
+    /**
+     * The time the job was submitted.
+     */
+    private final Instant my_submitted = Instant.now();
+
+    /**
+     * The time the job started.
+     */
+    private Instant my_started;
+
+    /**
+     * The thread running the job.
+     */
+    private Thread my_thread;
+
+    /**
+     * Whether the job has been cancelled.
+     */
+    private boolean my_cancelled;
+
+    /**
+     * Constructs a new job.
+     *
+     * @param the_county_id The county ID.
+     * @param the_work The work to do.
+     */
+    Job(final Long the_county_id, final Runnable the_work) {
+      my_county_id = the_county_id;
+      my_work = the_work;
+    }
+
+    /**
+     * Runs the job on the current worker thread.
+     */
+    @Override
+    public void run() {
+      synchronized (this) {
+        my_started = Instant.now();
+        my_thread = Thread.currentThread();
+      }
+      CURRENT_JOB.set(this);
+      try {
+        my_work.run();
+      } finally {
+        CURRENT_JOB.remove();
+        finished(this);
+      }
+    }
+
+    /**
+     * @return the county ID.
+     */
+    Long countyID() {
+      return my_county_id;
+    }
+
+    /**
+     * @return true if the job has been cancelled, false otherwise.
+     */
+    synchronized boolean isCancelled() {
+      return my_cancelled;
+    }
+
+    /**
+     * Cancels the job, interrupting it if it is running.
+     */
+    synchronized void cancel() {
+      my_cancelled = true;
+      if (my_thread != null) {
+        my_thread.interrupt();
+      }
+    }
+
+    /**
+     * Detaches the job from its thread.
+     */
+    synchronized void detach() {
+      my_thread = null;
+    }
+
+    /**
+     * @return a snapshot of the job's status.
+     */
+    synchronized JobStatus status() {
+      return new JobStatus(my_county_id, my_submitted, my_started, my_cancelled);
+    }
+  }
+
+  /**
+   * The factory for worker threads, which gives them recognizable names.
+   */
+  private static class WorkerThreadFactory implements ThreadFactory {
+    /**
+     * The prefix for thread names.
+     */
+    private final String my_prefix;
+
+    /**
+     * The number of threads created so far.
+     */
+    private final AtomicInteger my_count = new AtomicInteger();
+
+    /**
+     * Constructs a new factory.
+     *
+     * @param the_name The name of the scheduler.
+     */
+    WorkerThreadFactory(final String the_name) {
+      my_prefix = the_name + "-worker-";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Thread newThread(final Runnable the_runnable) {
+      return new Thread(the_runnable, my_prefix + my_count.incrementAndGet());
+    }
+  }
+}
@@ -0,0 +1,369 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.persistence.PersistenceException;
+
+import us.freeandfair.corla.Main;
+import us.freeandfair.corla.model.LogEntry;
+import us.freeandfair.corla.persistence.Persistence;
+import us.freeandfair.corla.query.LogEntryQueries;
+
+/**
+ * The appender for the hash-chained audit log. A single thread owns the
+ * tail of the chain: requests hand it their log entries through a queue,
+ * and it chains them, in the order they were submitted, and inserts them
+ * in batches, one transaction per batch. Each submission is acknowledged
+ * once the transaction that inserted its entries has committed, so a
+ * request can wait for its entries to be durable without contending with
+ * other requests for the tail of the log.
+ *
+ * If a batch fails, each of its submissions is retried in a transaction of
+ * its own, so that only a submission that cannot be inserted by itself is
+ * failed. The tail is kept in memory as the ID of the last entry inserted,
+ * and is reloaded from the database (as the entry with the largest ID)
+ * after a failed transaction, so a failure never breaks the chain. No
+ * failure, and no interruption, stops the appender thread.
+ *
+ * The appender assumes that it is the only writer of the log, that is, that
+ * a single server instance uses the database. Another instance would keep
+ * its own tail, and the two chains would fork. Reloading the tail under a
+ * database lock would not be enough to prevent that: entry IDs come from a
+ * pooled sequence, so the entry with the largest ID is not necessarily the
+ * last one inserted when several instances allocate IDs.
+ *
+ * @version 1.0.0
+ */
+@SuppressWarnings("PMD.DoNotUseThreads")
+public final class LogAppender {
+  /**
+   * The maximum number of submissions inserted in one transaction.
+   */
+  public static final int BATCH_SIZE = 100;
+
+  /**
+   * The appender used by the server.
+   */
+  private static final LogAppender APPENDER = new LogAppender(new PersistenceStore());
+
+  static {
+    final Thread appender = new Thread(APPENDER::run, "log-appender");
+    appender.setDaemon(true);
+    appender.start();
+  }
+
+  /**
+   * The submissions waiting to be inserted.
+   */
+  private final BlockingQueue<Submission> my_queue = new LinkedBlockingQueue<>();
+
+  /**
+   * The store into which entries are inserted.
+   */
+  private final Store my_store;
+
+  /**
+   * The ID of the last entry inserted, or null if it must be read from
+   * the store. This is only used by the appender thread, and is only
+   * the tail of the log if this is the only server instance.
+   */
+  private Long my_tail_id;
+
+  /**
+   * Constructs a new appender.
+   *
+   * @param the_store The store into which entries are inserted.
+   */
+  LogAppender(final Store the_store) {
+    my_store = the_store;
+  }
+
+  /**
+   * Submits log entries to be chained and inserted. The entries need only
+   * have result codes, information and timestamps.
+   *
+   * @param the_entries The entries, in order.
+   * @param the_authentication_data The authentication data for the entries.
+   * @param the_client_host The client host for the entries.
+   * @return a future that completes when the entries have been committed,
+   * or completes exceptionally if they could not be.
+   */
+  public static CompletableFuture<Void> append(final List<LogEntry> the_entries,
+                                               final String the_authentication_data,
+                                               final String the_client_host) {
+    final Submission submission =
+        new Submission(the_entries, the_authentication_data, the_client_host);
+    APPENDER.my_queue.add(submission);
+    return submission.acknowledgement();
+  }
+
+  /**
+   * Inserts submissions, in batches, for as long as the server runs.
+   */
+  // any failure must fail the batch, rather than stop the appender thread
+  @SuppressWarnings({"PMD.AvoidCatchingThrowable", "PMD.AvoidCatchingGenericException"})
+  private void run() {
+    final List<Submission> batch = new ArrayList<>();
+    while (true) {
+      try {
+        batch.add(my_queue.take());
+        my_queue.drainTo(batch, BATCH_SIZE - 1);
+        insert(batch);
+      } catch (final InterruptedException e) {
+        // nobody is entitled to stop the appender, so we carry on
+        Main.LOGGER.warn("log appender interrupted, continuing");
+      } catch (final Throwable e) {
+        Main.LOGGER.error("log appender failure: " + e);
+        for (final Submission submission : batch) {
+          submission.acknowledgement().completeExceptionally(e);
+        }
+      }
+      batch.clear();
+    }
+  }
+
+  /**
+   * Chains and inserts a batch of submissions, and acknowledges them. The
+   * batch is inserted in one transaction if possible; otherwise, each of
+   * its submissions is inserted in a transaction of its own, and only
+   * those that fail by themselves are failed.
+   *
+   * @param the_batch The batch.
+   */
+  void insert(final List<Submission> the_batch) {
+    final Throwable failure = insertTogether(the_batch);
+    if (failure == null) {
+      return;
+    }
+    Main.LOGGER.error("could not insert " + the_batch.size() +
+                      " log submission(s) together: " + failure);
+    if (the_batch.size() == 1) {
+      the_batch.get(0).acknowledgement().completeExceptionally(failure);
+    } else {
+      for (final Submission submission : the_batch) {
+        final Throwable single_failure =
+            insertTogether(Collections.singletonList(submission));
+        if (single_failure != null) {
+          Main.LOGGER.error("could not insert log submission: " + single_failure);
+          submission.acknowledgement().completeExceptionally(single_failure);
+        }
+      }
+    }
+  }
+
+  /**
+   * Chains and inserts submissions in one transaction, and acknowledges
+   * them if the transaction commits. If it does not, the tail is forgotten,
+   * so that it is reloaded from the store by the next transaction.
+   *
+   * @param the_submissions The submissions.
+   * @return null if the submissions were inserted, or the failure if they
+   * were not.
+   */
+  // any failure must fail the transaction, rather than stop the appender thread
+  @SuppressWarnings({"PMD.AvoidCatchingThrowable", "PMD.AvoidCatchingGenericException"})
+  private Throwable insertTogether(final List<Submission> the_submissions) {
+    Throwable result = null;
+    try {
+      my_store.begin();
+      LogEntry previous = tail();
+      for (final Submission submission : the_submissions) {
+        for (final LogEntry entry : submission.my_entries) {
+          final LogEntry chained =
+              new LogEntry(entry.resultCode(), entry.information(),
+                           submission.my_authentication_data, submission.my_client_host,
+                           entry.timestamp(), previous);
+          my_store.save(chained);
+          previous = chained;
+        }
+      }
+      my_store.commit();
+      if (previous != null) {
+        my_tail_id = previous.id();
+      }
+      for (final Submission submission : the_submissions) {
+        submission.acknowledgement().complete(null);
+      }
+    } catch (final Throwable e) {
+      result = e;
+      my_tail_id = null;
+      try {
+        my_store.rollback();
+      } catch (final PersistenceException | IllegalStateException ex) {
+        Main.LOGGER.error("could not roll back log transaction: " + ex.getMessage());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the last entry in the log, or null if the log is empty.
+   */
+  private LogEntry tail() {
+    final LogEntry result;
+    if (my_tail_id == null) {
+      result = my_store.last();
+    } else {
+      result = my_store.get(my_tail_id);
+    }
+    return result;
+  }
+
+  /**
+   * The store into which log entries are inserted.
+   */
+  interface Store {
+    /**
+     * Begins a transaction.
+     */
+    void begin();
+
+    /**
+     * @return the entry with the largest ID, or null if there are none.
+     */
+    LogEntry last();
+
+    /**
+     * Gets an entry.
+     *
+     * @param the_id The entry ID.
+     * @return the entry, or null if there is none.
+     */
+    LogEntry get(Long the_id);
+
+    /**
+     * Saves an entry, assigning its ID.
+     *
+     * @param the_entry The entry.
+     */
+    void save(LogEntry the_entry);
+
+    /**
+     * Commits the transaction.
+     */
+    void commit();
+
+    /**
+     * Rolls back the transaction, if one is running.
+     */
+    void rollback();
+  }
+
+  /**
+   * The store that inserts log entries into the database.
+   */
+  private static class PersistenceStore implements Store {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void begin() {
+      if (!Persistence.beginTransaction()) {
+        throw new PersistenceException("could not begin log transaction");
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LogEntry last() {
+      return LogEntryQueries.last();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LogEntry get(final Long the_id) {
+      return Persistence.getByID(the_id, LogEntry.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save(final LogEntry the_entry) {
+      Persistence.save(the_entry);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void commit() {
+      Persistence.commitTransaction();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rollback() {
+      if (Persistence.isSessionOpen() && Persistence.canTransactionRollback()) {
+        Persistence.rollbackTransaction();
+      }
+    }
+  }
+
+  /**
+   * The log entries submitted by one request.
+   */
+  static class Submission {
+    /**
+     * The entries.
+     */
+    private final List<LogEntry> my_entries;
+
+    /**
+     * The authentication data.
+     */
+    private final String my_authentication_data;
+
+    /**
+     * The client host.
+     */
+    private final String my_client_host;
+
+    /**
+     * The acknowledgement.
+     */
+    private final CompletableFuture<Void> my_acknowledgement = new CompletableFuture<>();
+
+    /**
+     * Constructs a new submission.
+     *
+     * @param the_entries The entries.
+     * @param the_authentication_data The authentication data.
+     * @param the_client_host The client host.
+     */
+    Submission(final List<LogEntry> the_entries, final String the_authentication_data,
+               final String the_client_host) {
+      my_entries = new ArrayList<>(the_entries);
+      my_authentication_data = the_authentication_data;
+      my_client_host = the_client_host;
+    }
+
+    /**
+     * @return the acknowledgement.
+     */
+    CompletableFuture<Void> acknowledgement() {
+      return my_acknowledgement;
+    }
+  }
+}
@@ -72,8 +72,7 @@ public final class HashChecker {
         do {
           bytes = dis.read(buffer);
         } while (bytes != -1);
-        final BigInteger bi = new BigInteger(1, md.digest());
-        result = String.format("%0" + (md.digest().length << 1) + "X", bi);
+        result = hexString(md.digest());
       } finally {
         dis.close();
       }
@@ -90,4 +89,16 @@ public final class HashChecker {
     
     return result;
   }
+  
+  /**
+   * Encodes a digest as a hexadecimal string, in the same form as the 
+   * hashes computed by hashFile().
+   * 
+   * @param the_digest The digest.
+   * @return the digest, encoded as an upper-case hexadecimal string.
+   */
+  public static String hexString(final byte[] the_digest) {
+    final BigInteger bi = new BigInteger(1, the_digest);
+    return String.format("%0" + (the_digest.length << 1) + "X", bi);
+  }
 }
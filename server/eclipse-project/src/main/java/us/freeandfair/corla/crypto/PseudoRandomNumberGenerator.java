@@ -11,12 +11,16 @@
 
 package us.freeandfair.corla.crypto;
 
-import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * A pseudo-random number generator based on Philip Stark's pseudo-random number
@@ -38,14 +42,44 @@ public class PseudoRandomNumberGenerator {
   public static final int MINIMUM_SEED_LENGTH = 20;
   
   /**
-   * The message digest we will use for generating hashes.
+   * The initial capacity of the array of generated random numbers.
    */
-  private MessageDigest my_sha256_digest;
+  private static final int INITIAL_CAPACITY = 64;
+  
+  /**
+   * The number of draws at or above which an extension of the list is 
+   * computed in parallel.
+   */
+  private static final int PARALLEL_THRESHOLD = 8192;
+  
+  /**
+   * The number of draws computed sequentially by a single parallel task.
+   */
+  private static final int PARALLEL_CHUNK_SIZE = 2048;
+  
+  /**
+   * The drawer we will use for generating hashes and reducing them to
+   * the requested range.
+   */
+  private final Drawer my_drawer;
+
+  /**
+   * The random numbers generated so far; only the first my_size elements
+   * of this array are meaningful.
+   */
+  private int[] my_random_numbers;
+  
+  /**
+   * The number of random numbers generated so far.
+   */
+  //@ private invariant 0 <= my_size && my_size <= my_random_numbers.length;
+  private int my_size;
 
   /**
-   * The random numbers generated so far.
+   * The numbers generated so far, as offsets from the minimum; this is only 
+   * used (and only non-null) when generating without replacement.
    */
-  private final List<Integer> my_random_numbers;
+  private final BitSet my_drawn;
 
   /**
    * The current number to use for generation.
@@ -103,18 +137,19 @@ public class PseudoRandomNumberGenerator {
                                      final int the_maximum) {
     // @trace randomness.seed side condition
     assert MINIMUM_SEED_LENGTH <= the_seed.length();
-    try {
-      my_sha256_digest = MessageDigest.getInstance("SHA-256");
-    } catch (final NoSuchAlgorithmException e) {
-      assert false;
-    }
-    my_random_numbers = new LinkedList<Integer>();
+    my_random_numbers = new int[INITIAL_CAPACITY];
     my_with_replacement = the_with_replacement;
     my_seed = the_seed;
     assert the_minimum < the_maximum;
     my_minimum = the_minimum;
     my_maximum = the_maximum;
     my_maximum_index = my_maximum - my_minimum + 1;
+    my_drawer = new Drawer(my_seed, my_minimum, my_maximum);
+    if (my_with_replacement) {
+      my_drawn = null;
+    } else {
+      my_drawn = new BitSet(my_maximum_index);
+    }
   }
 
   /**
@@ -123,19 +158,31 @@ public class PseudoRandomNumberGenerator {
    * @param the_from the "index" of the first random number to give
    * @param the_to the "index" of the final random number to give
    * 
-   * @return A list containing the_to - the_from + 1 random numbers
+   * @return A list containing the_to - the_from + 1 random numbers; the list
+   * is a fresh copy, and may be modified by the caller.
    */
   //@ requires the_from <= the_to;
   // @todo kiniry Refine this specification to include public model fields.
   // requires my_with_replacement || the_to <= my_maximum_index;
-  public List<Integer> getRandomNumbers(final int the_from, final int the_to) {
+  public synchronized List<Integer> getRandomNumbers(final int the_from, 
+                                                     final int the_to) {
     assert the_from <= the_to;
     assert my_with_replacement || the_to <= my_maximum_index;
-    if (the_to + 1 > my_random_numbers.size()) {
+    if (the_to + 1 > my_size) {
       extendList(the_to + 1);
     }
-    // subList has an exclusive upper bound, but we have an inclusive one
-    return my_random_numbers.subList(the_from, the_to + 1);
+    final List<Integer> result = new ArrayList<>(the_to - the_from + 1);
+    for (int i = the_from; i <= the_to; i++) {
+      result.add(my_random_numbers[i]);
+    }
+    return result;
+  }
+  
+  /**
+   * @return the number of random numbers generated so far.
+   */
+  public synchronized int size() {
+    return my_size;
   }
 
   /**
@@ -144,10 +191,41 @@ public class PseudoRandomNumberGenerator {
    */
   //@ private behavior
   //@   requires 0 <= the_length;
-  //@   ensures my_random_numbers.size() == the_length;
+  //@   ensures my_size == the_length;
   private void extendList(final int the_length) {
-    while (my_random_numbers.size() < the_length) {
-      generateNext();
+    if (my_random_numbers.length < the_length) {
+      my_random_numbers = 
+          Arrays.copyOf(my_random_numbers, 
+                        Math.max(the_length, my_random_numbers.length * 2));
+    }
+    while (my_size < the_length) {
+      if (the_length - my_size < PARALLEL_THRESHOLD) {
+        generateNext();
+      } else {
+        generateInParallel(the_length - my_size);
+      }
+    }
+  }
+  
+  /**
+   * Generates the specified number of draws in parallel. Each draw is an 
+   * independent hash of the seed and its index, so the index range is 
+   * split across the common fork-join pool and the results are merged in 
+   * index order; when drawing without replacement, duplicates are removed
+   * after the merge. Since at most as many new numbers are added as there 
+   * are draws, this never extends the list further than sequential 
+   * generation of the same number of draws would. 
+   * 
+   * @param the_draws The number of draws.
+   */
+  private void generateInParallel(final int the_draws) {
+    final int[] picks = new int[the_draws];
+    ForkJoinPool.commonPool().invoke(new DrawTask(my_seed, my_minimum, my_maximum,
+                                                  my_count + 1, picks, 0, the_draws));
+    my_count = my_count + the_draws;
+    assert my_with_replacement || my_count <= my_maximum_index;
+    for (final int pick : picks) {
+      addPick(pick);
     }
   }
 
@@ -156,23 +234,39 @@ public class PseudoRandomNumberGenerator {
    * list of random numbers in length or leave it the same. It will always 
    * advance the count.
    */
-  public void generateNext() {
+  public synchronized void generateNext() {
     my_count++;
     assert my_with_replacement || my_count <= my_maximum_index;
 
-    final String hash_input = my_seed + "," + my_count;
-
-    final byte[] hash_output =
-        my_sha256_digest.digest(hash_input.getBytes(StandardCharsets.UTF_8));
-    final BigInteger int_output = new BigInteger(1, hash_output);
-
-    final BigInteger in_range =
-        int_output.mod(BigInteger.valueOf(my_maximum - my_minimum + 1));
-    final int pick = my_minimum + in_range.intValueExact();
-
-    if (my_with_replacement || !my_random_numbers.contains(pick)) {
-      my_random_numbers.add(pick);
+    addPick(my_drawer.draw(my_count));
+  }
+  
+  /**
+   * Adds a drawn number to the list of random numbers, unless we are 
+   * generating without replacement and it has already been drawn.
+   * 
+   * @param the_pick The drawn number.
+   */
+  private void addPick(final int the_pick) {
+    if (my_with_replacement) {
+      append(the_pick);
+    } else if (!my_drawn.get(the_pick - my_minimum)) {
+      my_drawn.set(the_pick - my_minimum);
+      append(the_pick);
+    }
+  }
+  
+  /**
+   * Appends a number to the list of random numbers.
+   * 
+   * @param the_number The number.
+   */
+  private void append(final int the_number) {
+    if (my_size == my_random_numbers.length) {
+      my_random_numbers = Arrays.copyOf(my_random_numbers, my_size * 2);
     }
+    my_random_numbers[my_size] = the_number;
+    my_size = my_size + 1;
   }
   
   /**
@@ -191,4 +285,212 @@ public class PseudoRandomNumberGenerator {
     }
     return true;
   }
+  
+  /**
+   * A fork-join task that computes the draws for a range of indices.
+   */
+  @SuppressWarnings("serial")
+  private static final class DrawTask extends RecursiveAction {
+    /**
+     * The seed.
+     */
+    private final String my_seed;
+    
+    /**
+     * The minimum value to generate.
+     */
+    private final int my_minimum;
+    
+    /**
+     * The maximum value to generate.
+     */
+    private final int my_maximum;
+    
+    /**
+     * The index of the draw stored at position 0 of the output array.
+     */
+    private final int my_base_index;
+    
+    /**
+     * The output array.
+     */
+    private final int[] my_output;
+    
+    /**
+     * The first output position to fill (inclusive).
+     */
+    private final int my_from;
+    
+    /**
+     * The last output position to fill (exclusive).
+     */
+    private final int my_to;
+    
+    /**
+     * Constructs a new task.
+     * 
+     * @param the_seed The seed.
+     * @param the_minimum The minimum value to generate.
+     * @param the_maximum The maximum value to generate.
+     * @param the_base_index The index of the draw stored at position 0
+     * of the output array.
+     * @param the_output The output array.
+     * @param the_from The first output position to fill (inclusive).
+     * @param the_to The last output position to fill (exclusive).
+     */
+    @SuppressWarnings("PMD.ArrayIsStoredDirectly")
+    DrawTask(final String the_seed, final int the_minimum, final int the_maximum,
+             final int the_base_index, final int[] the_output,
+             final int the_from, final int the_to) {
+      super();
+      my_seed = the_seed;
+      my_minimum = the_minimum;
+      my_maximum = the_maximum;
+      my_base_index = the_base_index;
+      my_output = the_output;
+      my_from = the_from;
+      my_to = the_to;
+    }
+    
+    /**
+     * Computes the draws, splitting the range if it is too large.
+     */
+    @Override
+    protected void compute() {
+      if (my_to - my_from <= PARALLEL_CHUNK_SIZE) {
+        final Drawer drawer = new Drawer(my_seed, my_minimum, my_maximum);
+        for (int i = my_from; i < my_to; i++) {
+          my_output[i] = drawer.draw(my_base_index + i);
+        }
+      } else {
+        final int middle = my_from + (my_to - my_from) / 2;
+        invokeAll(new DrawTask(my_seed, my_minimum, my_maximum, my_base_index,
+                               my_output, my_from, middle),
+                  new DrawTask(my_seed, my_minimum, my_maximum, my_base_index,
+                               my_output, middle, my_to));
+      }
+    }
+  }
+  
+  /**
+   * The hashing core of the generator. The random number with index n is 
+   * the SHA-256 hash of the string "seed,n" (encoded in UTF-8), interpreted 
+   * as an unsigned big-endian integer, reduced modulo the size of the range
+   * and added to the minimum. A drawer computes this without allocating: the
+   * "seed," prefix is encoded once into a buffer, the digits of each index
+   * are written in place after it, the digest is written into a preallocated
+   * array, and the 256-bit reduction is done a byte at a time in long 
+   * arithmetic (which cannot overflow, since the range fits in 32 bits). 
+   * Drawers are not thread-safe.
+   */
+  private static final class Drawer {
+    /**
+     * The length of a SHA-256 digest, in bytes.
+     */
+    private static final int DIGEST_LENGTH = 32;
+    
+    /**
+     * The maximum number of decimal digits in a non-negative int.
+     */
+    private static final int MAX_DIGITS = 10;
+    
+    /**
+     * The radix used to write indices.
+     */
+    private static final int RADIX = 10;
+    
+    /**
+     * The mask for an unsigned byte.
+     */
+    private static final int BYTE_MASK = 0xFF;
+    
+    /**
+     * The number of bits in a byte.
+     */
+    private static final int BYTE_BITS = 8;
+    
+    /**
+     * The message digest.
+     */
+    private final MessageDigest my_digest;
+    
+    /**
+     * The hash input buffer, containing the encoded "seed," prefix followed
+     * by space for the digits of an index.
+     */
+    private final byte[] my_input;
+    
+    /**
+     * The length of the encoded prefix.
+     */
+    private final int my_prefix_length;
+    
+    /**
+     * The hash output buffer.
+     */
+    private final byte[] my_output = new byte[DIGEST_LENGTH];
+    
+    /**
+     * The minimum value to generate.
+     */
+    private final int my_minimum;
+    
+    /**
+     * The number of values in the range.
+     */
+    private final long my_range;
+    
+    /**
+     * Constructs a new drawer.
+     * 
+     * @param the_seed The seed.
+     * @param the_minimum The minimum value to generate.
+     * @param the_maximum The maximum value to generate.
+     */
+    Drawer(final String the_seed, final int the_minimum, final int the_maximum) {
+      try {
+        my_digest = MessageDigest.getInstance("SHA-256");
+      } catch (final NoSuchAlgorithmException e) {
+        throw new IllegalStateException("SHA-256 is unavailable", e);
+      }
+      final byte[] prefix = (the_seed + ",").getBytes(StandardCharsets.UTF_8);
+      my_prefix_length = prefix.length;
+      my_input = new byte[my_prefix_length + MAX_DIGITS];
+      System.arraycopy(prefix, 0, my_input, 0, my_prefix_length);
+      my_minimum = the_minimum;
+      my_range = (long) the_maximum - the_minimum + 1;
+    }
+    
+    /**
+     * Computes the random number with the specified index.
+     * 
+     * @param the_index The index, which must be non-negative.
+     * @return the random number.
+     */
+    int draw(final int the_index) {
+      // write the decimal digits of the index after the prefix
+      int digits = 1;
+      for (int i = the_index / RADIX; i > 0; i = i / RADIX) {
+        digits = digits + 1;
+      }
+      int value = the_index;
+      for (int i = my_prefix_length + digits - 1; i >= my_prefix_length; i--) {
+        my_input[i] = (byte) ('0' + value % RADIX);
+        value = value / RADIX;
+      }
+      
+      my_digest.update(my_input, 0, my_prefix_length + digits);
+      try {
+        my_digest.digest(my_output, 0, DIGEST_LENGTH);
+      } catch (final DigestException e) {
+        throw new IllegalStateException("could not compute SHA-256 digest", e);
+      }
+      
+      long remainder = 0;
+      for (final byte b : my_output) {
+        remainder = ((remainder << BYTE_BITS) | (b & BYTE_MASK)) % my_range;
+      }
+      return (int) (my_minimum + remainder);
+    }
+  }
 }
@@ -11,8 +11,11 @@
 
 package us.freeandfair.corla.csv;
 
+import java.util.Optional;
 import java.util.OptionalInt;
 
+import us.freeandfair.corla.controller.BallotManifestLocationIndex;
+
 /**
  * A common interface to parsers for ballot manifest info in various formats.
  * 
@@ -42,4 +45,12 @@ public interface BallotManifestParser {
    * @return the number of ballots; empty if parsing has not yet occurred.
    */
   OptionalInt ballotCount();
+  
+  /**
+   * The storage location index of the parsed ballot manifest records.
+   * 
+   * @return the index; empty if parsing has not yet occurred or was not
+   * successful.
+   */
+  Optional<BallotManifestLocationIndex> locationIndex();
 }
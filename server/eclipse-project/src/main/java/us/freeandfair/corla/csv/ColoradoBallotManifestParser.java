@@ -16,6 +16,7 @@ import java.io.Reader;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
 
@@ -24,6 +25,7 @@ import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 
 import us.freeandfair.corla.Main;
+import us.freeandfair.corla.controller.BallotManifestLocationIndex;
 import us.freeandfair.corla.model.BallotManifestInfo;
 import us.freeandfair.corla.persistence.Persistence;
 
@@ -102,6 +104,12 @@ public class ColoradoBallotManifestParser implements BallotManifestParser {
    */
   private final Set<BallotManifestInfo> my_parsed_manifests = new HashSet<>();
   
+  /**
+   * The builder for the location index of the parsed ballot manifests.
+   */
+  private final BallotManifestLocationIndex.Builder my_index_builder =
+      new BallotManifestLocationIndex.Builder();
+  
   /**
    * Construct a new Colorado ballot manifest parser using the specified Reader.
    * 
@@ -168,6 +176,7 @@ public class ColoradoBallotManifestParser implements BallotManifestParser {
                                       the_line.get(BATCH_LOCATION_COLUMN));
       Persistence.saveOrUpdate(result);
       my_parsed_manifests.add(result);
+      my_index_builder.add(result);
       checkForFlush();
       Main.LOGGER.debug("parsed ballot manifest: " + result);
     } catch (final NumberFormatException | ArrayIndexOutOfBoundsException e) {
@@ -250,4 +259,16 @@ public class ColoradoBallotManifestParser implements BallotManifestParser {
       return OptionalInt.of(my_ballot_count);
     }
   }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized Optional<BallotManifestLocationIndex> locationIndex() {
+    if (my_parse_success) {
+      return Optional.of(my_index_builder.build());
+    } else {
+      return Optional.empty();
+    }
+  }
 }
@@ -26,6 +26,8 @@ import java.util.NoSuchElementException;
 import java.util.OptionalInt;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.persistence.PersistenceException;
 
@@ -39,9 +41,11 @@ import us.freeandfair.corla.model.CastVoteRecord;
 import us.freeandfair.corla.model.CastVoteRecord.RecordType;
 import us.freeandfair.corla.model.Choice;
 import us.freeandfair.corla.model.Contest;
+import us.freeandfair.corla.model.ContestTally;
 import us.freeandfair.corla.model.County;
 import us.freeandfair.corla.model.CountyContestResult;
 import us.freeandfair.corla.model.CountyDashboard;
+import us.freeandfair.corla.persistence.CastVoteRecordCopyLoader;
 import us.freeandfair.corla.persistence.Persistence;
 import us.freeandfair.corla.query.CountyContestResultQueries;
 import us.freeandfair.corla.util.ExponentialBackoffHelper;
@@ -53,7 +57,8 @@ import us.freeandfair.corla.util.ExponentialBackoffHelper;
  * @version 1.0.0
  */
 @SuppressWarnings({"PMD.GodClass", "PMD.CyclomaticComplexity", "PMD.ExcessiveImports",
-    "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity"})
+    "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity", 
+    "PMD.DoNotUseThreads", "PMD.TooManyMethods"})
 public class DominionCVRExportParser implements CVRExportParser {
   /**
    * The name of the transaction size property.
@@ -65,6 +70,16 @@ public class DominionCVRExportParser implements CVRExportParser {
    */
   public static final String BATCH_SIZE_PROPERTY = "cvr_import_batch_size";
   
+  /**
+   * The name of the queue size property.
+   */
+  public static final String QUEUE_SIZE_PROPERTY = "cvr_import_queue_size";
+  
+  /**
+   * The name of the bulk load property.
+   */
+  public static final String BULK_LOAD_PROPERTY = "cvr_import_bulk_load";
+  
   /**
    * The number of times to retry a county dashboard update operation.
    */
@@ -74,6 +89,12 @@ public class DominionCVRExportParser implements CVRExportParser {
    * The number of milliseconds to sleep between transaction retries.
    */
   private static final long TRANSACTION_SLEEP_MSEC = 10;
+
+  /**
+   * The maximum total time to spend backing off between attempts to update
+   * the county dashboard after a commit.
+   */
+  private static final long MAX_BACKOFF_MSEC = 5000;
   
   /**
    * The interval at which to log progress.
@@ -90,6 +111,11 @@ public class DominionCVRExportParser implements CVRExportParser {
    */
   private static final int DEFAULT_TRANSACTION_SIZE = 400;
   
+  /**
+   * The default number of parsed CVRs that can be waiting to be persisted.
+   */
+  private static final int DEFAULT_QUEUE_SIZE = 1000;
+  
   /**
    * The column containing the CVR number in a Dominion export file.
    */
@@ -178,6 +204,13 @@ public class DominionCVRExportParser implements CVRExportParser {
    * The list of contests parsed from the supplied data export.
    */
   private final List<Contest> my_contests = new ArrayList<Contest>();
+  
+  /**
+   * The choices of the contests parsed from the supplied data export, in the 
+   * same order as the contests; these are copied out of the (persistent) 
+   * contests so that they can be read safely by the parse stage.
+   */
+  private final List<List<Choice>> my_contest_choices = new ArrayList<List<Choice>>();
 
   /**
    * The list of county contest results we build from the supplied
@@ -202,14 +235,25 @@ public class DominionCVRExportParser implements CVRExportParser {
   private final Set<CastVoteRecord> my_parsed_cvrs = new HashSet<>();
   
   /**
-   * The size of a batch of CVRs to be flushed to the database.
+   * The sizer that chooses how many CVRs to flush to the database at once
+   * and how many to commit in a single transaction.
+   */
+  private final ImportBatchSizer my_sizer;
+  
+  /**
+   * The number of CVRs persisted since the last flush.
+   */
+  private int my_unflushed_count;
+  
+  /**
+   * The number of CVRs persisted since the last commit (or bulk load).
    */
-  private final int my_batch_size;
+  private int my_uncommitted_count;
   
   /**
-   * The size of a batch of CVRs to be committed as a transaction.
+   * The maximum number of parsed CVRs that can be waiting to be persisted.
    */
-  private final int my_transaction_size;
+  private final int my_queue_size;
   
   /**
    * A flag that indicates whether the parse is processed as multiple 
@@ -217,6 +261,12 @@ public class DominionCVRExportParser implements CVRExportParser {
    */
   private final boolean my_multi_transaction;
   
+  /**
+   * The bulk loader used to write CVRs to the database, or null if CVRs 
+   * are written through Hibernate.
+   */
+  private final CastVoteRecordCopyLoader my_copy_loader;
+  
   /**
    * Construct a new Dominion CVR export parser using the specified Reader,
    * for CVRs provided by the specified county.
@@ -224,7 +274,7 @@ public class DominionCVRExportParser implements CVRExportParser {
    * @param the_reader The reader from which to read the CSV to parse.
    * @param the_county The county whose CVRs are to be parsed.
    * @param the_properties The properties from which to read any overrides to the 
-   * default transaction and batch sizes.
+   * default transaction and batch sizes, and whether to use bulk loading.
    * @param the_multi_transaction true to commit the CVRs in multiple transactions,
    * false otherwise. If this is true, the parser assumes that a transaction is
    * in progress when invoked, and periodically commits that transaction and 
@@ -238,10 +288,20 @@ public class DominionCVRExportParser implements CVRExportParser {
     my_parser = new CSVParser(the_reader, CSVFormat.DEFAULT);
     my_county = the_county;
     my_multi_transaction = the_multi_transaction;
-    my_batch_size = parseProperty(the_properties, BATCH_SIZE_PROPERTY, 
-                                  DEFAULT_BATCH_SIZE);
-    my_transaction_size = parseProperty(the_properties, TRANSACTION_SIZE_PROPERTY, 
-                                        DEFAULT_TRANSACTION_SIZE);
+    my_sizer = 
+        ImportBatchSizer.fromProperties(the_properties, 
+                                        parseProperty(the_properties, BATCH_SIZE_PROPERTY, 
+                                                      DEFAULT_BATCH_SIZE),
+                                        parseProperty(the_properties, 
+                                                      TRANSACTION_SIZE_PROPERTY, 
+                                                      DEFAULT_TRANSACTION_SIZE));
+    my_queue_size = Math.max(1, parseProperty(the_properties, QUEUE_SIZE_PROPERTY, 
+                                              DEFAULT_QUEUE_SIZE));
+    if (Boolean.parseBoolean(the_properties.getProperty(BULK_LOAD_PROPERTY))) {
+      my_copy_loader = new CastVoteRecordCopyLoader();
+    } else {
+      my_copy_loader = null;
+    }
   }
   
   /**
@@ -257,8 +317,9 @@ public class DominionCVRExportParser implements CVRExportParser {
     my_parser = CSVParser.parse(the_string, CSVFormat.DEFAULT);
     my_county = the_county;
     my_multi_transaction = false;
-    my_batch_size = DEFAULT_BATCH_SIZE;
-    my_transaction_size = DEFAULT_TRANSACTION_SIZE;
+    my_sizer = ImportBatchSizer.fixed(DEFAULT_BATCH_SIZE, DEFAULT_TRANSACTION_SIZE);
+    my_queue_size = DEFAULT_QUEUE_SIZE;
+    my_copy_loader = null;
   }
   
   /**
@@ -385,39 +446,67 @@ public class DominionCVRExportParser implements CVRExportParser {
       final CountyContestResult r = 
           CountyContestResultQueries.matching(my_county, c);
       my_contests.add(c);
+      my_contest_choices.add(new ArrayList<Choice>(choices));
       my_results.add(r);
     }
   }
   
   /**
-   * Checks to see if the set of parsed CVRs needs flushing, and does so 
-   * if necessary.
+   * Checks to see if the set of parsed CVRs needs flushing or committing, 
+   * and does so if necessary. The time each flush and commit takes is 
+   * reported to the sizer, which may change the sizes used from then on.
    */
   private void checkForFlush() {
-    if (my_multi_transaction && my_record_count % my_transaction_size == 0) {
-      commitCVRsAndUpdateCountyDashboard();
-    }
+    my_unflushed_count = my_unflushed_count + 1;
+    my_uncommitted_count = my_uncommitted_count + 1;
     
-    if (my_record_count % my_batch_size == 0) {
+    if (my_unflushed_count >= my_sizer.batchSize()) {
+      final long start = System.nanoTime();
       Persistence.flush();
       for (final CastVoteRecord cvr : my_parsed_cvrs) {
         Persistence.evict(cvr);
       }
       my_parsed_cvrs.clear();
+      my_sizer.flushed(my_unflushed_count, System.nanoTime() - start);
+      my_unflushed_count = 0;
+    }
+    
+    if (my_uncommitted_count >= my_sizer.transactionSize()) {
+      if (my_multi_transaction) {
+        commitCVRsAndUpdateCountyDashboard();
+      } else if (my_copy_loader != null) {
+        // bulk-loaded CVRs don't live in the session, so we write them out
+        // at transaction boundaries even when we aren't committing
+        final long start = System.nanoTime();
+        my_copy_loader.load();
+        my_sizer.committed(my_uncommitted_count, System.nanoTime() - start, 1);
+        my_uncommitted_count = 0;
+      }
     }
   }
   
   /**
    * Commits the currently outstanding CVRs and updates the county dashboard
-   * accordingly.
+   * accordingly. The dashboard update is retried, with backoff, until it 
+   * succeeds, it has been tried UPDATE_RETRIES times, or the next backoff 
+   * would take the total past MAX_BACKOFF_MSEC. Time spent backing off is 
+   * not reported to the sizer as part of the commit.
    */
+  @SuppressWarnings("PMD.CyclomaticComplexity")
   private void commitCVRsAndUpdateCountyDashboard() {
     // commit all the CVR records and contest tracking data
+    final long start = System.nanoTime();
+    if (my_copy_loader != null) {
+      my_copy_loader.load();
+    }
     Persistence.commitTransaction();
     
     boolean success = false;
+    boolean gave_up = false;
     int retries = 0;
-    while (!success && retries < UPDATE_RETRIES) {
+    long backoff_msec = 0;
+    long backoff_nanos = 0;
+    while (!success && !gave_up && retries < UPDATE_RETRIES) {
       try {
         retries = retries + 1;
         Main.LOGGER.debug("updating county " + my_county.id() + " dashboard, attempt " +
@@ -444,20 +533,37 @@ public class DominionCVRExportParser implements CVRExportParser {
             // not much we can do about it
           }
         }
-        // let's give other transactions time to breathe
-        try {
-          final long delay = 
-              ExponentialBackoffHelper.exponentialBackoff(retries, TRANSACTION_SLEEP_MSEC);
+        // let's give other transactions time to breathe, unless we have
+        // already spent as long as we are willing to waiting for them
+        final long delay = 
+            ExponentialBackoffHelper.exponentialBackoff(retries, TRANSACTION_SLEEP_MSEC);
+        if (MAX_BACKOFF_MSEC < backoff_msec + delay) {
+          Main.LOGGER.error("giving up on county " + my_county.id() + 
+                            " dashboard update after attempt " + retries + 
+                            " (" + e.getMessage() + ")");
+          gave_up = true;
+        } else {
           Main.LOGGER.info("retrying county " + my_county.id() + 
-                           " dashboard update in " + delay + "ms");
-          Thread.sleep(delay);         
-        } catch (final InterruptedException ex) {
-          // it's OK to be interrupted
+                           " dashboard update in " + delay + "ms after attempt " + 
+                           retries + " (" + e.getMessage() + ")");
+          backoff_msec = backoff_msec + delay;
+          final long sleep_start = System.nanoTime();
+          try {
+            Thread.sleep(delay);         
+          } catch (final InterruptedException ex) {
+            // it's OK to be interrupted
+          }
+          backoff_nanos = backoff_nanos + System.nanoTime() - sleep_start;
         }
       }
     }
     // we always need a running transaction
     Persistence.beginTransaction();
+    if (success) {
+      my_sizer.committed(my_uncommitted_count, 
+                         System.nanoTime() - start - backoff_nanos, retries);
+      my_uncommitted_count = 0;
+    }
     if (success && retries > 1) {
       Main.LOGGER.info("updated state machine for county " + my_county.id() + 
                        " in " + retries + " tries");
@@ -468,14 +574,19 @@ public class DominionCVRExportParser implements CVRExportParser {
   } 
   
   /**
-   * Extract a CVR from a line of the file.
+   * Extract a CVR from a line of the file, and count its votes in the 
+   * specified tally. This does not interact with the persistence subsystem, 
+   * and is called from the parse stage.
    * 
    * @param the_line The line representing the CVR.
-   * @param the_timestamp The import timestamp.
-   * @return the resulting CVR.
+   * @param the_sequence_number The sequence number of the CVR.
+   * @param the_tally The parse stage's tally.
+   * @return the resulting CVR, or null if the line is malformed.
    */
   @SuppressWarnings("PMD.CyclomaticComplexity")
-  private CastVoteRecord extractCVR(final CSVRecord the_line) {
+  private CastVoteRecord extractCVR(final CSVRecord the_line, 
+                                    final int the_sequence_number,
+                                    final ContestTally the_tally) {
     try {
       final int cvr_id =
           Integer.parseInt(stripEqualQuotes(the_line.get(my_columns.get(CVR_NUMBER_HEADER))));
@@ -495,43 +606,38 @@ public class DominionCVRExportParser implements CVRExportParser {
       // for each contest, see if choices exist on the CVR; "0" or "1" are
       // votes or absences of votes; "" means that the contest is not in this style
       int index = my_first_contest_column;
-      for (final Contest co : my_contests) {
+      for (int i = 0; i < my_contests.size(); i++) {
         boolean present = false;
         final List<String> votes = new ArrayList<String>();
-        for (final Choice ch : co.choices()) {
+        final List<Choice> choices = my_contest_choices.get(i);
+        for (int j = 0; j < choices.size(); j++) {
+          final Choice ch = choices.get(j);
           final String mark_string = the_line.get(index);
           final boolean p = !mark_string.isEmpty();
           final boolean mark = "1".equals(mark_string);
           present |= p;
           if (!ch.fictitious() && p && mark) {
             votes.add(ch.name());
+            the_tally.addVote(i, j);
           }
           index = index + 1;
         }
         // if this contest was on the ballot, add it to the votes
         if (present) {
-          contest_info.add(new CVRContestInfo(co, null, null, votes));
+          contest_info.add(new CVRContestInfo(my_contests.get(i), null, null, votes));
+          the_tally.addContest(i);
         }
       }
+      the_tally.addBallot();
       
       // we don't need to look for an existing CVR with this data because,
       // by definition, there cannot be one unless the same line appears
       // twice in the CVR export file... and if it does, we need it to
       // appear twice here too. 
-      final CastVoteRecord new_cvr = 
-          new CastVoteRecord(RecordType.UPLOADED, null, my_county.id(),
-                             cvr_id, my_record_count, tabulator_id, 
-                             batch_id, record_id, imprinted_id, 
-                             ballot_type, contest_info);
-      Persistence.saveOrUpdate(new_cvr);
-      my_parsed_cvrs.add(new_cvr);
-      
-      // add the CVR to all of our results
-      for (final CountyContestResult r : my_results) {
-        r.addCVR(new_cvr);
-      }
-      Main.LOGGER.debug("parsed CVR: " + new_cvr);
-      return new_cvr;
+      return new CastVoteRecord(RecordType.UPLOADED, null, my_county.id(),
+                                cvr_id, the_sequence_number, tabulator_id, 
+                                batch_id, record_id, imprinted_id, 
+                                ballot_type, contest_info);
     } catch (final NumberFormatException e) {
       return null;
     } catch (final ArrayIndexOutOfBoundsException e) {
@@ -539,6 +645,23 @@ public class DominionCVRExportParser implements CVRExportParser {
     }
   }
   
+  /**
+   * Persists a parsed CVR. This is called from the persistence stage, which 
+   * owns the persistence session; the CVR's votes have already been counted
+   * by the parse stage.
+   * 
+   * @param the_cvr The CVR.
+   */
+  private void persistCVR(final CastVoteRecord the_cvr) {
+    if (my_copy_loader == null) {
+      Persistence.saveOrUpdate(the_cvr);
+      my_parsed_cvrs.add(the_cvr);
+    } else {
+      my_copy_loader.add(the_cvr);
+    }
+    Main.LOGGER.debug("parsed CVR: " + the_cvr);
+  }
+  
   /**
    * Processes the headers from the specified CSV record. This includes checking
    * for the use of forbidden headers, and that all required headers are 
@@ -633,6 +756,95 @@ public class DominionCVRExportParser implements CVRExportParser {
     return sb.toString();
   }
   
+  /**
+   * Runs the CVR import pipeline over the remaining lines of the file. The
+   * lines are parsed into CVRs by a parse stage running on its own thread, 
+   * which hands them through a bounded queue to the persistence stage, 
+   * running on the calling thread (which owns the persistence session and 
+   * transaction). The bounded queue makes the parse stage wait when the 
+   * database falls behind. A parse stage failure is rethrown on the calling
+   * thread, and a persistence stage failure stops the parse stage, so the 
+   * caller can roll back exactly as it would if parsing were done inline. 
+   * 
+   * @param the_records The iterator over the remaining lines.
+   * @return true if all the lines were parsed and persisted, and their votes
+   * added to the results, false if a malformed CVR record was encountered; 
+   * in the latter case, the error message is set.
+   */
+  private boolean persistParsedCVRs(final Iterator<CSVRecord> the_records) {
+    boolean result = true;
+    final BlockingQueue<ParsedRecord> queue = 
+        new ArrayBlockingQueue<ParsedRecord>(my_queue_size);
+    final ParseStage parse_stage = new ParseStage(the_records, queue);
+    final Thread parse_thread = 
+        new Thread(parse_stage, "cvr-parse-county-" + my_county.id());
+    parse_thread.start();
+    
+    try {
+      ParsedRecord record = takeFrom(queue);
+      while (!record.isEnd()) {
+        if (record.failure() != null) {
+          throw record.failure();
+        } else if (record.cvr() == null) {
+          // we don't record the CVR since it didn't parse
+          Main.LOGGER.error("Could not parse malformed CVR record (" + 
+                            record.line() + ")");
+          my_error_message = "malformed CVR record (" + record.line() + ")";
+          result = false;
+          break;
+        }
+        persistCVR(record.cvr());
+        my_record_count = my_record_count + 1;
+        if (my_record_count % PROGRESS_INTERVAL == 0) {
+          Main.LOGGER.info("parsed " + my_record_count + 
+                           " CVRs for county " + my_county.id());
+        }
+        checkForFlush();
+        record = takeFrom(queue);
+      }
+    } finally {
+      // whether we finished, found a malformed record or failed, the parse
+      // stage must not outlive the persistence stage
+      parse_thread.interrupt();
+      try {
+        parse_thread.join();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    
+    // the parse stage counted the votes on every CVR it parsed, so if all
+    // of them were persisted, its tally can now be added to our results
+    if (result && !parse_thread.isAlive()) {
+      for (int i = 0; i < my_results.size(); i++) {
+        my_results.get(i).addVotes(parse_stage.tally(), i);
+      }
+    } else if (result) {
+      throw new PersistenceException("CVR import for county " + my_county.id() + 
+                                     " interrupted");
+    }
+    
+    return result;
+  }
+  
+  /**
+   * Takes the next parsed record from the specified queue.
+   * 
+   * @param the_queue The queue.
+   * @return the next parsed record.
+   * @exception PersistenceException if we are interrupted while waiting, 
+   * which causes the import to be abandoned.
+   */
+  private ParsedRecord takeFrom(final BlockingQueue<ParsedRecord> the_queue) {
+    try {
+      return the_queue.take();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PersistenceException("CVR import for county " + my_county.id() + 
+                                     " interrupted", e);
+    }
+  }
+  
   /**
    * Parse the supplied data export. If it has already been parsed, this
    * method returns immediately.
@@ -647,8 +859,9 @@ public class DominionCVRExportParser implements CVRExportParser {
     }
     
     Main.LOGGER.info("parsing CVR export for county " + my_county.id() + 
-                     ", batch_size=" + my_batch_size + 
-                     ", transaction_size=" + my_transaction_size);
+                     ", batch_size=" + my_sizer.batchSize() + 
+                     ", transaction_size=" + my_sizer.transactionSize() + 
+                     ", bulk_load=" + (my_copy_loader != null));
     
     boolean result = true; // presume the parse will succeed
     final Iterator<CSVRecord> records = my_parser.iterator();
@@ -691,24 +904,7 @@ public class DominionCVRExportParser implements CVRExportParser {
                     contest_votes_allowed, contest_choice_counts);
 
         // subsequent lines contain cast vote records
-        while (records.hasNext()) {
-          final CSVRecord cvr_line = records.next();
-          final CastVoteRecord cvr = extractCVR(cvr_line);
-          if (cvr == null) {
-            // we don't record the CVR since it didn't parse
-            Main.LOGGER.error("Could not parse malformed CVR record (" + cvr_line + ")");
-            my_error_message = "malformed CVR record (" + cvr_line + ")";
-            result = false;   
-            break;
-          } else {
-            my_record_count = my_record_count + 1;
-            if (my_record_count % PROGRESS_INTERVAL == 0) {
-              Main.LOGGER.info("parsed " + my_record_count + 
-                               " CVRs for county " + my_county.id());
-            }
-          }
-          checkForFlush();
-        }
+        result = persistParsedCVRs(records);
         
         for (final CountyContestResult r : my_results) {
           r.updateResults();
@@ -756,4 +952,148 @@ public class DominionCVRExportParser implements CVRExportParser {
   public synchronized String errorMessage() {
     return my_error_message;
   }
+  
+  /**
+   * An element passed from the parse stage to the persistence stage: a
+   * parsed CVR, a malformed line, a parse stage failure, or the end of
+   * the file.
+   */
+  private static final class ParsedRecord {
+    /**
+     * The marker for the end of the file.
+     */
+    static final ParsedRecord END = new ParsedRecord(null, null, null);
+    
+    /**
+     * The parsed CVR, or null if the line was malformed.
+     */
+    private final CastVoteRecord my_cvr;
+    
+    /**
+     * The line that was parsed.
+     */
+    private final CSVRecord my_line;
+    
+    /**
+     * The failure that stopped the parse stage, if any.
+     */
+    private final RuntimeException my_failure;
+    
+    /**
+     * Constructs a new parsed record.
+     * 
+     * @param the_cvr The parsed CVR.
+     * @param the_line The line.
+     * @param the_failure The failure.
+     */
+    ParsedRecord(final CastVoteRecord the_cvr, final CSVRecord the_line,
+                 final RuntimeException the_failure) {
+      my_cvr = the_cvr;
+      my_line = the_line;
+      my_failure = the_failure;
+    }
+    
+    /**
+     * @return the parsed CVR, or null if the line was malformed.
+     */
+    CastVoteRecord cvr() {
+      return my_cvr;
+    }
+    
+    /**
+     * @return the line.
+     */
+    CSVRecord line() {
+      return my_line;
+    }
+    
+    /**
+     * @return the failure, or null if there was none.
+     */
+    RuntimeException failure() {
+      return my_failure;
+    }
+    
+    /**
+     * @return true if this is the end of file marker, false otherwise.
+     */
+    boolean isEnd() {
+      return this == END;
+    }
+  }
+  
+  /**
+   * The parse stage of the CVR import pipeline. It reads lines from the 
+   * file, turns them into CVRs and puts them on the queue, waiting when 
+   * the queue is full. It stops after the end of the file, a malformed 
+   * line or a failure (each of which it reports through the queue), or 
+   * when it is interrupted by the persistence stage.
+   */
+  private class ParseStage implements Runnable {
+    /**
+     * The iterator over the lines to parse.
+     */
+    private final Iterator<CSVRecord> my_records;
+    
+    /**
+     * The queue of parsed records.
+     */
+    private final BlockingQueue<ParsedRecord> my_queue;
+    
+    /**
+     * The tally of the votes on the parsed CVRs, which only the parse 
+     * stage's thread updates.
+     */
+    private final ContestTally my_tally = new ContestTally(my_contest_choices);
+    
+    /**
+     * Constructs a new parse stage.
+     * 
+     * @param the_records The iterator over the lines to parse.
+     * @param the_queue The queue of parsed records.
+     */
+    ParseStage(final Iterator<CSVRecord> the_records, 
+               final BlockingQueue<ParsedRecord> the_queue) {
+      my_records = the_records;
+      my_queue = the_queue;
+    }
+    
+    /**
+     * @return the tally; this must only be read after the parse stage's
+     * thread has finished.
+     */
+    ContestTally tally() {
+      return my_tally;
+    }
+    
+    /**
+     * Parses lines until there is nothing more to do.
+     */
+    @Override
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    public void run() {
+      int sequence_number = 0;
+      try {
+        boolean done = false;
+        while (!done && my_records.hasNext()) {
+          final CSVRecord line = my_records.next();
+          final CastVoteRecord cvr = extractCVR(line, sequence_number, my_tally);
+          my_queue.put(new ParsedRecord(cvr, line, null));
+          sequence_number = sequence_number + 1;
+          done = cvr == null;
+        }
+        if (!done) {
+          my_queue.put(ParsedRecord.END);
+        }
+      } catch (final InterruptedException e) {
+        // the persistence stage has stopped, so we stop too
+      } catch (final RuntimeException e) {
+        try {
+          my_queue.put(new ParsedRecord(null, null, e));
+        } catch (final InterruptedException ex) {
+          // the persistence stage has stopped, so nobody needs to know
+        }
+      }
+    }
+  }
 }
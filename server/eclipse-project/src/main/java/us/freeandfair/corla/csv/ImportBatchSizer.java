@@ -0,0 +1,358 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.csv;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses the flush batch size and transaction size for a CVR import,
+ * adjusting them within fixed bounds according to how long flushes and
+ * commits actually take. Each size grows gradually while the corresponding
+ * operation stays well under its target latency, and is halved when the
+ * operation exceeds its target latency; the transaction size is also halved
+ * whenever committing needs more than one attempt, since that indicates
+ * contention with other imports. The batch size never exceeds the
+ * transaction size.
+ *
+ * When adaptive sizing is disabled, the bounds collapse to the configured
+ * sizes and the sizes never change.
+ *
+ * @version 1.0.0
+ */
+public class ImportBatchSizer {
+  /**
+   * The "adaptive sizing" property.
+   */
+  public static final String ADAPTIVE_PROPERTY = "cvr_import_adaptive_sizing";
+
+  /**
+   * The "minimum batch size" property.
+   */
+  public static final String MIN_BATCH_SIZE_PROPERTY = "cvr_import_min_batch_size";
+
+  /**
+   * The "maximum batch size" property.
+   */
+  public static final String MAX_BATCH_SIZE_PROPERTY = "cvr_import_max_batch_size";
+
+  /**
+   * The "minimum transaction size" property.
+   */
+  public static final String MIN_TRANSACTION_SIZE_PROPERTY =
+      "cvr_import_min_transaction_size";
+
+  /**
+   * The "maximum transaction size" property.
+   */
+  public static final String MAX_TRANSACTION_SIZE_PROPERTY =
+      "cvr_import_max_transaction_size";
+
+  /**
+   * The "target flush latency" property.
+   */
+  public static final String FLUSH_TARGET_PROPERTY = "cvr_import_flush_target_msec";
+
+  /**
+   * The "target commit latency" property.
+   */
+  public static final String COMMIT_TARGET_PROPERTY = "cvr_import_commit_target_msec";
+
+  /**
+   * The default minimum batch size.
+   */
+  public static final int DEFAULT_MIN_BATCH_SIZE = 20;
+
+  /**
+   * The default maximum batch size.
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+  /**
+   * The default minimum transaction size.
+   */
+  public static final int DEFAULT_MIN_TRANSACTION_SIZE = 100;
+
+  /**
+   * The default maximum transaction size.
+   */
+  public static final int DEFAULT_MAX_TRANSACTION_SIZE = 5000;
+
+  /**
+   * The default target flush latency, in milliseconds.
+   */
+  public static final int DEFAULT_FLUSH_TARGET_MSEC = 250;
+
+  /**
+   * The default target commit latency, in milliseconds.
+   */
+  public static final int DEFAULT_COMMIT_TARGET_MSEC = 2000;
+
+  /**
+   * The divisor used to compute the growth step from the current size.
+   */
+  private static final int GROWTH_DIVISOR = 4;
+
+  /**
+   * The minimum batch size.
+   */
+  private final int my_min_batch_size;
+
+  /**
+   * The maximum batch size.
+   */
+  private final int my_max_batch_size;
+
+  /**
+   * The minimum transaction size.
+   */
+  private final int my_min_transaction_size;
+
+  /**
+   * The maximum transaction size.
+   */
+  private final int my_max_transaction_size;
+
+  /**
+   * The target flush latency, in nanoseconds.
+   */
+  private final long my_flush_target_nanos;
+
+  /**
+   * The target commit latency, in nanoseconds.
+   */
+  private final long my_commit_target_nanos;
+
+  /**
+   * The current batch size.
+   */
+  private int my_batch_size;
+
+  /**
+   * The current transaction size.
+   */
+  private int my_transaction_size;
+
+  /**
+   * Constructs a new sizer.
+   *
+   * @param the_batch_size The initial batch size.
+   * @param the_min_batch_size The minimum batch size.
+   * @param the_max_batch_size The maximum batch size.
+   * @param the_transaction_size The initial transaction size.
+   * @param the_min_transaction_size The minimum transaction size.
+   * @param the_max_transaction_size The maximum transaction size.
+   * @param the_flush_target_msec The target flush latency, in milliseconds.
+   * @param the_commit_target_msec The target commit latency, in milliseconds.
+   */
+  @SuppressWarnings("PMD.ExcessiveParameterList")
+  public ImportBatchSizer(final int the_batch_size,
+                          final int the_min_batch_size,
+                          final int the_max_batch_size,
+                          final int the_transaction_size,
+                          final int the_min_transaction_size,
+                          final int the_max_transaction_size,
+                          final long the_flush_target_msec,
+                          final long the_commit_target_msec) {
+    my_min_transaction_size = Math.max(1, the_min_transaction_size);
+    my_max_transaction_size = Math.max(my_min_transaction_size, the_max_transaction_size);
+    my_min_batch_size =
+        Math.min(Math.max(1, the_min_batch_size), my_max_transaction_size);
+    my_max_batch_size = Math.max(my_min_batch_size, the_max_batch_size);
+    my_flush_target_nanos = TimeUnit.MILLISECONDS.toNanos(the_flush_target_msec);
+    my_commit_target_nanos = TimeUnit.MILLISECONDS.toNanos(the_commit_target_msec);
+    my_transaction_size =
+        clamp(the_transaction_size, my_min_transaction_size, my_max_transaction_size);
+    my_batch_size = clamp(the_batch_size, my_min_batch_size, my_max_batch_size);
+    my_batch_size = Math.min(my_batch_size, my_transaction_size);
+  }
+
+  /**
+   * Constructs a sizer from the specified properties, starting at the
+   * specified sizes.
+   *
+   * @param the_properties The properties.
+   * @param the_batch_size The initial batch size.
+   * @param the_transaction_size The initial transaction size.
+   * @return the sizer.
+   */
+  public static ImportBatchSizer fromProperties(final Properties the_properties,
+                                                final int the_batch_size,
+                                                final int the_transaction_size) {
+    final ImportBatchSizer result;
+    if (Boolean.parseBoolean(the_properties.getProperty(ADAPTIVE_PROPERTY, "true"))) {
+      result =
+          new ImportBatchSizer(the_batch_size,
+                               parseProperty(the_properties, MIN_BATCH_SIZE_PROPERTY,
+                                             DEFAULT_MIN_BATCH_SIZE),
+                               parseProperty(the_properties, MAX_BATCH_SIZE_PROPERTY,
+                                             DEFAULT_MAX_BATCH_SIZE),
+                               the_transaction_size,
+                               parseProperty(the_properties,
+                                             MIN_TRANSACTION_SIZE_PROPERTY,
+                                             DEFAULT_MIN_TRANSACTION_SIZE),
+                               parseProperty(the_properties,
+                                             MAX_TRANSACTION_SIZE_PROPERTY,
+                                             DEFAULT_MAX_TRANSACTION_SIZE),
+                               parseProperty(the_properties, FLUSH_TARGET_PROPERTY,
+                                             DEFAULT_FLUSH_TARGET_MSEC),
+                               parseProperty(the_properties, COMMIT_TARGET_PROPERTY,
+                                             DEFAULT_COMMIT_TARGET_MSEC));
+    } else {
+      result = fixed(the_batch_size, the_transaction_size);
+    }
+    return result;
+  }
+
+  /**
+   * Constructs a sizer that never changes its sizes.
+   *
+   * @param the_batch_size The batch size.
+   * @param the_transaction_size The transaction size.
+   * @return the sizer.
+   */
+  public static ImportBatchSizer fixed(final int the_batch_size,
+                                       final int the_transaction_size) {
+    return new ImportBatchSizer(the_batch_size, the_batch_size, the_batch_size,
+                                the_transaction_size, the_transaction_size,
+                                the_transaction_size,
+                                DEFAULT_FLUSH_TARGET_MSEC, DEFAULT_COMMIT_TARGET_MSEC);
+  }
+
+  /**
+   * Parse an integer value from the specified property, returning the specified
+   * default if the property doesn't exist or is not an integer.
+   *
+   * @param the_properties The properties to use.
+   * @param the_property_name The name of the property to parse.
+   * @param the_default_value The default value.
+   * @return the value.
+   */
+  private static int parseProperty(final Properties the_properties,
+                                   final String the_property_name,
+                                   final int the_default_value) {
+    int result;
+
+    try {
+      result = Integer.parseInt(the_properties.getProperty(the_property_name,
+                                                           String.valueOf(the_default_value)));
+    } catch (final NumberFormatException e) {
+      result = the_default_value;
+    }
+
+    return result;
+  }
+
+  /**
+   * @return the current batch size.
+   */
+  public synchronized int batchSize() {
+    return my_batch_size;
+  }
+
+  /**
+   * @return the current transaction size.
+   */
+  public synchronized int transactionSize() {
+    return my_transaction_size;
+  }
+
+  /**
+   * Records a completed flush, and adjusts the batch size accordingly.
+   *
+   * @param the_records The number of records flushed.
+   * @param the_nanos The time the flush took, in nanoseconds.
+   */
+  public synchronized void flushed(final int the_records, final long the_nanos) {
+    my_batch_size = adjust(my_batch_size, my_min_batch_size,
+                           Math.min(my_max_batch_size, my_transaction_size),
+                           projected(the_nanos, the_records, my_batch_size),
+                           my_flush_target_nanos);
+  }
+
+  /**
+   * Records a completed commit, and adjusts the transaction size (and, if
+   * necessary, the batch size) accordingly.
+   *
+   * @param the_records The number of records committed.
+   * @param the_nanos The time the commit took, in nanoseconds.
+   * @param the_attempts The number of attempts the commit needed.
+   */
+  public synchronized void committed(final int the_records, final long the_nanos,
+                                     final int the_attempts) {
+    if (the_attempts > 1) {
+      my_transaction_size = Math.max(my_min_transaction_size, my_transaction_size / 2);
+    } else {
+      my_transaction_size =
+          adjust(my_transaction_size, my_min_transaction_size, my_max_transaction_size,
+                 projected(the_nanos, the_records, my_transaction_size),
+                 my_commit_target_nanos);
+    }
+    my_batch_size = Math.max(Math.min(my_batch_size, my_transaction_size),
+                             Math.min(my_min_batch_size, my_transaction_size));
+  }
+
+  /**
+   * Projects the time an operation on the specified number of records would
+   * take from the time it took on a (possibly different) number of records.
+   *
+   * @param the_nanos The time the operation took.
+   * @param the_records The number of records it handled.
+   * @param the_size The number of records to project for.
+   * @return the projected time.
+   */
+  private static long projected(final long the_nanos, final int the_records,
+                                final int the_size) {
+    final long result;
+    if (the_records <= 0) {
+      result = the_nanos;
+    } else {
+      result = (long) ((double) the_nanos * the_size / the_records);
+    }
+    return result;
+  }
+
+  /**
+   * Adjusts a size based on the latency of an operation on that many
+   * records: halves it if the latency is over the target, grows it by a
+   * quarter if the latency is under half the target, and otherwise
+   * leaves it alone.
+   *
+   * @param the_size The current size.
+   * @param the_min The minimum size.
+   * @param the_max The maximum size.
+   * @param the_nanos The latency.
+   * @param the_target_nanos The target latency.
+   * @return the new size.
+   */
+  private static int adjust(final int the_size, final int the_min, final int the_max,
+                            final long the_nanos, final long the_target_nanos) {
+    int result = the_size;
+    if (the_nanos > the_target_nanos) {
+      result = the_size / 2;
+    } else if (the_nanos < the_target_nanos / 2) {
+      result = the_size + Math.max(1, the_size / GROWTH_DIVISOR);
+    }
+    return clamp(result, the_min, the_max);
+  }
+
+  /**
+   * Clamps a value to the specified range.
+   *
+   * @param the_value The value.
+   * @param the_min The minimum.
+   * @param the_max The maximum.
+   * @return the clamped value.
+   */
+  private static int clamp(final int the_value, final int the_min, final int the_max) {
+    return Math.max(the_min, Math.min(the_max, the_value));
+  }
+}
@@ -11,43 +11,19 @@
 
 package us.freeandfair.corla.endpoint;
 
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.UncheckedIOException;
-import java.util.stream.Stream;
+import java.util.EnumSet;
+import java.util.Set;
 
-import javax.persistence.PersistenceException;
-
-import com.google.gson.stream.JsonWriter;
-
-import spark.Request;
-import spark.Response;
-
-import us.freeandfair.corla.Main;
-import us.freeandfair.corla.model.CastVoteRecord;
 import us.freeandfair.corla.model.CastVoteRecord.RecordType;
-import us.freeandfair.corla.persistence.Persistence;
-import us.freeandfair.corla.query.CastVoteRecordQueries;
-import us.freeandfair.corla.util.SparkHelper;
 
 /**
- * The ballot manifest download endpoint.
+ * The ACVR download endpoint.
  * 
  * @author Daniel M. Zimmerman <dmz@freeandfair.us>
  * @version 1.0.0
  */
 @SuppressWarnings("PMD.AtLeastOneConstructor")
-public class ACVRDownload extends AbstractEndpoint {
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public EndpointType endpointType() {
-    return EndpointType.GET;
-  }
-
+public class ACVRDownload extends AbstractCVRDownloadEndpoint {
   /**
    * {@inheritDoc}
    */
@@ -56,43 +32,11 @@ public class ACVRDownload extends AbstractEndpoint {
     return "/acvr";
   }
   
-  /**
-   * This endpoint requires any kind of authentication.
-   */
-  @Override
-  public AuthorizationType requiredAuthorization() {
-    return AuthorizationType.EITHER;
-  }
-
   /**
    * {@inheritDoc}
    */
   @Override
-  // necessary to break out of the lambda expression in case of IOException
-  @SuppressWarnings("PMD.ExceptionAsFlowControl")
-  public String endpointBody(final Request the_request, final Response the_response) {
-    try (OutputStream os = SparkHelper.getRaw(the_response).getOutputStream();
-         BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"));
-         JsonWriter jw = new JsonWriter(bw)) {
-      jw.beginArray();
-      final Stream<CastVoteRecord> matches = 
-          Stream.concat(CastVoteRecordQueries.getMatching(RecordType.AUDITOR_ENTERED),
-                        CastVoteRecordQueries.getMatching(RecordType.PHANTOM_BALLOT));
-      matches.forEach((the_cvr) -> {
-        try {
-          jw.jsonValue(Main.GSON.toJson(Persistence.unproxy(the_cvr)));
-          Persistence.evict(the_cvr);
-        } catch (final IOException e) {
-          throw new UncheckedIOException(e);
-        } 
-      });
-      jw.endArray();
-      jw.flush();
-      jw.close();
-      ok(the_response);
-    } catch (final UncheckedIOException | IOException | PersistenceException e) {
-      serverError(the_response, "Unable to stream response");
-    }
-    return my_endpoint_result.get();
+  protected Set<RecordType> recordTypes() {
+    return EnumSet.of(RecordType.AUDITOR_ENTERED, RecordType.PHANTOM_BALLOT);
   }
 }
@@ -0,0 +1,185 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.endpoint;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import javax.persistence.PersistenceException;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+
+import spark.Request;
+import spark.Response;
+
+import us.freeandfair.corla.Main;
+import us.freeandfair.corla.json.CastVoteRecordProjection;
+import us.freeandfair.corla.model.CastVoteRecord.RecordType;
+import us.freeandfair.corla.query.CastVoteRecordQueries;
+import us.freeandfair.corla.util.SparkHelper;
+
+/**
+ * Basic behavior for the endpoints that download cast vote records as a JSON
+ * array. Records are streamed from a database cursor straight to the
+ * response, in ID order, gzip-compressed if the client accepts it. Two
+ * optional parameters allow a long download to be fetched in parts, or
+ * resumed after a failure: "after", the last record ID already received,
+ * and "count", the maximum number of records to send.
+ *
+ * @version 1.0.0
+ */
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public abstract class AbstractCVRDownloadEndpoint extends AbstractEndpoint {
+  /**
+   * The "after" parameter.
+   */
+  public static final String AFTER = "after";
+
+  /**
+   * The "count" parameter.
+   */
+  public static final String COUNT = "count";
+
+  /**
+   * The "gzip" content encoding.
+   */
+  private static final String GZIP = "gzip";
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public EndpointType endpointType() {
+    return EndpointType.GET;
+  }
+
+  /**
+   * This endpoint requires any kind of authentication.
+   */
+  @Override
+  public AuthorizationType requiredAuthorization() {
+    return AuthorizationType.EITHER;
+  }
+
+  /**
+   * @return the types of record to download.
+   */
+  protected abstract Set<RecordType> recordTypes();
+
+  /**
+   * Gets the counties whose records are to be downloaded. The default
+   * behavior is to download the records of all counties.
+   *
+   * @param the_request The request.
+   * @return the county IDs, or null for all counties; no records are
+   * downloaded for an empty set.
+   */
+  @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull")
+  protected Set<Long> countyIDs(final Request the_request) {
+    return null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String endpointBody(final Request the_request, final Response the_response) {
+    final long after = parseOrDefault(the_request.queryParams(AFTER), 0);
+    final int count = (int) parseOrDefault(the_request.queryParams(COUNT), 0);
+    final String accepted = the_request.headers("Accept-Encoding");
+    final boolean gzip =
+        accepted != null && accepted.toLowerCase(Locale.US).contains(GZIP);
+    try {
+      final HttpServletResponse raw = SparkHelper.getRaw(the_response);
+      raw.setContentType("application/json");
+      raw.setHeader("Vary", "Accept-Encoding");
+      if (gzip) {
+        raw.setHeader("Content-Encoding", GZIP);
+      }
+      try (OutputStream os = encoded(raw.getOutputStream(), gzip);
+           BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"));
+           JsonWriter jw = new JsonWriter(bw)) {
+        jw.beginArray();
+        CastVoteRecordQueries.forEachProjection(recordTypes(), countyIDs(the_request),
+                                                after, count, (the_cvr) ->
+            Main.GSON.toJson(the_cvr, CastVoteRecordProjection.class, jw));
+        jw.endArray();
+        jw.flush();
+      }
+      ok(the_response);
+    } catch (final JsonIOException | IOException | PersistenceException e) {
+      serverError(the_response, "Unable to stream response");
+    }
+    return my_endpoint_result.get();
+  }
+
+  /**
+   * Validates the parameters of a request. For this endpoint, the "after"
+   * and "count" parameters, if present, must be non-negative integers.
+   *
+   * @param the_request The request.
+   * @return true if the parameters are valid, false otherwise.
+   */
+  @Override
+  protected boolean validateParameters(final Request the_request) {
+    boolean result;
+    try {
+      final long after = parseOrDefault(the_request.queryParams(AFTER), 0);
+      final long count = parseOrDefault(the_request.queryParams(COUNT), 0);
+      result = 0 <= after && 0 <= count && count <= Integer.MAX_VALUE;
+    } catch (final NumberFormatException e) {
+      result = false;
+    }
+    return result;
+  }
+
+  /**
+   * Wraps the response output stream in a gzip stream, if requested.
+   *
+   * @param the_stream The stream.
+   * @param the_gzip true to compress, false otherwise.
+   * @return the stream to write to.
+   * @exception IOException if the gzip stream cannot be created.
+   */
+  private OutputStream encoded(final OutputStream the_stream, final boolean the_gzip)
+      throws IOException {
+    final OutputStream result;
+    if (the_gzip) {
+      result = new GZIPOutputStream(the_stream);
+    } else {
+      result = the_stream;
+    }
+    return result;
+  }
+
+  /**
+   * Parses a numeric parameter.
+   *
+   * @param the_value The parameter value, which may be null.
+   * @param the_default The value to use if the parameter is absent.
+   * @return the parsed value.
+   * @exception NumberFormatException if the value is not a number.
+   */
+  private static long parseOrDefault(final String the_value, final long the_default) {
+    long result = the_default;
+    if (the_value != null) {
+      result = Long.parseLong(the_value);
+    }
+    return result;
+  }
+}
@@ -16,6 +16,10 @@ import static us.freeandfair.corla.model.Administrator.AdministratorType.*;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.persistence.PersistenceException;
 
@@ -34,11 +38,11 @@ import us.freeandfair.corla.asm.ASMEvent;
 import us.freeandfair.corla.asm.ASMUtilities;
 import us.freeandfair.corla.asm.AbstractStateMachine;
 import us.freeandfair.corla.auth.AuthenticationInterface;
+import us.freeandfair.corla.controller.LogAppender;
 import us.freeandfair.corla.json.Result;
 import us.freeandfair.corla.model.Administrator;
 import us.freeandfair.corla.model.LogEntry;
 import us.freeandfair.corla.persistence.Persistence;
-import us.freeandfair.corla.query.LogEntryQueries;
 import us.freeandfair.corla.util.SuppressFBWarnings;
 
 /**
@@ -64,9 +68,9 @@ public abstract class AbstractEndpoint implements Endpoint {
   public static final boolean DISABLE_ASM = false;
   
   /**
-   * The number of times to retry committing logs for failed transactions.
+   * The number of seconds to wait for log entries to be committed.
    */
-  public static final int LOG_COMMIT_RETRIES = 5;
+  public static final int LOG_ACKNOWLEDGEMENT_TIMEOUT = 30;
   
   /**
    * The "Retry-After" value for a transaction failure response, in seconds.
@@ -228,6 +232,19 @@ public abstract class AbstractEndpoint implements Endpoint {
     my_endpoint_result.set(the_json);
   }
   
+  /**
+   * Indicate and log that the client's cached copy of the response, 
+   * identified by an entity tag, is still current, so no body is sent.
+   * 
+   * @param the_response The HTTP response.
+   */
+  public void notModified(final Response the_response) {
+    my_log_entries.get().add(new LogEntry(HttpStatus.NOT_MODIFIED_304, endpointName(), 
+                                          Instant.now()));
+    my_status.set(HttpStatus.NOT_MODIFIED_304);
+    my_endpoint_result.set("");
+  }
+  
   /**
    * Indicate the client has violated an invariant or precondition relating data
    * to the endpoint in question. E.g., a digest is incorrect with regards to
@@ -494,33 +511,47 @@ public abstract class AbstractEndpoint implements Endpoint {
   }
   
   /**
-   * Persists, and logs to the system logger, all accumulated log entries for
-   * this endpoint.
+   * Logs a log entry to the system logger.
    * 
-   * @param the_request The request (used to get the hostname of the client 
-   * and the authentication data for the log).
+   * @param the_log_entry The log entry.
+   * @param the_authentication_data The authentication data for the log.
+   * @param the_client_host The hostname of the client.
    */
-  private void sendToLogger(final LogEntry the_log_entry) {
+  private void sendToLogger(final LogEntry the_log_entry, 
+                            final String the_authentication_data,
+                            final String the_client_host) {
     if (the_log_entry.resultCode() == null) {
       Main.LOGGER.log(logLevel(), 
                       the_log_entry.information() + " by " + 
-                      the_log_entry.authenticationData() + " from " + 
-                      the_log_entry.clientHost());
-    } else if (HttpStatus.isSuccess(the_log_entry.resultCode())) {
+                      the_authentication_data + " from " + 
+                      the_client_host);
+    } else if (succeeded(the_log_entry.resultCode())) {
       Main.LOGGER.log(logLevel(), 
                       "successful " + the_log_entry.information() + " by " + 
-                      the_log_entry.authenticationData() + " from " + 
-                      the_log_entry.clientHost());
+                      the_authentication_data + " from " + 
+                      the_client_host);
     } else {
       Main.LOGGER.error("error " + the_log_entry.resultCode() + " " + 
                         the_log_entry.information() + " by " + 
-                        the_log_entry.authenticationData() + " from " + 
-                        the_log_entry.clientHost());
+                        the_authentication_data + " from " + 
+                        the_client_host);
     }
   }
 
-  private void persistLogEntries(final Request the_request) {
-    LogEntry previous_entry = LogEntryQueries.last();
+  /**
+   * Persists, and logs to the system logger, all accumulated log entries for
+   * this endpoint.
+   * 
+   * @param the_request The request (used to get the hostname of the client 
+   * and the authentication data for the log).
+   * @return true if the entries were persisted (or there were none), false
+   * if they could not be persisted in time; the response does not depend on
+   * this, since the request's transaction has already ended.
+   */
+  private boolean persistLogEntries(final Request the_request) {
+    if (my_log_entries.get().isEmpty()) {
+      return true;
+    }
     final Object admin_attribute = 
         the_request.session().attribute(AuthenticationInterface.ADMIN);
     final String admin_data;
@@ -529,17 +560,37 @@ public abstract class AbstractEndpoint implements Endpoint {
     } else {
       admin_data = "(unauthenticated)";
     }
+    final String host = the_request.host();
     
     for (final LogEntry entry : my_log_entries.get()) {
-      // create and persist a new hash-chained log entry for each log entry
-      final LogEntry real_entry =
-          new LogEntry(entry.resultCode(), entry.information(), 
-                       admin_data, the_request.host(),
-                       entry.timestamp(), previous_entry);
-      Persistence.save(real_entry);
-      sendToLogger(real_entry);
-      previous_entry = real_entry;
+      sendToLogger(entry, admin_data, host);
+    }
+    // the log appender chains the entries and inserts them; we wait until
+    // they are committed, so they are durable when the response is sent
+    final CompletableFuture<Void> acknowledgement = 
+        LogAppender.append(my_log_entries.get(), admin_data, host);
+    my_log_entries.get().clear();
+    boolean result = false;
+    try {
+      acknowledgement.get(LOG_ACKNOWLEDGEMENT_TIMEOUT, TimeUnit.SECONDS);
+      result = true;
+    } catch (final ExecutionException e) {
+      Main.LOGGER.error("could not persist log entries: " + e.getMessage());
+    } catch (final TimeoutException e) {
+      // the entries may still be persisted, so we report when they are
+      Main.LOGGER.error("timed out persisting log entries");
+      acknowledgement.whenComplete((the_result, the_failure) -> {
+        if (the_failure == null) {
+          Main.LOGGER.warn("log entries persisted after timeout");
+        } else {
+          Main.LOGGER.error("could not persist log entries: " + the_failure);
+        }
+      });
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      Main.LOGGER.error("interrupted while persisting log entries");
     }
+    return result;
   }
   
   /**
@@ -548,32 +599,20 @@ public abstract class AbstractEndpoint implements Endpoint {
    */
   private boolean successful() {
     return !my_log_entries.get().isEmpty() &&
-           HttpStatus.isSuccess(my_log_entries.
-                                get().get(my_log_entries.get().size() - 1).resultCode());
+           succeeded(my_log_entries.
+                     get().get(my_log_entries.get().size() - 1).resultCode());
   }
   
   /**
-   * Attempts to commit, in a separate transaction, any straggling log entries that
-   * could not be committed due to error.
+   * Checks whether a result code indicates success; a "not modified" 
+   * response to a conditional request is successful.
    * 
-   * @param the_request The request (used for log data).
+   * @param the_code The result code.
+   * @return true if the code indicates success, false otherwise.
    */
-  private void finalizeLogs(final Request the_request) {
-    int log_commit_retries = 0;
-    if (!my_log_entries.get().isEmpty() && log_commit_retries < LOG_COMMIT_RETRIES) {
-      try {
-        log_commit_retries = log_commit_retries + 1;
-        Persistence.beginTransaction();
-        persistLogEntries(the_request);
-        Persistence.commitTransaction();
-        my_log_entries.get().clear();
-      } catch (final PersistenceException e) {
-        Main.LOGGER.error("could not persist log entries for error response after " + 
-                          log_commit_retries + " attempt(s)");
-      }
-    } else if (!my_log_entries.get().isEmpty()) {
-      Main.LOGGER.error("maximum number of log entry commit attempts reached, aborting");
-    }
+  private static boolean succeeded(final Integer the_code) {
+    return the_code != null && 
+           (HttpStatus.isSuccess(the_code) || the_code == HttpStatus.NOT_MODIFIED_304);
   }
   
   /**
@@ -589,10 +628,8 @@ public abstract class AbstractEndpoint implements Endpoint {
         transitionAndSaveASM(the_response) && 
         Persistence.isTransactionActive()) {
       try {
-        // since the transition finished, let's log all the log entries and commit
-        persistLogEntries(the_request);
+        // since the transition finished, let's commit
         Persistence.commitTransaction();
-        my_log_entries.get().clear();
       } catch (final PersistenceException e) {
         // this is an internal server error because we don't know what didn't
         // get committed
@@ -611,14 +648,22 @@ public abstract class AbstractEndpoint implements Endpoint {
         Main.LOGGER.error("could not roll back transaction for error response");
       }
     }
-    // if there are still log entries left, we need to persist them and print them
-    finalizeLogs(the_request);
+    // persist and print the log entries, whether or not the commit succeeded
+    final boolean logged = persistLogEntries(the_request);
     Integer status = my_status.get();
     String endpoint_result = my_endpoint_result.get();
     if (status == null) {
       status = HttpStatus.INTERNAL_SERVER_ERROR_500;
       endpoint_result = 
           Main.GSON.toJson(new Result("server error, no response from endpoint"));
+    } else if (!logged) {
+      // the request's own transaction has already been committed or rolled
+      // back, so its result stands (a client told otherwise could retry a
+      // request that took effect); the missing audit log entries are an
+      // operational problem, and are reported as one
+      Main.LOGGER.fatal("AUDIT LOG ALERT: entries for " + endpointName() + 
+                        " request with result " + status + 
+                        " were not persisted to the audit log");
     }
     the_response.body(endpoint_result);
     the_response.status(status);
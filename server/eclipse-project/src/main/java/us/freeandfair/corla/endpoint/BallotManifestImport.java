@@ -16,7 +16,6 @@ import static us.freeandfair.corla.asm.ASMEvent.CountyDashboardEvent.IMPORT_BALL
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -29,6 +28,7 @@ import spark.Response;
 
 import us.freeandfair.corla.Main;
 import us.freeandfair.corla.asm.ASMEvent;
+import us.freeandfair.corla.controller.BallotManifestLocationIndex;
 import us.freeandfair.corla.csv.BallotManifestParser;
 import us.freeandfair.corla.csv.ColoradoBallotManifestParser;
 import us.freeandfair.corla.model.County;
@@ -36,6 +36,7 @@ import us.freeandfair.corla.model.CountyDashboard;
 import us.freeandfair.corla.model.UploadedFile;
 import us.freeandfair.corla.model.UploadedFile.FileStatus;
 import us.freeandfair.corla.model.UploadedFile.HashStatus;
+import us.freeandfair.corla.persistence.FileStorages;
 import us.freeandfair.corla.persistence.Persistence;
 import us.freeandfair.corla.query.BallotManifestInfoQueries;
 
@@ -117,11 +118,20 @@ public class BallotManifestImport extends AbstractCountyDashboardEndpoint {
   // the CSV parser can throw arbitrary runtime exceptions, which we must catch
   @SuppressWarnings({"PMD.AvoidCatchingGenericException"})
   private void parseFile(final Response the_response, final UploadedFile the_file) {  
-    try (InputStream bmi_is = the_file.file().getBinaryStream()) {
+    final InputStream content;
+    try {
+      content = FileStorages.forFile(the_file).open(the_file);
+    } catch (final IOException e) {
+      Main.LOGGER.info("could not read file " + the_file.filename() + 
+                       PAREN_ID + the_file.id() + ") from persistent storage");
+      return;
+    }
+    try (InputStream bmi_is = content) {
       final InputStreamReader bmi_isr = new InputStreamReader(bmi_is, "UTF-8");
       final BallotManifestParser parser = 
           new ColoradoBallotManifestParser(bmi_isr, 
                                            the_file.county().id());
+      BallotManifestLocationIndex.invalidate(the_file.county().id());
       final int deleted = BallotManifestInfoQueries.deleteMatching(the_file.county().id());
       if (parser.parse()) {
         final int imported = parser.recordCount().getAsInt();
@@ -132,6 +142,9 @@ public class BallotManifestImport extends AbstractCountyDashboardEndpoint {
                               parser.ballotCount().getAsInt());
         the_file.setStatus(FileStatus.IMPORTED_AS_BALLOT_MANIFEST);
         Persistence.saveOrUpdate(the_file);
+        // the index is only used once this file is the county's committed manifest
+        BallotManifestLocationIndex.install(the_file.county().id(), the_file.id(),
+                                            parser.locationIndex().get());
         final Map<String, Integer> response = new HashMap<String, Integer>();
         response.put("records_imported", imported);
         if (deleted > 0) {
@@ -151,9 +164,6 @@ public class BallotManifestImport extends AbstractCountyDashboardEndpoint {
                        the_file.county().id() + ": " + e);
       badDataContents(the_response, "malformed ballot manifest file " + 
                                     the_file.filename() + PAREN_ID + the_file.id() + ")");
-    } catch (final SQLException e) {
-      Main.LOGGER.info("could not read file " + the_file.filename() + 
-                       PAREN_ID + the_file.id() + ") from persistent storage");
     }
   }
 
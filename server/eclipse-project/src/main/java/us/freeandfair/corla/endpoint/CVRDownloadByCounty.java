@@ -11,45 +11,22 @@
 
 package us.freeandfair.corla.endpoint;
 
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.UncheckedIOException;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Stream;
-
-import javax.persistence.PersistenceException;
-
-import com.google.gson.stream.JsonWriter;
 
 import spark.Request;
-import spark.Response;
 
-import us.freeandfair.corla.Main;
-import us.freeandfair.corla.model.CastVoteRecord;
 import us.freeandfair.corla.model.CastVoteRecord.RecordType;
-import us.freeandfair.corla.persistence.Persistence;
-import us.freeandfair.corla.query.CastVoteRecordQueries;
-import us.freeandfair.corla.util.SparkHelper;
 
 /**
- * The ballot manifest download endpoint.
+ * The CVR by county download endpoint.
  * 
  * @author Daniel M. Zimmerman <dmz@freeandfair.us>
  * @version 1.0.0
  */
 @SuppressWarnings("PMD.AtLeastOneConstructor")
-public class CVRDownloadByCounty extends AbstractEndpoint {
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public EndpointType endpointType() {
-    return EndpointType.GET;
-  }
-  
+public class CVRDownloadByCounty extends AbstractCVRDownloadEndpoint {
   /**
    * {@inheritDoc}
    */
@@ -59,66 +36,50 @@ public class CVRDownloadByCounty extends AbstractEndpoint {
   }
   
   /**
-   * This endpoint requires any kind of authentication.
+   * {@inheritDoc}
    */
   @Override
-  public AuthorizationType requiredAuthorization() {
-    return AuthorizationType.EITHER;
+  protected Set<RecordType> recordTypes() {
+    return EnumSet.of(RecordType.UPLOADED);
   }
   
   /**
-   * {@inheritDoc}
+   * The counties are specified by the names of the other parameters; if
+   * there are none, no records are downloaded.
+   * 
+   * @param the_request The request.
+   * @return the county IDs.
    */
   @Override
-  // necessary to break out of the lambda expression in case of IOException
-  @SuppressWarnings("PMD.ExceptionAsFlowControl")
-  public String endpointBody(final Request the_request, final Response the_response) {
-    final Set<Long> county_set = new HashSet<Long>();
+  protected Set<Long> countyIDs(final Request the_request) {
+    final Set<Long> result = new HashSet<Long>();
     for (final String s : the_request.queryParams()) {
-      county_set.add(Long.valueOf(s));
-    }
-    try (OutputStream os = SparkHelper.getRaw(the_response).getOutputStream();
-         BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"));
-         JsonWriter jw = new JsonWriter(bw)) {
-      jw.beginArray();
-      for (final Long county : county_set) {
-        final Stream<CastVoteRecord> matches = 
-            CastVoteRecordQueries.getMatching(county, RecordType.UPLOADED);
-        matches.forEach((the_cvr) -> {
-          try {
-            jw.jsonValue(Main.GSON.toJson(Persistence.unproxy(the_cvr)));
-            Persistence.evict(the_cvr);
-          } catch (final IOException e) {
-            throw new UncheckedIOException(e);
-          } 
-        });
+      if (!AFTER.equals(s) && !COUNT.equals(s)) {
+        result.add(Long.valueOf(s));
       }
-      jw.endArray();
-      jw.flush();
-      jw.close();
-      ok(the_response);
-    } catch (final UncheckedIOException | IOException | PersistenceException e) {
-      serverError(the_response, "Unable to stream response");
     }
-    return my_endpoint_result.get();
+    return result;
   }
   
   /**
-   * Validates the parameters of a request. For this endpoint, 
-   * the paramter names must all be integers.
+   * For this endpoint, the parameter names other than "after" and "count"
+   * must all be integers.
    * 
    * @param the_request The request.
    * @return true if the parameters are valid, false otherwise.
    */
+  @Override
   protected boolean validateParameters(final Request the_request) {
-    boolean result = true;
+    boolean result = super.validateParameters(the_request);
     
     for (final String s : the_request.queryParams()) {
-      try {
-        Integer.parseInt(s);
-      } catch (final NumberFormatException e) {
-        result = false;
-        break;
+      if (!AFTER.equals(s) && !COUNT.equals(s)) {
+        try {
+          Integer.parseInt(s);
+        } catch (final NumberFormatException e) {
+          result = false;
+          break;
+        }
       }
     }
     
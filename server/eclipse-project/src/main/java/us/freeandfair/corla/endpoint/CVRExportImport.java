@@ -14,11 +14,11 @@ package us.freeandfair.corla.endpoint;
 import static us.freeandfair.corla.asm.ASMEvent.CountyDashboardEvent.IMPORT_CVRS_EVENT;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -40,6 +40,8 @@ import us.freeandfair.corla.asm.ASMState;
 import us.freeandfair.corla.asm.ASMState.CountyDashboardState;
 import us.freeandfair.corla.asm.ASMUtilities;
 import us.freeandfair.corla.asm.CountyDashboardASM;
+import us.freeandfair.corla.controller.AuditSequenceCache;
+import us.freeandfair.corla.controller.ImportScheduler;
 import us.freeandfair.corla.csv.DominionCVRExportParser;
 import us.freeandfair.corla.model.AuditReason;
 import us.freeandfair.corla.model.AuditType;
@@ -54,11 +56,11 @@ import us.freeandfair.corla.model.ImportStatus.ImportState;
 import us.freeandfair.corla.model.UploadedFile;
 import us.freeandfair.corla.model.UploadedFile.FileStatus;
 import us.freeandfair.corla.model.UploadedFile.HashStatus;
+import us.freeandfair.corla.persistence.FileStorages;
 import us.freeandfair.corla.persistence.Persistence;
 import us.freeandfair.corla.query.CastVoteRecordQueries;
 import us.freeandfair.corla.query.CountyContestResultQueries;
 import us.freeandfair.corla.util.ExponentialBackoffHelper;
-import us.freeandfair.corla.util.UploadedFileStreamer;
 
 /**
  * The "CVR export import" endpoint.
@@ -71,11 +73,24 @@ import us.freeandfair.corla.util.UploadedFileStreamer;
     "PMD.StdCyclomaticComplexity", "PMD.GodClass", "PMD.DoNotUseThreads"})
 public class CVRExportImport extends AbstractCountyDashboardEndpoint {
   /**
-   * The static set of counties that are currently running imports. This is
-   * used to prevent multiple counties from importing CVRs at the same time, 
-   * which would cause issues since this endpoint is not a single transaction.
+   * The "import workers" property.
    */
-  private static final Set<Long> COUNTIES_RUNNING = new HashSet<Long>();
+  public static final String WORKERS_PROPERTY = "cvr_import_workers";
+  
+  /**
+   * The default number of import workers. Each running import uses two 
+   * database connections (one to read the uploaded file and one to write
+   * the CVRs), so this leaves most of the default connection pool for 
+   * other requests.
+   */
+  public static final int DEFAULT_WORKERS = 4;
+  
+  /**
+   * The scheduler that runs CVR imports. It allows only one import at a time
+   * for each county, which is necessary since this endpoint is not a single 
+   * transaction, and bounds the number of imports running at once.
+   */
+  private static ImportScheduler scheduler;
   
   /**
    * {@inheritDoc}
@@ -116,13 +131,8 @@ public class CVRExportImport extends AbstractCountyDashboardEndpoint {
     }
     
     // check to be sure that the same county isn't in the middle of a CVR import
-    synchronized (COUNTIES_RUNNING) {
-      if (COUNTIES_RUNNING.contains(county.id())) {
-        transactionFailure(the_response, 
-                           "county " + county.id() + " is already importing CVRs, try later");
-        // for a transaction failure, we have to halt explicitly
-        halt(the_response);
-      }
+    if (scheduler().isScheduled(county.id())) {
+      alreadyImporting(the_response, county);
     }
     
     try {
@@ -144,13 +154,11 @@ public class CVRExportImport extends AbstractCountyDashboardEndpoint {
         }
         final Map<String, Instant> result = new HashMap<>();
         result.put("import_start_time", Instant.now());
-        // spawn a thread to do the import; this endpoint always immediately 
-        // returns a successful result if we get to this point
-        synchronized (COUNTIES_RUNNING) {
-          // signal that we're starting the import
-          COUNTIES_RUNNING.add(county.id());
+        // queue the import; this endpoint always immediately returns a 
+        // successful result if we get to this point
+        if (!scheduler().submit(county.id(), new CVRImporter(file))) {
+          alreadyImporting(the_response, county);
         }
-        (new Thread(new CVRImporter(file))).start();
         
         okJSON(the_response, Main.GSON.toJson(result));
       } else {
@@ -164,10 +172,36 @@ public class CVRExportImport extends AbstractCountyDashboardEndpoint {
   }
   
   /**
-   * @return the COUNTIES_RUNNING set.
+   * Reports that the specified county is already importing CVRs, and halts.
+   * 
+   * @param the_response The response.
+   * @param the_county The county.
+   */
+  private void alreadyImporting(final Response the_response, final County the_county) {
+    transactionFailure(the_response, 
+                       "county " + the_county.id() + " is already importing CVRs, try later");
+    // for a transaction failure, we have to halt explicitly
+    halt(the_response);
+  }
+  
+  /**
+   * @return the scheduler that runs CVR imports, creating it with the 
+   * configured number of workers if necessary.
    */
-  protected static final Set<Long> countiesRunning() {
-    return COUNTIES_RUNNING;
+  public static synchronized ImportScheduler scheduler() {
+    if (scheduler == null) {
+      int workers;
+      try {
+        workers = Integer.parseInt(Main.properties().
+                                   getProperty(WORKERS_PROPERTY, 
+                                               String.valueOf(DEFAULT_WORKERS)));
+      } catch (final NumberFormatException e) {
+        workers = DEFAULT_WORKERS;
+      }
+      scheduler = new ImportScheduler("cvr-import", workers);
+      Main.LOGGER.info("CVR imports will use " + scheduler.workers() + " workers");
+    }
+    return scheduler;
   }
   
   /**
@@ -249,6 +283,9 @@ public class CVRExportImport extends AbstractCountyDashboardEndpoint {
         // this outer try block is the "last resort" cleanup block
         Persistence.beginTransaction();
         try {
+          if (ImportScheduler.isCurrentJobCancelled()) {
+            error("CVR import cancelled before it started");
+          }
           parseFile(my_file);
           updateStateMachine(true);
           Persistence.commitTransaction();
@@ -278,13 +315,6 @@ public class CVRExportImport extends AbstractCountyDashboardEndpoint {
         if (Persistence.canTransactionRollback()) {
           Persistence.rollbackTransaction();
         }
-      } finally {
-        // release the lock on CVR imports for this county
-        final Set<Long> counties_running = countiesRunning();
-        synchronized (counties_running) {
-          // signal that we're ending the import
-          counties_running.remove(my_file.county().id());
-        }
       }
     }
     
@@ -457,11 +487,12 @@ public class CVRExportImport extends AbstractCountyDashboardEndpoint {
      */
     @SuppressWarnings({"PMD.AvoidCatchingGenericException", "PMD.AvoidRethrowingException"})
     private void parseFile(final UploadedFile the_file) {
-      final UploadedFileStreamer ufs = new UploadedFileStreamer(the_file);
-      (new Thread(ufs)).start();
+      // the file must be readable across the parser's transactions
+      InputStream content = null;
         
       try {
-        final InputStreamReader bmi_isr = new InputStreamReader(ufs.inputStream(), "UTF-8");
+        content = FileStorages.forFile(the_file).openDetached(the_file);
+        final InputStreamReader bmi_isr = new InputStreamReader(content, "UTF-8");
         final DominionCVRExportParser parser = 
             new DominionCVRExportParser(bmi_isr, 
                                         Persistence.getByID(the_file.county().id(), 
@@ -498,6 +529,16 @@ public class CVRExportImport extends AbstractCountyDashboardEndpoint {
                 the_file.filename() + PAREN_ID + the_file.id() + ")]");
         }
       } catch (final PersistenceException e) {
+        if (ImportScheduler.isCurrentJobCancelled()) {
+          // the parser was interrupted by the cancellation, and the interrupt
+          // must be cleared before we can clean up
+          Thread.interrupted();
+          Main.LOGGER.info("CVR import cancelled for county " + the_file.county().id() + 
+                           ", attempting cleanup");
+          cleanup(the_file.county(), true, "import cancelled");
+          error("CVR import cancelled [file " + 
+                the_file.filename() + PAREN_ID + the_file.id() + ")]");
+        }
         Main.LOGGER.info("parse transactions did not complete successfully, " + 
                          "attempting cleanup");
         try {
@@ -521,7 +562,13 @@ public class CVRExportImport extends AbstractCountyDashboardEndpoint {
         error("malformed CVR export file " + 
               the_file.filename() + PAREN_ID + the_file.id() + ")");
       } finally {
-        ufs.stop();
+        if (content != null) {
+          try {
+            content.close();
+          } catch (final IOException e) {
+            // we're done with it anyway
+          }
+        }
       }
     }
     
@@ -582,6 +629,8 @@ public class CVRExportImport extends AbstractCountyDashboardEndpoint {
           }
           Persistence.commitTransaction();
           success = true;
+          // the county's CVRs are gone, so its audit sequence must be regenerated
+          AuditSequenceCache.invalidate(the_county.id());
         } catch (final PersistenceException e) {
           // something went wrong, let's try again
           if (Persistence.canTransactionRollback()) {
@@ -0,0 +1,82 @@
+/*
+ * Free & Fair Colorado RLA System
+ * 
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.endpoint;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Level;
+
+import spark.Request;
+import spark.Response;
+
+import us.freeandfair.corla.Main;
+import us.freeandfair.corla.controller.ImportScheduler;
+
+/**
+ * The endpoint for viewing the CVR import queue: the number of import 
+ * workers, the number of imports waiting for a worker, and the status of
+ * every queued or running import.
+ * 
+ * @version 1.0.0
+ */
+// endpoints don't need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class CVRImportQueue extends AbstractDoSDashboardEndpoint {
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public EndpointType endpointType() {
+    return EndpointType.GET;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String endpointName() {
+    return "/cvr-import-queue";
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Level logLevel() {
+    return Level.DEBUG;
+  }
+  
+  /**
+   * Provides information about the CVR import queue.
+   * 
+   * @param the_request The request.
+   * @param the_response The response.
+   */
+  @Override
+  public String endpointBody(final Request the_request, final Response the_response) {
+    final ImportScheduler scheduler = CVRExportImport.scheduler();
+    final Map<String, Object> result = new HashMap<>();
+    result.put("workers", scheduler.workers());
+    result.put("queue_depth", scheduler.queueDepth());
+    result.put("imports", scheduler.jobs());
+    okJSON(the_response, Main.GSON.toJson(result));
+    return my_endpoint_result.get();
+  }
+
+  /**
+   * This endpoint requires STATE authorization.
+   */
+  @Override
+  public AuthorizationType requiredAuthorization() {
+    return AuthorizationType.STATE;
+  }
+}
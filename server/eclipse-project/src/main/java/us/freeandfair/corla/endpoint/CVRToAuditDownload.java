@@ -35,6 +35,7 @@ import spark.Request;
 import spark.Response;
 
 import us.freeandfair.corla.Main;
+import us.freeandfair.corla.controller.BallotManifestLocationIndex;
 import us.freeandfair.corla.controller.ComparisonAuditController;
 import us.freeandfair.corla.json.CVRToAuditResponse;
 import us.freeandfair.corla.json.CVRToAuditResponse.BallotOrderComparator;
@@ -42,7 +43,6 @@ import us.freeandfair.corla.model.CastVoteRecord;
 import us.freeandfair.corla.model.County;
 import us.freeandfair.corla.model.CountyDashboard;
 import us.freeandfair.corla.persistence.Persistence;
-import us.freeandfair.corla.query.BallotManifestInfoQueries;
 import us.freeandfair.corla.util.SparkHelper;
 
 /**
@@ -235,9 +235,11 @@ public class CVRToAuditDownload extends AbstractEndpoint {
                                                          duplicates, audited);
       }
      
+      final BallotManifestLocationIndex locations =
+          BallotManifestLocationIndex.forCounty(cdb);
       for (int i = 0; i < cvr_to_audit_list.size(); i++) {
         final CastVoteRecord cvr = cvr_to_audit_list.get(i);
-        final String location = BallotManifestInfoQueries.locationFor(cvr);
+        final String location = locations.location(cvr);
         response_list.add(new CVRToAuditResponse(i, cvr.scannerID(), 
                                                  cvr.batchID(), cvr.recordID(), 
                                                  cvr.imprintedID(), 
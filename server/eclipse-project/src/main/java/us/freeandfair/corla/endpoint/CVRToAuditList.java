@@ -21,6 +21,7 @@ import spark.Request;
 import spark.Response;
 
 import us.freeandfair.corla.Main;
+import us.freeandfair.corla.controller.BallotManifestLocationIndex;
 import us.freeandfair.corla.controller.ComparisonAuditController;
 import us.freeandfair.corla.json.CVRToAuditResponse;
 import us.freeandfair.corla.json.CVRToAuditResponse.BallotOrderComparator;
@@ -28,7 +29,6 @@ import us.freeandfair.corla.model.CastVoteRecord;
 import us.freeandfair.corla.model.County;
 import us.freeandfair.corla.model.CountyDashboard;
 import us.freeandfair.corla.persistence.Persistence;
-import us.freeandfair.corla.query.BallotManifestInfoQueries;
 
 /**
  * The CVR to audit list endpoint.
@@ -211,9 +211,11 @@ public class CVRToAuditList extends AbstractEndpoint {
                                                          duplicates, audited);
       }
      
+      final BallotManifestLocationIndex locations =
+          BallotManifestLocationIndex.forCounty(cdb);
       for (int i = 0; i < cvr_to_audit_list.size(); i++) {
         final CastVoteRecord cvr = cvr_to_audit_list.get(i);
-        final String location = BallotManifestInfoQueries.locationFor(cvr);
+        final String location = locations.location(cvr);
         response_list.add(new CVRToAuditResponse(i, cvr.scannerID(), 
                                                  cvr.batchID(), cvr.recordID(), 
                                                  cvr.imprintedID(), 
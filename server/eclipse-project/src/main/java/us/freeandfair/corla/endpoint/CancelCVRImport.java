@@ -0,0 +1,63 @@
+/*
+ * Free & Fair Colorado RLA System
+ * 
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.endpoint;
+
+import spark.Request;
+import spark.Response;
+
+import us.freeandfair.corla.Main;
+import us.freeandfair.corla.model.County;
+
+/**
+ * The endpoint for cancelling a county's queued or running CVR import. The
+ * import fails as it would for any other reason, cleaning up any CVRs it
+ * has already imported, and the county can then import again.
+ * 
+ * @version 1.0.0
+ */
+// endpoints don't need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class CancelCVRImport extends AbstractCountyDashboardEndpoint {
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public EndpointType endpointType() {
+    return EndpointType.POST;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String endpointName() {
+    return "/cancel-cvr-import";
+  }
+
+  /**
+   * Cancels the authenticated county's CVR import.
+   * 
+   * @param the_request The request.
+   * @param the_response The response.
+   */
+  @Override
+  public String endpointBody(final Request the_request, final Response the_response) {
+    final County county = Main.authentication().authenticatedCounty(the_request);
+    if (county == null) {
+      unauthorized(the_response, "unauthorized administrator for CVR import cancellation");
+    } else if (CVRExportImport.scheduler().cancel(county.id())) {
+      ok(the_response, "CVR import cancelled for county " + county.id());
+    } else {
+      dataNotFound(the_response, "county " + county.id() + " is not importing CVRs");
+    }
+    return my_endpoint_result.get();
+  }
+}
@@ -19,13 +19,17 @@ import spark.Request;
 import spark.Response;
 
 import us.freeandfair.corla.Main;
+import us.freeandfair.corla.controller.DashboardVersion;
 import us.freeandfair.corla.json.CountyDashboardRefreshResponse;
 import us.freeandfair.corla.model.County;
 import us.freeandfair.corla.model.CountyDashboard;
 import us.freeandfair.corla.persistence.Persistence;
 
 /**
- * The endpoint for refreshing the county dashboard status.
+ * The endpoint for refreshing the county dashboard status. The response
+ * carries an entity tag naming the version of the county's dashboard, so 
+ * a poll whose If-None-Match header names the current version gets an 
+ * empty "not modified" response.
  * 
  * @author Daniel M. Zimmerman <dmz@freeandfair.us>
  * @version 1.0.0
@@ -67,10 +71,19 @@ public class CountyDashboardRefresh extends AbstractCountyDashboardEndpoint {
   public String endpointBody(final Request the_request, final Response the_response) {
     try {
       final County county = Main.authentication().authenticatedCounty(the_request);
-          
-      okJSON(the_response, 
-             Main.GSON.toJson(CountyDashboardRefreshResponse.createResponse
-                              (Persistence.getByID(county.id(), CountyDashboard.class))));
+      final String entity_tag = 
+          DashboardVersion.entityTag("county-" + county.id(), 
+                                     DashboardVersion.county(county.id()));
+      the_response.header("ETag", entity_tag);
+      if (entity_tag.equals(the_request.headers("If-None-Match"))) {
+        notModified(the_response);
+      } else {
+        // the version was read in this transaction, so it describes the
+        // state the response is built from
+        okJSON(the_response, 
+               Main.GSON.toJson(CountyDashboardRefreshResponse.createResponse
+                                (Persistence.getByID(county.id(), CountyDashboard.class))));
+      }
     } catch (final PersistenceException e) {
       serverError(the_response, "could not obtain dashboard state");
     }
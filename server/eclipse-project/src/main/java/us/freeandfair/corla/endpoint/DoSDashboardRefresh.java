@@ -11,6 +11,8 @@
 
 package us.freeandfair.corla.endpoint;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import javax.persistence.PersistenceException;
 
 import org.apache.log4j.Level;
@@ -19,12 +21,16 @@ import spark.Request;
 import spark.Response;
 
 import us.freeandfair.corla.Main;
+import us.freeandfair.corla.controller.DashboardVersion;
 import us.freeandfair.corla.json.DoSDashboardRefreshResponse;
 import us.freeandfair.corla.model.DoSDashboard;
 import us.freeandfair.corla.persistence.Persistence;
 
 /**
  * The endpoint for refreshing the Department of State dashboard status.
+ * The response is built at most once for each dashboard version and shared
+ * by all pollers; it carries an entity tag, so a poll whose If-None-Match 
+ * header names the current version gets an empty "not modified" response.
  * 
  * @author Daniel M. Zimmerman <dmz@freeandfair.us>
  * @version 1.0.0
@@ -32,6 +38,11 @@ import us.freeandfair.corla.persistence.Persistence;
 // endpoints don't need constructors
 @SuppressWarnings("PMD.AtLeastOneConstructor")
 public class DoSDashboardRefresh extends AbstractDoSDashboardEndpoint {
+  /**
+   * The most recently built snapshot of the dashboard.
+   */
+  private static final AtomicReference<Snapshot> SNAPSHOT = new AtomicReference<>();
+  
   /**
    * {@inheritDoc}
    */
@@ -65,9 +76,13 @@ public class DoSDashboardRefresh extends AbstractDoSDashboardEndpoint {
   @Override
   public String endpointBody(final Request the_request, final Response the_response) {
     try {
-      okJSON(the_response, 
-             Main.GSON.toJson(DoSDashboardRefreshResponse.createResponse
-                              (Persistence.getByID(DoSDashboard.ID, DoSDashboard.class))));
+      final Snapshot snapshot = currentSnapshot();
+      the_response.header("ETag", snapshot.my_entity_tag);
+      if (snapshot.my_entity_tag.equals(the_request.headers("If-None-Match"))) {
+        notModified(the_response);
+      } else {
+        okJSON(the_response, snapshot.my_json);
+      }
     } catch (final PersistenceException e) {
       serverError(the_response, "could not obtain dashboard state");
     }
@@ -81,4 +96,58 @@ public class DoSDashboardRefresh extends AbstractDoSDashboardEndpoint {
   public AuthorizationType requiredAuthorization() {
     return AuthorizationType.STATE;
   }
+  
+  /**
+   * Gets a snapshot of the dashboard for the current version, building it
+   * if necessary. The version is read in the request's transaction, which
+   * under repeatable read shows the same committed state throughout, so a
+   * snapshot built in it shows exactly the state the version describes.
+   * 
+   * @return the snapshot.
+   * @exception PersistenceException if the dashboard state cannot be read.
+   */
+  private static Snapshot currentSnapshot() {
+    final String version = DashboardVersion.dos();
+    Snapshot result = SNAPSHOT.get();
+    if (result == null || !result.my_version.equals(version)) {
+      final String json = 
+          Main.GSON.toJson(DoSDashboardRefreshResponse.createResponse
+                           (Persistence.getByID(DoSDashboard.ID, DoSDashboard.class)));
+      result = new Snapshot(version, json);
+      SNAPSHOT.set(result);
+    }
+    return result;
+  }
+  
+  /**
+   * A snapshot of the dashboard response at a particular version.
+   */
+  private static class Snapshot {
+    /**
+     * The version.
+     */
+    private final String my_version;
+    
+    /**
+     * The response JSON.
+     */
+    private final String my_json;
+    
+    /**
+     * The entity tag.
+     */
+    private final String my_entity_tag;
+    
+    /**
+     * Constructs a new snapshot.
+     * 
+     * @param the_version The version.
+     * @param the_json The response JSON.
+     */
+    Snapshot(final String the_version, final String the_json) {
+      my_version = the_version;
+      my_json = the_json;
+      my_entity_tag = DashboardVersion.entityTag("dos", the_version);
+    }
+  }
 }
@@ -12,9 +12,9 @@
 package us.freeandfair.corla.endpoint;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.sql.SQLException;
 
 import org.apache.cxf.attachment.Rfc5987Util;
 
@@ -26,6 +26,7 @@ import spark.Response;
 import us.freeandfair.corla.Main;
 import us.freeandfair.corla.model.County;
 import us.freeandfair.corla.model.UploadedFile;
+import us.freeandfair.corla.persistence.FileStorages;
 import us.freeandfair.corla.util.FileHelper;
 import us.freeandfair.corla.util.SparkHelper;
 
@@ -111,13 +112,13 @@ public class FileDownload extends AbstractEndpoint {
           serverError(the_response, "UTF-8 is unsupported (this should never happen)");
         }
         
-        try (OutputStream os = SparkHelper.getRaw(the_response).getOutputStream()) {
+        try (InputStream is = FileStorages.forFile(file).open(file);
+             OutputStream os = SparkHelper.getRaw(the_response).getOutputStream()) {
           final int total =
-              FileHelper.bufferedCopy(file.file().getBinaryStream(), os, 
-                                      BUFFER_SIZE, MAX_DOWNLOAD_SIZE);
+              FileHelper.bufferedCopy(is, os, BUFFER_SIZE, MAX_DOWNLOAD_SIZE);
           Main.LOGGER.debug("sent file " + file.filename() + " of size " + total);
           ok(the_response);
-        } catch (final SQLException | IOException e) {
+        } catch (final IOException e) {
           serverError(the_response, "Unable to stream response");
         }
       } else {
@@ -12,14 +12,10 @@
 package us.freeandfair.corla.endpoint;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.LineNumberReader;
-import java.io.OutputStream;
-import java.sql.Blob;
+import java.nio.channels.FileChannel;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Locale;
@@ -38,15 +34,14 @@ import spark.Request;
 import spark.Response;
 
 import us.freeandfair.corla.Main;
-import us.freeandfair.corla.crypto.HashChecker;
 import us.freeandfair.corla.model.County;
 import us.freeandfair.corla.model.UploadedFile;
 import us.freeandfair.corla.model.UploadedFile.FileStatus;
 import us.freeandfair.corla.model.UploadedFile.HashStatus;
-import us.freeandfair.corla.persistence.Persistence;
+import us.freeandfair.corla.persistence.FileStorages;
 import us.freeandfair.corla.util.FileHelper;
+import us.freeandfair.corla.util.FileHelper.DigestedCopy;
 import us.freeandfair.corla.util.SparkHelper;
-import us.freeandfair.corla.util.SuppressFBWarnings;
 
 /**
  * The file upload endpoint.
@@ -110,24 +105,14 @@ public class FileUpload extends AbstractEndpoint {
    * @param the_county The county that uploaded the file.
    * @return the resulting entity if successful, null otherwise
    */
-  // we are deliberately ignoring the return value of lnr.skip()
-  @SuppressFBWarnings("SR_NOT_CHECKED")
   private UploadedFile attemptFilePersistence(final Response the_response, 
                                               final UploadInformation the_info,
                                               final County the_county) {
     UploadedFile result = null;
     
-    try (FileInputStream is = new FileInputStream(the_info.my_file);
-         LineNumberReader lnr = 
-             new LineNumberReader(new InputStreamReader(new FileInputStream(the_info.my_file), 
-                                                        "UTF-8"))) {
-      final Blob blob = Persistence.blobFor(is, the_info.my_file.length());
+    try {
       final HashStatus hash_status;
       
-      // first, compute the approximate number of records in the file
-      lnr.skip(Integer.MAX_VALUE);
-      final int approx_records = lnr.getLineNumber();
-      
       if (the_info.my_computed_hash == null) {
         hash_status = HashStatus.NOT_CHECKED;
       } else if (the_info.my_computed_hash.equals(the_info.my_uploaded_hash)) {
@@ -140,15 +125,16 @@ public class FileUpload extends AbstractEndpoint {
                                 the_info.my_filename,
                                 FileStatus.NOT_IMPORTED, 
                                 the_info.my_uploaded_hash,
-                                hash_status, blob, 
-                                the_info.my_file.length(),
-                                approx_records);
-      Persistence.save(result);
-      Persistence.flush();
+                                hash_status, null, 
+                                the_info.my_copy.size(),
+                                the_info.my_copy.lines());
+      FileStorages.configured().save(result, the_info.my_file.toPath(), 
+                                     the_info.my_copy.hash());
     } catch (final PersistenceException | IOException e) {
       badDataType(the_response, "could not persist file of size " + 
-                                the_info.my_file.length());
+                                the_info.my_copy.size());
       the_info.my_ok = false;
+      result = null;
     }
     return result;
   }
@@ -181,12 +167,16 @@ public class FileUpload extends AbstractEndpoint {
           if (item.isFormField()) {
             the_info.my_form_fields.put(item.getFieldName(), Streams.asString(stream));
           } else if (FILE.equals(name)) {
-            // save the file
+            // save the file, hashing it and counting its lines (which approximate
+            // the number of records in it) as it is saved
             the_info.my_filename = item.getName();
             the_info.my_file = File.createTempFile("upload", ".csv");
-            final OutputStream os = new FileOutputStream(the_info.my_file);
-            final int total =
-                FileHelper.bufferedCopy(stream, os, BUFFER_SIZE, MAX_UPLOAD_SIZE);
+            try (FileOutputStream os = new FileOutputStream(the_info.my_file);
+                 FileChannel channel = os.getChannel()) {
+              the_info.my_copy = 
+                  FileHelper.digestingCopy(stream, channel, BUFFER_SIZE, MAX_UPLOAD_SIZE);
+            }
+            final long total = the_info.my_copy.size();
 
             if (total >= MAX_UPLOAD_SIZE) {
               Main.LOGGER.info("attempt to upload file greater than max size from " +
@@ -197,7 +187,6 @@ public class FileUpload extends AbstractEndpoint {
               Main.LOGGER.info("successfully saved file of size " + total + " from " +
                                raw.getRemoteHost());
             }
-            os.close();
           }
         }
       }
@@ -245,7 +234,7 @@ public class FileUpload extends AbstractEndpoint {
       UploadedFile uploaded_file = null;
     
       if (info.my_ok) {
-        info.my_computed_hash = HashChecker.hashFile(info.my_file);
+        info.my_computed_hash = info.my_copy.hash();
         info.my_uploaded_hash = 
             info.my_form_fields.get(HASH).toUpperCase(Locale.US).trim();
         uploaded_file = attemptFilePersistence(the_response, info, county);
@@ -255,8 +244,8 @@ public class FileUpload extends AbstractEndpoint {
         okJSON(the_response, Main.GSON.toJson(uploaded_file));
       } // else another result code has already been set
     } finally {
-      // delete the temp file, if it exists
-      if (info.my_file != null) {
+      // delete the temp file, if it exists (file storage may have moved it)
+      if (info.my_file != null && info.my_file.exists()) {
         try {
           if (!info.my_file.delete()) {
             Main.LOGGER.error("Unable to delete temp file " + info.my_file);
@@ -277,6 +266,11 @@ public class FileUpload extends AbstractEndpoint {
      * The uploaded file.
      */
     protected File my_file;
+    
+    /**
+     * The results of copying the uploaded file.
+     */
+    protected DigestedCopy my_copy;
 
     /**
      * The original name of the uploaded file.
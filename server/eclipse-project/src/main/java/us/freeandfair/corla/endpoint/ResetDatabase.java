@@ -15,10 +15,14 @@ import spark.Request;
 import spark.Response;
 
 import us.freeandfair.corla.asm.AbstractStateMachine;
+import us.freeandfair.corla.asm.ASMStateCache;
 import us.freeandfair.corla.asm.AuditBoardDashboardASM;
 import us.freeandfair.corla.asm.CountyDashboardASM;
 import us.freeandfair.corla.asm.DoSDashboardASM;
 import us.freeandfair.corla.asm.PersistentASMState;
+import us.freeandfair.corla.controller.AuditSequenceCache;
+import us.freeandfair.corla.controller.BallotManifestLocationIndex;
+import us.freeandfair.corla.controller.ContestAggregator;
 import us.freeandfair.corla.model.County;
 import us.freeandfair.corla.model.CountyDashboard;
 import us.freeandfair.corla.model.DoSDashboard;
@@ -87,6 +91,10 @@ public class ResetDatabase extends AbstractEndpoint {
     // delete everything
     
     DatabaseResetQueries.resetDatabase();
+    AuditSequenceCache.invalidateAll();
+    BallotManifestLocationIndex.invalidateAll();
+    ASMStateCache.invalidateAll();
+    ContestAggregator.invalidateAll();
     
     // create new dashboards
     final DoSDashboard dosdb = new DoSDashboard();
@@ -0,0 +1,295 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.json;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.gson.annotations.JsonAdapter;
+
+import us.freeandfair.corla.model.CastVoteRecord.RecordType;
+
+/**
+ * A flat, read-only projection of a cast vote record, as read directly from
+ * the database for export. It is not a persistent entity, so it is never
+ * part of a persistence context; its JSON form is the same as that of the
+ * CastVoteRecord it was read from.
+ *
+ * @version 1.0.0
+ */
+@JsonAdapter(CastVoteRecordProjectionJsonAdapter.class)
+@SuppressWarnings("PMD.TooManyFields")
+public class CastVoteRecordProjection {
+  /**
+   * The ID.
+   */
+  private final Long my_id;
+
+  /**
+   * The record type.
+   */
+  private final RecordType my_record_type;
+
+  /**
+   * The timestamp.
+   */
+  private final Instant my_timestamp;
+
+  /**
+   * The county ID.
+   */
+  private final Long my_county_id;
+
+  /**
+   * The CVR number.
+   */
+  private final Integer my_cvr_number;
+
+  /**
+   * The sequence number.
+   */
+  private final Integer my_sequence_number;
+
+  /**
+   * The scanner ID.
+   */
+  private final Integer my_scanner_id;
+
+  /**
+   * The batch ID.
+   */
+  private final Integer my_batch_id;
+
+  /**
+   * The record ID.
+   */
+  private final Integer my_record_id;
+
+  /**
+   * The imprinted ID.
+   */
+  private final String my_imprinted_id;
+
+  /**
+   * The ballot type.
+   */
+  private final String my_ballot_type;
+
+  /**
+   * The contest information, in order.
+   */
+  private final List<ContestInfo> my_contest_info = new ArrayList<>();
+
+  /**
+   * Constructs a new projection with no contest information.
+   *
+   * @param the_id The ID.
+   * @param the_record_type The record type.
+   * @param the_timestamp The timestamp.
+   * @param the_county_id The county ID.
+   * @param the_cvr_number The CVR number.
+   * @param the_sequence_number The sequence number.
+   * @param the_scanner_id The scanner ID.
+   * @param the_batch_id The batch ID.
+   * @param the_record_id The record ID.
+   * @param the_imprinted_id The imprinted ID.
+   * @param the_ballot_type The ballot type.
+   */
+  @SuppressWarnings("PMD.ExcessiveParameterList")
+  public CastVoteRecordProjection(final Long the_id,
+                                  final RecordType the_record_type,
+                                  final Instant the_timestamp,
+                                  final Long the_county_id,
+                                  final Integer the_cvr_number,
+                                  final Integer the_sequence_number,
+                                  final Integer the_scanner_id,
+                                  final Integer the_batch_id,
+                                  final Integer the_record_id,
+                                  final String the_imprinted_id,
+                                  final String the_ballot_type) {
+    my_id = the_id;
+    my_record_type = the_record_type;
+    my_timestamp = the_timestamp;
+    my_county_id = the_county_id;
+    my_cvr_number = the_cvr_number;
+    my_sequence_number = the_sequence_number;
+    my_scanner_id = the_scanner_id;
+    my_batch_id = the_batch_id;
+    my_record_id = the_record_id;
+    my_imprinted_id = the_imprinted_id;
+    my_ballot_type = the_ballot_type;
+  }
+
+  /**
+   * Adds contest information to this projection; contest information must
+   * be added in order.
+   *
+   * @param the_info The contest information.
+   */
+  public void addContestInfo(final ContestInfo the_info) {
+    my_contest_info.add(the_info);
+  }
+
+  /**
+   * @return the ID.
+   */
+  public Long id() {
+    return my_id;
+  }
+
+  /**
+   * @return the record type.
+   */
+  public RecordType recordType() {
+    return my_record_type;
+  }
+
+  /**
+   * @return the timestamp.
+   */
+  public Instant timestamp() {
+    return my_timestamp;
+  }
+
+  /**
+   * @return the county ID.
+   */
+  public Long countyID() {
+    return my_county_id;
+  }
+
+  /**
+   * @return the CVR number.
+   */
+  public Integer cvrNumber() {
+    return my_cvr_number;
+  }
+
+  /**
+   * @return the sequence number.
+   */
+  public Integer sequenceNumber() {
+    return my_sequence_number;
+  }
+
+  /**
+   * @return the scanner ID.
+   */
+  public Integer scannerID() {
+    return my_scanner_id;
+  }
+
+  /**
+   * @return the batch ID.
+   */
+  public Integer batchID() {
+    return my_batch_id;
+  }
+
+  /**
+   * @return the record ID.
+   */
+  public Integer recordID() {
+    return my_record_id;
+  }
+
+  /**
+   * @return the imprinted ID.
+   */
+  public String imprintedID() {
+    return my_imprinted_id;
+  }
+
+  /**
+   * @return the ballot type.
+   */
+  public String ballotType() {
+    return my_ballot_type;
+  }
+
+  /**
+   * @return the contest information.
+   */
+  public List<ContestInfo> contestInfo() {
+    return Collections.unmodifiableList(my_contest_info);
+  }
+
+  /**
+   * The contest information of a projected cast vote record.
+   */
+  public static class ContestInfo {
+    /**
+     * The contest ID.
+     */
+    private final Long my_contest_id;
+
+    /**
+     * The comment.
+     */
+    private final String my_comment;
+
+    /**
+     * The consensus value, as stored.
+     */
+    private final String my_consensus;
+
+    /**
+     * The choices, as stored (a JSON array of strings).
+     */
+    private final String my_choices;
+
+    /**
+     * Constructs new contest information.
+     *
+     * @param the_contest_id The contest ID.
+     * @param the_comment The comment.
+     * @param the_consensus The consensus value, as stored.
+     * @param the_choices The choices, as stored.
+     */
+    public ContestInfo(final Long the_contest_id, final String the_comment,
+                       final String the_consensus, final String the_choices) {
+      my_contest_id = the_contest_id;
+      my_comment = the_comment;
+      my_consensus = the_consensus;
+      my_choices = the_choices;
+    }
+
+    /**
+     * @return the contest ID.
+     */
+    public Long contestID() {
+      return my_contest_id;
+    }
+
+    /**
+     * @return the comment.
+     */
+    public String comment() {
+      return my_comment;
+    }
+
+    /**
+     * @return the consensus value, as stored.
+     */
+    public String consensus() {
+      return my_consensus;
+    }
+
+    /**
+     * @return the choices, as stored (a JSON array of strings).
+     */
+    public String choices() {
+      return my_choices;
+    }
+  }
+}
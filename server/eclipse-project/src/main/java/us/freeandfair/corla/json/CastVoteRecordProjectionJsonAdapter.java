@@ -0,0 +1,239 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.json;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import us.freeandfair.corla.json.CastVoteRecordProjection.ContestInfo;
+import us.freeandfair.corla.model.CastVoteRecord.RecordType;
+
+/**
+ * JSON adapter for cast vote record projections. It writes the same JSON
+ * as Gson writes for a CastVoteRecord (with CVRContestInfoJsonAdapter for
+ * its contest information), directly to the JSON writer, and reads that
+ * JSON back into a projection.
+ *
+ * @version 1.0.0
+ */
+// the default constructor suffices for type adapters
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public final class CastVoteRecordProjectionJsonAdapter
+    extends TypeAdapter<CastVoteRecordProjection> {
+  /**
+   * Writes a cast vote record projection.
+   *
+   * @param the_writer The JSON writer.
+   * @param the_cvr The object to write.
+   */
+  @Override
+  public void write(final JsonWriter the_writer,
+                    final CastVoteRecordProjection the_cvr)
+      throws IOException {
+    the_writer.beginObject();
+    the_writer.name("id").value(the_cvr.id());
+    if (the_cvr.recordType() != null) {
+      the_writer.name("record_type").value(the_cvr.recordType().toString());
+    }
+    if (the_cvr.timestamp() != null) {
+      the_writer.name("timestamp").value(the_cvr.timestamp().toString());
+    }
+    the_writer.name("county_id").value(the_cvr.countyID());
+    the_writer.name("cvr_number").value(the_cvr.cvrNumber());
+    the_writer.name("sequence_number").value(the_cvr.sequenceNumber());
+    the_writer.name("scanner_id").value(the_cvr.scannerID());
+    the_writer.name("batch_id").value(the_cvr.batchID());
+    the_writer.name("record_id").value(the_cvr.recordID());
+    the_writer.name("imprinted_id").value(the_cvr.imprintedID());
+    the_writer.name("ballot_type").value(the_cvr.ballotType());
+    the_writer.name("contest_info");
+    the_writer.beginArray();
+    for (final ContestInfo info : the_cvr.contestInfo()) {
+      writeContestInfo(the_writer, info);
+    }
+    the_writer.endArray();
+    the_writer.endObject();
+  }
+
+  /**
+   * Writes projected contest information.
+   *
+   * @param the_writer The JSON writer.
+   * @param the_info The contest information.
+   * @exception IOException if the writing fails.
+   */
+  private void writeContestInfo(final JsonWriter the_writer, final ContestInfo the_info)
+      throws IOException {
+    the_writer.beginObject();
+    the_writer.name("contest").value(the_info.contestID());
+    the_writer.name("comment").value(the_info.comment());
+    if (the_info.consensus() != null) {
+      the_writer.name("consensus").value(the_info.consensus());
+    }
+    the_writer.name("choices");
+    if (the_info.choices() == null) {
+      the_writer.beginArray();
+      the_writer.endArray();
+    } else {
+      // the choices are stored as a JSON array, so they need no conversion
+      the_writer.jsonValue(the_info.choices());
+    }
+    the_writer.endObject();
+  }
+
+  /**
+   * Reads a cast vote record projection.
+   *
+   * @param the_reader The JSON reader.
+   * @return the projection.
+   * @exception IOException if the reading fails.
+   * @exception JsonSyntaxException if the JSON is not a cast vote record.
+   */
+  @Override
+  @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.StdCyclomaticComplexity",
+      "PMD.ModifiedCyclomaticComplexity", "PMD.NPathComplexity"})
+  public CastVoteRecordProjection read(final JsonReader the_reader)
+      throws IOException {
+    Long id = null;
+    RecordType record_type = null;
+    Instant timestamp = null;
+    Long county_id = null;
+    Integer cvr_number = null;
+    Integer sequence_number = null;
+    Integer scanner_id = null;
+    Integer batch_id = null;
+    Integer record_id = null;
+    String imprinted_id = null;
+    String ballot_type = null;
+    final List<ContestInfo> contest_info = new ArrayList<>();
+
+    try {
+      the_reader.beginObject();
+      while (the_reader.hasNext()) {
+        final String name = the_reader.nextName();
+        if (the_reader.peek() == JsonToken.NULL) {
+          the_reader.nextNull();
+          continue;
+        }
+        switch (name) {
+          case "id":
+            id = the_reader.nextLong();
+            break;
+          case "record_type":
+            record_type = RecordType.valueOf(the_reader.nextString());
+            break;
+          case "timestamp":
+            timestamp = Instant.parse(the_reader.nextString());
+            break;
+          case "county_id":
+            county_id = the_reader.nextLong();
+            break;
+          case "cvr_number":
+            cvr_number = the_reader.nextInt();
+            break;
+          case "sequence_number":
+            sequence_number = the_reader.nextInt();
+            break;
+          case "scanner_id":
+            scanner_id = the_reader.nextInt();
+            break;
+          case "batch_id":
+            batch_id = the_reader.nextInt();
+            break;
+          case "record_id":
+            record_id = the_reader.nextInt();
+            break;
+          case "imprinted_id":
+            imprinted_id = the_reader.nextString();
+            break;
+          case "ballot_type":
+            ballot_type = the_reader.nextString();
+            break;
+          case "contest_info":
+            the_reader.beginArray();
+            while (the_reader.hasNext()) {
+              contest_info.add(readContestInfo(the_reader));
+            }
+            the_reader.endArray();
+            break;
+          default:
+            throw new JsonSyntaxException("unexpected field in cast vote record: " + name);
+        }
+      }
+      the_reader.endObject();
+    } catch (final IllegalArgumentException | DateTimeParseException e) {
+      throw new JsonSyntaxException("invalid data detected in cast vote record", e);
+    }
+
+    final CastVoteRecordProjection result =
+        new CastVoteRecordProjection(id, record_type, timestamp, county_id, cvr_number,
+                                     sequence_number, scanner_id, batch_id, record_id,
+                                     imprinted_id, ballot_type);
+    for (final ContestInfo info : contest_info) {
+      result.addContestInfo(info);
+    }
+    return result;
+  }
+
+  /**
+   * Reads projected contest information.
+   *
+   * @param the_reader The JSON reader.
+   * @return the contest information.
+   * @exception IOException if the reading fails.
+   * @exception JsonSyntaxException if the JSON is not contest information.
+   */
+  private ContestInfo readContestInfo(final JsonReader the_reader) throws IOException {
+    Long contest_id = null;
+    String comment = null;
+    String consensus = null;
+    String choices = null;
+
+    the_reader.beginObject();
+    while (the_reader.hasNext()) {
+      final String name = the_reader.nextName();
+      if (the_reader.peek() == JsonToken.NULL) {
+        the_reader.nextNull();
+        continue;
+      }
+      switch (name) {
+        case "contest":
+          contest_id = the_reader.nextLong();
+          break;
+        case "comment":
+          comment = the_reader.nextString();
+          break;
+        case "consensus":
+          consensus = the_reader.nextString();
+          break;
+        case "choices":
+          // the choices are stored as a JSON array, so we keep them as one
+          choices = new JsonParser().parse(the_reader).toString();
+          break;
+        default:
+          throw new JsonSyntaxException("unexpected field in CVR contest info: " + name);
+      }
+    }
+    the_reader.endObject();
+
+    return new ContestInfo(contest_id, comment, consensus, choices);
+  }
+}
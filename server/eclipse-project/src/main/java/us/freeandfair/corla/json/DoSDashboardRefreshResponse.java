@@ -11,6 +11,7 @@
 
 package us.freeandfair.corla.json;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -24,16 +25,16 @@ import javax.persistence.PersistenceException;
 import us.freeandfair.corla.asm.ASMState;
 import us.freeandfair.corla.asm.ASMUtilities;
 import us.freeandfair.corla.asm.DoSDashboardASM;
+import us.freeandfair.corla.controller.ContestAggregate;
+import us.freeandfair.corla.controller.ContestAggregator;
 import us.freeandfair.corla.model.AuditInfo;
 import us.freeandfair.corla.model.AuditReason;
 import us.freeandfair.corla.model.AuditType;
 import us.freeandfair.corla.model.ContestToAudit;
 import us.freeandfair.corla.model.County;
-import us.freeandfair.corla.model.CountyContestComparisonAudit;
 import us.freeandfair.corla.model.CountyDashboard;
 import us.freeandfair.corla.model.DoSDashboard;
 import us.freeandfair.corla.persistence.Persistence;
-import us.freeandfair.corla.query.CountyContestComparisonAuditQueries;
 import us.freeandfair.corla.util.SuppressFBWarnings;
 
 /**
@@ -74,6 +75,23 @@ public class DoSDashboardRefreshResponse {
    */
   private final SortedMap<Long, Map<Integer, Integer>> my_discrepancy_count;
   
+  /**
+   * A map from audited contests to measured risks.
+   */
+  private final SortedMap<Long, BigDecimal> my_measured_risk;
+  
+  /**
+   * A map from audited contests to the diluted margins of the contests
+   * across all the counties in which they appear.
+   */
+  private final SortedMap<Long, BigDecimal> my_contest_diluted_margin;
+  
+  /**
+   * A map from audited contests to the numbers of samples to audit across
+   * all the counties in which they appear, assuming no further overstatements.
+   */
+  private final SortedMap<Long, Integer> my_contest_samples_to_audit;
+  
   /**
    * A map from county IDs to county status.
    */
@@ -110,6 +128,10 @@ public class DoSDashboardRefreshResponse {
    * by contest.
    * @param the_discrepancy_count The discrepancy count for each discrepancy type,
    * by contest.
+   * @param the_measured_risk The measured risk, by contest.
+   * @param the_contest_diluted_margin The contest-wide diluted margin, by contest.
+   * @param the_contest_samples_to_audit The contest-wide samples to audit, 
+   * by contest.
    * @param the_county_status The county statuses.
    * @param the_hand_count_contests The hand count contests.
    * @param the_audit_info The election info.
@@ -124,6 +146,12 @@ public class DoSDashboardRefreshResponse {
                                            the_optimistic_ballots_to_audit,
                                         final SortedMap<Long, Map<Integer, Integer>>
                                            the_discrepancy_counts,
+                                        final SortedMap<Long, BigDecimal>
+                                           the_measured_risk,
+                                        final SortedMap<Long, BigDecimal>
+                                           the_contest_diluted_margin,
+                                        final SortedMap<Long, Integer>
+                                           the_contest_samples_to_audit,
                                         final SortedMap<Long, CountyDashboardRefreshResponse> 
                                            the_county_status,
                                         final List<Long> the_hand_count_contests,
@@ -135,6 +163,9 @@ public class DoSDashboardRefreshResponse {
     my_estimated_ballots_to_audit = the_estimated_ballots_to_audit;
     my_optimistic_ballots_to_audit = the_optimistic_ballots_to_audit;
     my_discrepancy_count = the_discrepancy_counts;
+    my_measured_risk = the_measured_risk;
+    my_contest_diluted_margin = the_contest_diluted_margin;
+    my_contest_samples_to_audit = the_contest_samples_to_audit;
     my_county_status = the_county_status;
     my_hand_count_contests = the_hand_count_contests;
     my_audit_info = the_audit_info;
@@ -159,12 +190,17 @@ public class DoSDashboardRefreshResponse {
     final SortedMap<Long, Integer> estimated_ballots_to_audit = new TreeMap<Long, Integer>();
     final SortedMap<Long, Integer> optimistic_ballots_to_audit = new TreeMap<Long, Integer>();
     final SortedMap<Long, Map<Integer, Integer>> discrepancy_count = new TreeMap<>();
+    final SortedMap<Long, BigDecimal> measured_risk = new TreeMap<>();
+    final SortedMap<Long, BigDecimal> contest_diluted_margin = new TreeMap<>();
+    final SortedMap<Long, Integer> contest_samples_to_audit = new TreeMap<>();
     final List<Long> hand_count_contests = new ArrayList<Long>();
     final SortedMap<Long, AuditReason> audit_reasons = 
         new TreeMap<Long, AuditReason>();
     final SortedMap<Long, AuditType> audit_types = 
         new TreeMap<Long, AuditType>();
     
+    final ContestAggregator.Snapshot aggregates = ContestAggregator.snapshot();
+    
     for (final ContestToAudit cta : the_dashboard.contestsToAudit()) {
       if (cta.audit() != AuditType.NONE) {
         audit_reasons.put(cta.contest().id(), cta.reason());
@@ -172,33 +208,45 @@ public class DoSDashboardRefreshResponse {
       }
       switch (cta.audit()) {
         case COMPARISON:
-          final Map<Integer, Integer> discrepancy = new HashMap<>();
-          int optimistic = Integer.MIN_VALUE;
-          int estimated = Integer.MIN_VALUE;
           audited_contests.put(cta.contest().id(), cta.reason());
-          for (final CountyContestComparisonAudit ccca : 
-               CountyContestComparisonAuditQueries.matching(cta.contest())) {
-            optimistic = 
-                Math.max(optimistic, 
-                         Math.max(0, ccca.optimisticSamplesToAudit() - 
-                                     ccca.dashboard().auditedPrefixLength()));
-            estimated = 
-                Math.max(estimated, 
-                         Math.max(0, ccca.estimatedSamplesToAudit() - 
-                                     ccca.dashboard().auditedPrefixLength()));
-            
-            // possible discrepancy types range from -2 to 2 inclusive,
-            // and we provide them all in the refresh response
-            for (int i = -2; i <= 2; i++) {
-              if (discrepancy.get(i) == null) {
-                discrepancy.put(i,  0);
-              }
-              discrepancy.put(i, discrepancy.get(i) + ccca.discrepancyCount(i));
+          final ContestAggregate county_contest = 
+              aggregates.forContest(cta.contest().id());
+          if (county_contest != null && county_contest.optimisticRemaining() != null) {
+            // the dashboard has always shown the optimistic count as its estimate
+            estimated_ballots_to_audit.put(cta.contest().id(), 
+                                           county_contest.optimisticRemaining());
+            optimistic_ballots_to_audit.put(cta.contest().id(), 
+                                            county_contest.estimatedRemaining());
+            measured_risk.put(cta.contest().id(), county_contest.measuredRisk());
+          }
+          
+          // possible discrepancy types range from -2 to 2 inclusive,
+          // and we provide them all in the refresh response
+          final Map<Integer, Integer> discrepancy = new HashMap<>();
+          for (int i = -2; i <= 2; i++) {
+            if (county_contest == null) {
+              discrepancy.put(i, 0);
+            } else {
+              discrepancy.put(i, county_contest.discrepancyCount(i));
             }
           }
-          estimated_ballots_to_audit.put(cta.contest().id(), optimistic);
-          optimistic_ballots_to_audit.put(cta.contest().id(), estimated);
           discrepancy_count.put(cta.contest().id(), discrepancy);
+          
+          // only contests designated statewide are aggregated across 
+          // counties; any other contest is specific to its county, even if
+          // another county has a contest with the same name
+          final ContestAggregate contest;
+          if (cta.reason() == AuditReason.STATE_WIDE_CONTEST) {
+            contest = aggregates.statewide(cta.contest());
+          } else {
+            contest = county_contest;
+          }
+          if (contest != null) {
+            contest_diluted_margin.put(cta.contest().id(), contest.dilutedMargin());
+            if (contest.samplesToAudit() != null) {
+              contest_samples_to_audit.put(cta.contest().id(), contest.samplesToAudit());
+            }
+          }
           break;
           
         case HAND_COUNT:
@@ -222,6 +270,9 @@ public class DoSDashboardRefreshResponse {
                                            estimated_ballots_to_audit,
                                            optimistic_ballots_to_audit,
                                            discrepancy_count,
+                                           measured_risk,
+                                           contest_diluted_margin,
+                                           contest_samples_to_audit,
                                            countyStatusMap(),
                                            hand_count_contests,
                                            the_dashboard.auditInfo(),
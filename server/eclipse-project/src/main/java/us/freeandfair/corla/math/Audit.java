@@ -0,0 +1,351 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.math;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ch.obermuhlner.math.big.BigDecimalMath;
+
+import us.freeandfair.corla.util.Pair;
+
+/**
+ * The arithmetic of ballot-level comparison audits, as described in Stark's
+ * "Super-Simple Simultaneous Single-Ballot Risk-Limiting Audits" and
+ * "A Gentle Introduction to Risk-Limiting Audits"
+ * (https://www.stat.berkeley.edu/~stark/Preprints/gentle12.pdf).
+ *
+ * Sample sizes are defined by a computation with BigDecimal logarithms at
+ * DECIMAL128 precision. The logarithms depend only on the error inflation
+ * factor (gamma) and the risk limit, so they are computed once for each
+ * pair and cached. The sample size is first computed in double precision;
+ * the double-precision result is used only if it is far enough from an
+ * integer that its ceiling must be the same as that of the BigDecimal
+ * computation, which is run otherwise.
+ *
+ * The measured risk of a contest is the Kaplan-Markov P-value of the
+ * ballots audited so far. It depends only on the numbers of ballots audited
+ * and of each type of discrepancy, so it can be recomputed in constant time
+ * whenever those counts change.
+ *
+ * @version 1.0.0
+ */
+public final class Audit {
+  /**
+   * The relative distance from an integer within which a double-precision
+   * sample size is not trusted to have the correct ceiling. Double-precision
+   * results are accurate to well within this.
+   */
+  public static final double CEILING_TOLERANCE = 1e-9;
+
+  /**
+   * The largest double-precision sample size that is trusted.
+   */
+  public static final double MAX_FAST_SAMPLE_SIZE = 1e12;
+
+  /**
+   * The number of significant digits to which measured risks are rounded.
+   */
+  public static final int RISK_PRECISION = 6;
+
+  /**
+   * The cached constants, by gamma and risk limit.
+   */
+  private static final Map<Pair<BigDecimal, BigDecimal>, Constants> CONSTANTS =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private Audit() {
+    // empty
+  }
+
+  /**
+   * Computes the expected number of ballots to audit overall, given the
+   * specified numbers of over- and understatements. This is the stopping
+   * sample size as defined in the literature.
+   *
+   * @param the_risk_limit The risk limit.
+   * @param the_diluted_margin The diluted margin of the contest.
+   * @param the_gamma The error inflation factor.
+   * @param the_two_under The two-vote understatements.
+   * @param the_one_under The one-vote understatements.
+   * @param the_one_over The one-vote overstatements.
+   * @param the_two_over The two-vote overstatements.
+   * @return the expected number of ballots to audit.
+   * @exception ArithmeticException if the diluted margin is zero.
+   */
+  public static BigDecimal optimistic(final BigDecimal the_risk_limit,
+                                      final BigDecimal the_diluted_margin,
+                                      final BigDecimal the_gamma,
+                                      final int the_two_under,
+                                      final int the_one_under,
+                                      final int the_one_over,
+                                      final int the_two_over) {
+    final Constants constants = constantsFor(the_gamma, the_risk_limit);
+    final double fast =
+        -constants.my_two_gamma_double *
+        (constants.my_log_risk_limit_double +
+         the_two_under * constants.my_log_two_under_double +
+         the_one_under * constants.my_log_one_under_double +
+         the_one_over * constants.my_log_one_over_double +
+         the_two_over * constants.my_log_two_over_double) /
+        the_diluted_margin.doubleValue();
+
+    final BigDecimal ceil;
+    if (trustedCeiling(fast)) {
+      ceil = BigDecimal.valueOf((long) Math.ceil(fast));
+    } else {
+      ceil = referenceCeiling(constants, the_diluted_margin, the_two_under,
+                              the_one_under, the_one_over, the_two_over);
+    }
+    final long over_under_sum =
+        (long) the_two_under + the_one_under + the_one_over + the_two_over;
+    return ceil.max(BigDecimal.valueOf(over_under_sum));
+  }
+
+  /**
+   * Computes the expected number of ballots to audit overall, entirely
+   * with BigDecimal arithmetic. The result is always the same as that of
+   * optimistic().
+   *
+   * @param the_risk_limit The risk limit.
+   * @param the_diluted_margin The diluted margin of the contest.
+   * @param the_gamma The error inflation factor.
+   * @param the_two_under The two-vote understatements.
+   * @param the_one_under The one-vote understatements.
+   * @param the_one_over The one-vote overstatements.
+   * @param the_two_over The two-vote overstatements.
+   * @return the expected number of ballots to audit.
+   * @exception ArithmeticException if the diluted margin is zero.
+   */
+  public static BigDecimal optimisticReference(final BigDecimal the_risk_limit,
+                                               final BigDecimal the_diluted_margin,
+                                               final BigDecimal the_gamma,
+                                               final int the_two_under,
+                                               final int the_one_under,
+                                               final int the_one_over,
+                                               final int the_two_over) {
+    final BigDecimal ceil =
+        referenceCeiling(constantsFor(the_gamma, the_risk_limit), the_diluted_margin,
+                         the_two_under, the_one_under, the_one_over, the_two_over);
+    final BigDecimal over_under_sum =
+        BigDecimal.valueOf(the_two_under).add(BigDecimal.valueOf(the_one_under)).
+        add(BigDecimal.valueOf(the_one_over)).add(BigDecimal.valueOf(the_two_over));
+    return ceil.max(over_under_sum);
+  }
+
+  /**
+   * Computes the measured risk of a contest: the Kaplan-Markov P-value of
+   * the ballots audited so far, given the specified numbers of over- and
+   * understatements among them. The result is rounded to RISK_PRECISION
+   * significant digits, and is never more than 1.
+   *
+   * @param the_risk_limit The risk limit (which, with gamma, selects the
+   * cached constants).
+   * @param the_diluted_margin The diluted margin of the contest.
+   * @param the_gamma The error inflation factor.
+   * @param the_audited_count The number of ballots audited, counting each
+   * ballot as many times as it was sampled.
+   * @param the_two_under The two-vote understatements.
+   * @param the_one_under The one-vote understatements.
+   * @param the_one_over The one-vote overstatements.
+   * @param the_two_over The two-vote overstatements.
+   * @return the measured risk; 1 if the diluted margin is not positive.
+   */
+  public static BigDecimal measuredRisk(final BigDecimal the_risk_limit,
+                                        final BigDecimal the_diluted_margin,
+                                        final BigDecimal the_gamma,
+                                        final int the_audited_count,
+                                        final int the_two_under,
+                                        final int the_one_under,
+                                        final int the_one_over,
+                                        final int the_two_over) {
+    BigDecimal result = BigDecimal.ONE;
+    if (the_diluted_margin.signum() > 0) {
+      final Constants constants = constantsFor(the_gamma, the_risk_limit);
+      final double log_risk =
+          the_audited_count *
+          Math.log1p(-the_diluted_margin.doubleValue() / constants.my_two_gamma_double) -
+          the_two_under * constants.my_log_two_under_double -
+          the_one_under * constants.my_log_one_under_double -
+          the_one_over * constants.my_log_one_over_double -
+          the_two_over * constants.my_log_two_over_double;
+      final double risk = Math.exp(log_risk);
+      if (risk < 1.0) {
+        result = new BigDecimal(risk, new MathContext(RISK_PRECISION));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Checks whether a double-precision sample size can be rounded up to
+   * get the same result as the BigDecimal computation.
+   *
+   * @param the_value The double-precision sample size.
+   * @return true if it can, false otherwise.
+   */
+  private static boolean trustedCeiling(final double the_value) {
+    boolean result = false;
+    if (Double.isFinite(the_value) && Math.abs(the_value) < MAX_FAST_SAMPLE_SIZE) {
+      final double distance = Math.abs(the_value - Math.rint(the_value));
+      result = distance > CEILING_TOLERANCE * Math.max(1.0, Math.abs(the_value));
+    }
+    return result;
+  }
+
+  /**
+   * Computes the ceiling of the stopping sample size with BigDecimal
+   * arithmetic.
+   *
+   * @param the_constants The constants for gamma and the risk limit.
+   * @param the_diluted_margin The diluted margin of the contest.
+   * @param the_two_under The two-vote understatements.
+   * @param the_one_under The one-vote understatements.
+   * @param the_one_over The one-vote overstatements.
+   * @param the_two_over The two-vote overstatements.
+   * @return the ceiling of the sample size.
+   */
+  private static BigDecimal referenceCeiling(final Constants the_constants,
+                                             final BigDecimal the_diluted_margin,
+                                             final int the_two_under,
+                                             final int the_one_under,
+                                             final int the_one_over,
+                                             final int the_two_over) {
+    final BigDecimal two_under =
+        BigDecimal.valueOf(the_two_under).multiply(the_constants.my_log_two_under);
+    final BigDecimal one_under =
+        BigDecimal.valueOf(the_one_under).multiply(the_constants.my_log_one_under);
+    final BigDecimal one_over =
+        BigDecimal.valueOf(the_one_over).multiply(the_constants.my_log_one_over);
+    final BigDecimal two_over =
+        BigDecimal.valueOf(the_two_over).multiply(the_constants.my_log_two_over);
+    final BigDecimal numerator =
+        the_constants.my_two_gamma.negate().
+        multiply(the_constants.my_log_risk_limit.
+                 add(two_under.add(one_under).add(one_over).add(two_over)));
+    return numerator.divide(the_diluted_margin, MathContext.DECIMAL128).
+        setScale(0, RoundingMode.CEILING);
+  }
+
+  /**
+   * Gets the constants for the specified gamma and risk limit, computing
+   * them if necessary.
+   *
+   * @param the_gamma The error inflation factor.
+   * @param the_risk_limit The risk limit.
+   * @return the constants.
+   */
+  private static Constants constantsFor(final BigDecimal the_gamma,
+                                        final BigDecimal the_risk_limit) {
+    return CONSTANTS.computeIfAbsent(new Pair<>(the_gamma, the_risk_limit),
+        the_key -> new Constants(the_key.first(), the_key.second()));
+  }
+
+  /**
+   * The logarithms, and related constants, for a gamma and risk limit.
+   */
+  private static class Constants {
+    /**
+     * 2 * gamma.
+     */
+    private final BigDecimal my_two_gamma;
+
+    /**
+     * log(risk limit).
+     */
+    private final BigDecimal my_log_risk_limit;
+
+    /**
+     * log(1 + 1 / gamma).
+     */
+    private final BigDecimal my_log_two_under;
+
+    /**
+     * log(1 + 1 / (2 * gamma)).
+     */
+    private final BigDecimal my_log_one_under;
+
+    /**
+     * log(1 - 1 / (2 * gamma)).
+     */
+    private final BigDecimal my_log_one_over;
+
+    /**
+     * log(1 - 1 / gamma).
+     */
+    private final BigDecimal my_log_two_over;
+
+    /**
+     * 2 * gamma, as a double.
+     */
+    private final double my_two_gamma_double;
+
+    /**
+     * log(risk limit), as a double.
+     */
+    private final double my_log_risk_limit_double;
+
+    /**
+     * log(1 + 1 / gamma), as a double.
+     */
+    private final double my_log_two_under_double;
+
+    /**
+     * log(1 + 1 / (2 * gamma)), as a double.
+     */
+    private final double my_log_one_under_double;
+
+    /**
+     * log(1 - 1 / (2 * gamma)), as a double.
+     */
+    private final double my_log_one_over_double;
+
+    /**
+     * log(1 - 1 / gamma), as a double.
+     */
+    private final double my_log_two_over_double;
+
+    /**
+     * Computes the constants.
+     *
+     * @param the_gamma The error inflation factor.
+     * @param the_risk_limit The risk limit.
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    Constants(final BigDecimal the_gamma, final BigDecimal the_risk_limit) {
+      final BigDecimal invgamma = BigDecimal.ONE.divide(the_gamma, MathContext.DECIMAL128);
+      my_two_gamma = BigDecimal.valueOf(2).multiply(the_gamma);
+      final BigDecimal invtwogamma =
+          BigDecimal.ONE.divide(my_two_gamma, MathContext.DECIMAL128);
+      my_log_risk_limit = BigDecimalMath.log(the_risk_limit, MathContext.DECIMAL128);
+      my_log_two_under =
+          BigDecimalMath.log(BigDecimal.ONE.add(invgamma), MathContext.DECIMAL128);
+      my_log_one_under =
+          BigDecimalMath.log(BigDecimal.ONE.add(invtwogamma), MathContext.DECIMAL128);
+      my_log_one_over =
+          BigDecimalMath.log(BigDecimal.ONE.subtract(invtwogamma), MathContext.DECIMAL128);
+      my_log_two_over =
+          BigDecimalMath.log(BigDecimal.ONE.subtract(invgamma), MathContext.DECIMAL128);
+      my_two_gamma_double = my_two_gamma.doubleValue();
+      my_log_risk_limit_double = my_log_risk_limit.doubleValue();
+      my_log_two_under_double = my_log_two_under.doubleValue();
+      my_log_one_under_double = my_log_one_under.doubleValue();
+      my_log_one_over_double = my_log_one_over.doubleValue();
+      my_log_two_over_double = my_log_two_over.doubleValue();
+    }
+  }
+}
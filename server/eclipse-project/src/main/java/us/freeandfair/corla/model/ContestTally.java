@@ -0,0 +1,130 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.model;
+
+import java.util.List;
+
+/**
+ * A tally of votes in a list of contests, kept in primitive counters
+ * indexed by contest (its position in the list) and choice (its position
+ * in the contest's list of choices), so that counting a vote neither boxes
+ * nor looks anything up. A tally is not thread-safe; each thread that
+ * counts votes keeps its own, and the tallies are merged into the
+ * corresponding CountyContestResults when counting is done.
+ *
+ * @version 1.0.0
+ */
+public class ContestTally {
+  /**
+   * The vote counts, by contest index and choice index.
+   */
+  private final int[][] my_votes;
+
+  /**
+   * The number of ballots containing each contest, by contest index.
+   */
+  private final int[] my_contest_ballots;
+
+  /**
+   * The number of ballots.
+   */
+  private int my_county_ballots;
+
+  /**
+   * Constructs an empty tally.
+   *
+   * @param the_contest_choices The choices of each contest, in contest order.
+   */
+  public ContestTally(final List<? extends List<Choice>> the_contest_choices) {
+    my_votes = new int[the_contest_choices.size()][];
+    for (int i = 0; i < my_votes.length; i++) {
+      my_votes[i] = new int[the_contest_choices.get(i).size()];
+    }
+    my_contest_ballots = new int[my_votes.length];
+  }
+
+  /**
+   * Counts a ballot.
+   */
+  public void addBallot() {
+    my_county_ballots = my_county_ballots + 1;
+  }
+
+  /**
+   * Counts a ballot containing a contest.
+   *
+   * @param the_contest The contest index.
+   */
+  public void addContest(final int the_contest) {
+    my_contest_ballots[the_contest] = my_contest_ballots[the_contest] + 1;
+  }
+
+  /**
+   * Counts a vote.
+   *
+   * @param the_contest The contest index.
+   * @param the_choice The choice index.
+   */
+  public void addVote(final int the_contest, final int the_choice) {
+    my_votes[the_contest][the_choice] = my_votes[the_contest][the_choice] + 1;
+  }
+
+  /**
+   * Adds another tally of the same contests to this one.
+   *
+   * @param the_other The other tally.
+   * @exception IllegalArgumentException if the other tally is of different
+   * contests.
+   */
+  public void merge(final ContestTally the_other) {
+    if (the_other.my_votes.length != my_votes.length) {
+      throw new IllegalArgumentException("cannot merge tallies of different contests");
+    }
+    for (int i = 0; i < my_votes.length; i++) {
+      if (the_other.my_votes[i].length != my_votes[i].length) {
+        throw new IllegalArgumentException("cannot merge tallies of different contests");
+      }
+      for (int j = 0; j < my_votes[i].length; j++) {
+        my_votes[i][j] = my_votes[i][j] + the_other.my_votes[i][j];
+      }
+      my_contest_ballots[i] = my_contest_ballots[i] + the_other.my_contest_ballots[i];
+    }
+    my_county_ballots = my_county_ballots + the_other.my_county_ballots;
+  }
+
+  /**
+   * Gets the number of votes for a choice.
+   *
+   * @param the_contest The contest index.
+   * @param the_choice The choice index.
+   * @return the number of votes.
+   */
+  public int votes(final int the_contest, final int the_choice) {
+    return my_votes[the_contest][the_choice];
+  }
+
+  /**
+   * Gets the number of ballots containing a contest.
+   *
+   * @param the_contest The contest index.
+   * @return the number of ballots.
+   */
+  public int contestBallots(final int the_contest) {
+    return my_contest_ballots[the_contest];
+  }
+
+  /**
+   * @return the number of ballots.
+   */
+  public int countyBallots() {
+    return my_county_ballots;
+  }
+}
@@ -40,8 +40,8 @@ import javax.persistence.MapKeyJoinColumn;
 import javax.persistence.Table;
 import javax.persistence.Version;
 
-import ch.obermuhlner.math.big.BigDecimalMath;
 import us.freeandfair.corla.Main;
+import us.freeandfair.corla.math.Audit;
 import us.freeandfair.corla.model.CVRContestInfo.ConsensusValue;
 import us.freeandfair.corla.model.CastVoteRecord.RecordType;
 import us.freeandfair.corla.persistence.PersistentEntity;
@@ -217,52 +217,52 @@ public class CountyContestComparisonAudit implements PersistentEntity {
    * The number of two-vote understatements recorded so far.
    */
   @Column(nullable = false)
-  private Integer my_two_vote_under_count = 0;
+  private int my_two_vote_under_count;
   
   /**
    * The number of one-vote understatements recorded so far.
    */
   @Column(nullable = false)
-  private Integer my_one_vote_under_count = 0;
+  private int my_one_vote_under_count;
   
   /**
    * The number of one-vote overstatements recorded so far.
    */
   @Column(nullable = false)
-  private Integer my_one_vote_over_count = 0;
+  private int my_one_vote_over_count;
   
   /**
    * The number of two-vote overstatements recorded so far.
    */
   @Column(nullable = false)
-  private Integer my_two_vote_over_count = 0;
+  private int my_two_vote_over_count;
   
   /**
    * The number of discrepancies recorded so far that are neither 
    * understatements nor overstatements.
    */
   @Column(nullable = false)
-  private Integer my_other_count = 0;
+  private int my_other_count;
   
   /**
    * The number of disagreements.
    */
   @Column(nullable = false)
-  private Integer my_disagreement_count = 0;
+  private int my_disagreement_count;
   
   /**
    * A flag that indicates whether the optimistic ballots to audit 
    * estimate needs to be recalculated.
    */
   @Column(nullable = false)
-  private Boolean my_optimistic_recalculate_needed = true; 
+  private boolean my_optimistic_recalculate_needed = true; 
   
   /**
    * A flag that indicates whether the non-optimistic ballots to 
    * audit estimate needs to be recalculated
    */
   @Column(nullable = false)
-  private Boolean my_estimated_recalculate_needed = true;
+  private boolean my_estimated_recalculate_needed = true;
   
   /**
    * A map from CVRAuditInfo objects to their discrepancy values for this
@@ -457,6 +457,24 @@ public class CountyContestComparisonAudit implements PersistentEntity {
     return my_estimated_samples_to_audit;
   }
   
+  /**
+   * @return the measured risk of the contest: the Kaplan-Markov P-value of
+   * the samples audited so far. This is computed from the discrepancy
+   * counters in constant time.
+   */
+  public BigDecimal measuredRisk() {
+    final BigDecimal result;
+    if (my_audit_status == AuditStatus.NOT_AUDITABLE) {
+      result = BigDecimal.ONE;
+    } else {
+      result = Audit.measuredRisk(my_risk_limit, my_contest_result.countyDilutedMargin(),
+                                  my_gamma, my_audited_sample_count,
+                                  my_two_vote_under_count, my_one_vote_under_count,
+                                  my_one_vote_over_count, my_two_vote_over_count);
+    }
+    return result;
+  }
+  
   /**
    * Recalculates the overall numbers of ballots to audit.
    */
@@ -515,37 +533,9 @@ public class CountyContestComparisonAudit implements PersistentEntity {
       // (for lack of a better number)
       result = BigDecimal.valueOf(my_contest_result.countyBallotCount());
     } else {
-      final BigDecimal invgamma = BigDecimal.ONE.divide(my_gamma, MathContext.DECIMAL128);
-      final BigDecimal twogamma = BigDecimal.valueOf(2).multiply(my_gamma);
-      final BigDecimal invtwogamma = 
-          BigDecimal.ONE.divide(twogamma, MathContext.DECIMAL128);
-      final BigDecimal two_under_bd = BigDecimal.valueOf(the_two_under);
-      final BigDecimal one_under_bd = BigDecimal.valueOf(the_one_under);
-      final BigDecimal one_over_bd = BigDecimal.valueOf(the_one_over);
-      final BigDecimal two_over_bd = BigDecimal.valueOf(the_two_over);
-
-      final BigDecimal over_under_sum = 
-          two_under_bd.add(one_under_bd).add(one_over_bd).add(two_over_bd);
-      final BigDecimal two_under = 
-          two_under_bd.multiply(BigDecimalMath.log(BigDecimal.ONE.add(invgamma), 
-                                                   MathContext.DECIMAL128));
-      final BigDecimal one_under =
-          one_under_bd.multiply(BigDecimalMath.log(BigDecimal.ONE.add(invtwogamma), 
-                                                   MathContext.DECIMAL128));
-      final BigDecimal one_over = 
-          one_over_bd.multiply(BigDecimalMath.log(BigDecimal.ONE.subtract(invtwogamma), 
-                                                  MathContext.DECIMAL128));
-      final BigDecimal two_over =
-          two_over_bd.multiply(BigDecimalMath.log(BigDecimal.ONE.subtract(invgamma),
-                                                  MathContext.DECIMAL128));
-      final BigDecimal numerator =
-          twogamma.negate().
-          multiply(BigDecimalMath.log(my_risk_limit, MathContext.DECIMAL128).
-                   add(two_under.add(one_under).add(one_over).add(two_over)));
-      final BigDecimal ceil =
-          numerator.divide(my_contest_result.countyDilutedMargin(),
-                           MathContext.DECIMAL128).setScale(0, RoundingMode.CEILING);
-      result = ceil.max(over_under_sum);
+      result = Audit.optimistic(my_risk_limit, my_contest_result.countyDilutedMargin(),
+                                my_gamma, the_two_under, the_one_under, the_one_over,
+                                the_two_over);
     }
     
     Main.LOGGER.info("estimate for contest " + contest().name() + 
@@ -554,6 +544,13 @@ public class CountyContestComparisonAudit implements PersistentEntity {
     return result;
   }
   
+  /**
+   * @return the number of samples audited.
+   */
+  public int auditedSampleCount() {
+    return my_audited_sample_count;
+  }
+  
   /**
    * Signals that a sample has been audited. This ensures that estimates
    * are recalculated correctly and states are updated.
@@ -594,8 +591,19 @@ public class CountyContestComparisonAudit implements PersistentEntity {
    * @param the_record The CVRAuditInfo record that generated the disagreement.
    */
   public void recordDisagreement(final CVRAuditInfo the_record) {
+    recordDisagreement(the_record, 1);
+  }
+  
+  /**
+   * Records a disagreement with the specified CVRAuditInfo, counted the
+   * specified number of times (for duplicates).
+   * 
+   * @param the_record The CVRAuditInfo record that generated the disagreement.
+   * @param the_count The number of times to count the disagreement.
+   */
+  public void recordDisagreement(final CVRAuditInfo the_record, final int the_count) {
     my_disagreements.add(the_record);
-    my_disagreement_count = my_disagreement_count + 1;
+    my_disagreement_count = my_disagreement_count + the_count;
   }
   
   /**
@@ -604,8 +612,19 @@ public class CountyContestComparisonAudit implements PersistentEntity {
    * @param the_record The CVRAuditInfo record that generated the disagreement.
    */
   public void removeDisagreement(final CVRAuditInfo the_record) {
+    removeDisagreement(the_record, 1);
+  }
+  
+  /**
+   * Removes a disagreement with the specified CVRAuditInfo, counted the
+   * specified number of times (for duplicates).
+   * 
+   * @param the_record The CVRAuditInfo record that generated the disagreement.
+   * @param the_count The number of times the disagreement was counted.
+   */
+  public void removeDisagreement(final CVRAuditInfo the_record, final int the_count) {
     my_disagreements.remove(the_record);
-    my_disagreement_count = my_disagreement_count - 1;
+    my_disagreement_count = my_disagreement_count - the_count;
   }
   
   /**
@@ -625,42 +644,25 @@ public class CountyContestComparisonAudit implements PersistentEntity {
    * @exception IllegalArgumentException if an invalid discrepancy type is 
    * specified.
    */
-  @SuppressWarnings("checkstyle:magicnumber")
   public void recordDiscrepancy(final CVRAuditInfo the_record,
                                 final int the_type) {
-    // we never trigger an estimated recalculate here; it is
-    // triggered by signalBallotAudited() regardless of whether there is 
-    // a discrepancy or not
-    switch (the_type) {
-      case -2: 
-        my_two_vote_under_count = my_two_vote_under_count + 1;
-        my_optimistic_recalculate_needed = true;
-        break;
-       
-      case -1:
-        my_one_vote_under_count = my_one_vote_under_count + 1;
-        my_optimistic_recalculate_needed = true;
-        break;
-        
-      case 0:
-        my_other_count = my_other_count + 1;
-        // no optimistic recalculate needed
-        break;
-        
-      case 1: 
-        my_one_vote_over_count = my_one_vote_over_count + 1;
-        my_optimistic_recalculate_needed = true;
-        break;
-        
-      case 2:
-        my_two_vote_over_count = my_two_vote_over_count + 1;
-        my_optimistic_recalculate_needed = true;
-        break;
-        
-      default:
-        throw new IllegalArgumentException("invalid discrepancy type: " + the_type);
-    }
-    
+    recordDiscrepancy(the_record, the_type, 1);
+  }
+  
+  /**
+   * Records the specified discrepancy, counted the specified number of times 
+   * (for duplicates). The valid range of discrepancy types is as for 
+   * recordDiscrepancy(CVRAuditInfo, int).
+   * 
+   * @param the_record The CVRAuditInfo record that generated the discrepancy.
+   * @param the_type The type of discrepancy to add.
+   * @param the_count The number of times to count the discrepancy.
+   * @exception IllegalArgumentException if an invalid discrepancy type is 
+   * specified.
+   */
+  public void recordDiscrepancy(final CVRAuditInfo the_record,
+                                final int the_type, final int the_count) {
+    adjustDiscrepancyCount(the_type, the_count);
     my_discrepancies.put(the_record, the_type);
   }
     
@@ -676,42 +678,73 @@ public class CountyContestComparisonAudit implements PersistentEntity {
    * @exception IllegalArgumentException if an invalid discrepancy type is 
    * specified.
    */
-  @SuppressWarnings("checkstyle:magicnumber")
   public void removeDiscrepancy(final CVRAuditInfo the_record, final int the_type) {
+    removeDiscrepancy(the_record, the_type, 1);
+  }
+  
+  /**
+   * Removes the specified over/understatement, counted the specified number
+   * of times (for duplicates). The valid range of discrepancy types is as for
+   * removeDiscrepancy(CVRAuditInfo, int).
+   * 
+   * @param the_record The CVRAuditInfo record that generated the discrepancy.
+   * @param the_type The type of discrepancy to remove.
+   * @param the_count The number of times the discrepancy was counted.
+   * @exception IllegalArgumentException if an invalid discrepancy type is 
+   * specified.
+   */
+  public void removeDiscrepancy(final CVRAuditInfo the_record,
+                                final int the_type, final int the_count) {
+    adjustDiscrepancyCount(the_type, -the_count);
+    my_discrepancies.remove(the_record);
+  }
+  
+  /**
+   * Adds the specified amount to the count of the specified type of 
+   * discrepancy, and marks the optimistic estimate for recalculation if
+   * the type affects it. The estimate itself is recalculated only when it
+   * is next read, so a submission that changes several counts causes at 
+   * most one recalculation.
+   * 
+   * @param the_type The type of discrepancy.
+   * @param the_delta The amount to add (negative to remove discrepancies).
+   * @exception IllegalArgumentException if an invalid discrepancy type is 
+   * specified.
+   */
+  @SuppressWarnings("checkstyle:magicnumber")
+  private void adjustDiscrepancyCount(final int the_type, final int the_delta) {
     // we never trigger an estimated recalculate here; it is
-    // triggered by signalBallotAudited() regardless of whether there is 
+    // triggered by signalSampleAudited() regardless of whether there is 
     // a discrepancy or not
     switch (the_type) {
       case -2: 
-        my_two_vote_under_count = my_two_vote_under_count - 1;
+        my_two_vote_under_count = my_two_vote_under_count + the_delta;
         my_optimistic_recalculate_needed = true;
         break;
-
+       
       case -1:
-        my_one_vote_under_count = my_one_vote_under_count - 1;
+        my_one_vote_under_count = my_one_vote_under_count + the_delta;
         my_optimistic_recalculate_needed = true;
         break;
-
+        
       case 0:
-        my_other_count = my_other_count - 1;
-        // no recalculate needed
+        my_other_count = my_other_count + the_delta;
+        // no optimistic recalculate needed
         break;
         
       case 1: 
-        my_one_vote_over_count = my_one_vote_over_count - 1;
+        my_one_vote_over_count = my_one_vote_over_count + the_delta;
         my_optimistic_recalculate_needed = true;
         break;
-
+        
       case 2:
-        my_two_vote_over_count = my_two_vote_over_count - 1;
+        my_two_vote_over_count = my_two_vote_over_count + the_delta;
         my_optimistic_recalculate_needed = true;
         break;
-
+        
       default:
         throw new IllegalArgumentException("invalid discrepancy type: " + the_type);
     }
-    
-    my_discrepancies.remove(the_record);
   }
   
   /**
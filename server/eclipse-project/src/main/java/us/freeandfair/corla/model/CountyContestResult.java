@@ -25,14 +25,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.OptionalInt;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import javax.persistence.Cacheable;
 import javax.persistence.CollectionTable;
@@ -253,23 +250,13 @@ public class CountyContestResult implements PersistentEntity, Serializable {
    *         received.
    */
   public List<String> rankedChoices() {
-    final List<String> result = new ArrayList<String>();
-
-    final SortedMap<Integer, List<String>> sorted_totals =
-        new TreeMap<Integer, List<String>>((a, b) -> b.compareTo(a));
-    for (final Entry<String, Integer> e : my_vote_totals.entrySet()) {
-      final List<String> list = sorted_totals.get(e.getValue());
-      if (list == null) {
-        sorted_totals.put(e.getValue(), new ArrayList<>());
-      }
-      sorted_totals.get(e.getValue()).add(e.getKey());
-    }
+    final List<Entry<String, Integer>> entries = new ArrayList<>(my_vote_totals.entrySet());
+    // the sort is stable, so tied choices stay in iteration order
+    entries.sort((a, b) -> b.getValue().compareTo(a.getValue()));
 
-    final Iterator<Entry<Integer, List<String>>> iterator =
-        sorted_totals.entrySet().iterator();
-    while (iterator.hasNext()) {
-      final Entry<Integer, List<String>> entry = iterator.next();
-      result.addAll(entry.getValue());
+    final List<String> result = new ArrayList<String>(entries.size());
+    for (final Entry<String, Integer> e : entries) {
+      result.add(e.getKey());
     }
     return result;
   }
@@ -486,42 +473,40 @@ public class CountyContestResult implements PersistentEntity, Serializable {
   }
 
   /**
-   * Updates the stored results.
+   * Update the vote totals using the data from the specified tally. The
+   * tally's choice indexes for this contest must be the positions of the
+   * choices in the contest's list of choices.
+   * 
+   * @param the_tally The tally.
+   * @param the_index The index of this contest in the tally.
    */
-  public void updateResults() {
-    // first, sort the vote totals
-    final SortedMap<Integer, List<String>> sorted_totals =
-        new TreeMap<Integer, List<String>>((a, b) -> b.compareTo(a));
-    for (final Entry<String, Integer> e : my_vote_totals.entrySet()) {
-      final List<String> list = sorted_totals.get(e.getValue());
-      if (list == null) {
-        sorted_totals.put(e.getValue(), new ArrayList<>());
-      }
-      sorted_totals.get(e.getValue()).add(e.getKey());
-    }
-    // next, get the winners and losers
-    final Iterator<Entry<Integer, List<String>>> vote_total_iterator =
-        sorted_totals.entrySet().iterator();
-    Entry<Integer, List<String>> entry = null;
-    while (vote_total_iterator.hasNext() && my_winners.size() < my_winners_allowed) {
-      entry = vote_total_iterator.next();
-      final List<String> choices = entry.getValue();
-      if (choices.size() + my_winners.size() <= my_winners_allowed) {
-        my_winners.addAll(choices);
-      } else {
-        // we are arbitrarily making the first choices in the list "winners" and
-        // the last choices in the list "losers", but since it's a tie, it
-        // really
-        // doesn't matter
-        final int to_add = my_winners_allowed - my_winners.size();
-        my_winners.addAll(choices.subList(0, to_add));
-        my_losers.addAll(choices.subList(to_add, choices.size()));
+  public void addVotes(final ContestTally the_tally, final int the_index) {
+    final List<Choice> choices = my_contest.choices();
+    for (int i = 0; i < choices.size(); i++) {
+      final Choice c = choices.get(i);
+      if (!c.fictitious()) {
+        my_vote_totals.merge(c.name(), the_tally.votes(the_index, i), Integer::sum);
       }
     }
-    while (vote_total_iterator.hasNext()) {
-      // all the other choices count as losers
-      my_losers.addAll(vote_total_iterator.next().getValue());
-    }
+    my_contest_ballot_count = 
+        Integer.valueOf(my_contest_ballot_count + the_tally.contestBallots(the_index));
+    my_county_ballot_count = 
+        Integer.valueOf(my_county_ballot_count + the_tally.countyBallots());
+  }
+
+  /**
+   * Updates the stored results.
+   */
+  public void updateResults() {
+    // the winners are the highest ranked choices; where there is a tie at
+    // the boundary, we are arbitrarily making the first tied choices
+    // "winners" and the last tied choices "losers", but since it's a tie,
+    // it really doesn't matter
+    final List<String> ranked = rankedChoices();
+    final int to_add = 
+        Math.max(0, Math.min(my_winners_allowed - my_winners.size(), ranked.size()));
+    my_winners.addAll(ranked.subList(0, to_add));
+    my_losers.addAll(ranked.subList(to_add, ranked.size()));
 
     calculateMargins();
   }
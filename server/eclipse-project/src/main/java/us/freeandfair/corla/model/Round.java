@@ -323,12 +323,23 @@ public class Round implements Serializable {
    * @param the_reasons The reasons.
    */
   public void addDiscrepancy(final Set<AuditReason> the_reasons) {
+    addDiscrepancy(the_reasons, 1);
+  }
+  
+  /**
+   * Adds a discrepancy for the specified audit reasons, counted the specified
+   * number of times (for duplicates).
+   * 
+   * @param the_reasons The reasons.
+   * @param the_count The number of times to count the discrepancy.
+   */
+  public void addDiscrepancy(final Set<AuditReason> the_reasons, final int the_count) {
     final Set<AuditSelection> selections = new HashSet<>();
     for (final AuditReason r : the_reasons) {
       selections.add(r.selection());
     }
     for (final AuditSelection s : selections) {
-      my_discrepancies.put(s, my_discrepancies.getOrDefault(s, 0) + 1);
+      my_discrepancies.put(s, my_discrepancies.getOrDefault(s, 0) + the_count);
     }
   }
   
@@ -363,12 +374,23 @@ public class Round implements Serializable {
    * @param the_reasons The reasons.
    */
   public void addDisagreement(final Set<AuditReason> the_reasons) {
+    addDisagreement(the_reasons, 1);
+  }
+  
+  /**
+   * Adds a disagreement for the specified audit reasons, counted the specified
+   * number of times (for duplicates).
+   * 
+   * @param the_reasons The reasons.
+   * @param the_count The number of times to count the disagreement.
+   */
+  public void addDisagreement(final Set<AuditReason> the_reasons, final int the_count) {
     final Set<AuditSelection> selections = new HashSet<>();
     for (final AuditReason r : the_reasons) {
       selections.add(r.selection());
     }
     for (final AuditSelection s : selections) {
-      my_disagreements.put(s, my_disagreements.getOrDefault(s, 0) + 1);
+      my_disagreements.put(s, my_disagreements.getOrDefault(s, 0) + the_count);
     }
   }
   
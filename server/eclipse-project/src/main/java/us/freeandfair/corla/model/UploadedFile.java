@@ -107,12 +107,27 @@ public class UploadedFile implements PersistentEntity {
   private HashStatus my_hash_status;
   
   /**
-   * The uploaded file. 
+   * The uploaded file, if it is stored in the database. 
    */
   @Lob
-  @Column(updatable = false, nullable = false)
+  @Column(updatable = false)
   private Blob my_file;
   
+  /**
+   * Where the uploaded file is stored; null for files uploaded before 
+   * storage was configurable, which are stored in the database.
+   */
+  @Column(updatable = false)
+  @Enumerated(EnumType.STRING)
+  private StorageType my_storage;
+  
+  /**
+   * The key under which the uploaded file is stored, if it is not 
+   * stored in the database.
+   */
+  @Column(updatable = false)
+  private String my_storage_key;
+  
   /**
    * The file size.
    */
@@ -142,7 +157,8 @@ public class UploadedFile implements PersistentEntity {
    * @param the_hash The hash entered at upload time.
    * @param the_hash_status A flag indicating whether the file matches
    * the hash.
-   * @param the_file The file (as a Blob).
+   * @param the_file The file (as a Blob), or null if the file is not
+   * stored in the database.
    * @param the_size The file size (in bytes).
    * @param the_approximate_record_count The approximate record count.
    */
@@ -243,12 +259,56 @@ public class UploadedFile implements PersistentEntity {
   }
   
   /**
-   * @return the file, as a binary blob.
+   * @return the file, as a binary blob, or null if the file is not stored
+   * in the database.
    */
   public Blob file() {
     return my_file;
   }
   
+  /**
+   * Sets the file, as a binary blob. This must be done before the file is
+   * first persisted.
+   * 
+   * @param the_file The file.
+   */
+  public void setFile(final Blob the_file) {
+    my_file = the_file;
+  }
+  
+  /**
+   * @return where the file is stored.
+   */
+  public StorageType storage() {
+    final StorageType result;
+    if (my_storage == null) {
+      result = StorageType.DATABASE;
+    } else {
+      result = my_storage;
+    }
+    return result;
+  }
+  
+  /**
+   * @return the key under which the file is stored, or null if it is stored
+   * in the database.
+   */
+  public String storageKey() {
+    return my_storage_key;
+  }
+  
+  /**
+   * Sets where the file is stored. This must be done before the file is
+   * first persisted.
+   * 
+   * @param the_storage The storage type.
+   * @param the_storage_key The key under which the file is stored.
+   */
+  public void setStorage(final StorageType the_storage, final String the_storage_key) {
+    my_storage = the_storage;
+    my_storage_key = the_storage_key;
+  }
+  
   /**
    * @return the file size (in bytes).
    */
@@ -318,6 +378,14 @@ public class UploadedFile implements PersistentEntity {
     IMPORTED_AS_CVR_EXPORT
   }
   
+  /**
+   * An enumeration of places where file contents can be stored.
+   */
+  public enum StorageType {
+    DATABASE,
+    FILESYSTEM;
+  }
+  
   /**
    * An enumeration of hash statuses.
    */
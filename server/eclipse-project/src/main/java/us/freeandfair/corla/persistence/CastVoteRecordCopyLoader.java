@@ -0,0 +1,303 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.persistence;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.PersistenceException;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import us.freeandfair.corla.model.CVRContestInfo;
+import us.freeandfair.corla.model.CastVoteRecord;
+
+/**
+ * A bulk loader for imported cast vote records, which bypasses Hibernate and
+ * streams the records through the PostgreSQL COPY protocol into temporary
+ * staging tables, then moves them into the cast_vote_record and
+ * cvr_contest_info tables with a single statement. The rows it creates are
+ * the same as those Hibernate would create for the same records: IDs come
+ * from the same sequence, versions start at 0, and contest choices are
+ * encoded with the same converter.
+ *
+ * The loader must be used on the thread that owns the current persistence
+ * session, within a running transaction; the records it loads become visible
+ * when that transaction commits. It only handles records without timestamps
+ * (i.e., imported CVRs, not ACVRs), and each batch of records must have
+ * distinct sequence numbers.
+ *
+ * @version 1.0.0
+ */
+public class CastVoteRecordCopyLoader {
+  /**
+   * The name of the sequence Hibernate uses to generate entity IDs.
+   */
+  public static final String ID_SEQUENCE = "hibernate_sequence";
+
+  /**
+   * The COPY text format representation of null.
+   */
+  private static final String NULL = "\\N";
+
+  /**
+   * The COPY text format column separator.
+   */
+  private static final char SEPARATOR = '\t';
+
+  /**
+   * The COPY text format row terminator.
+   */
+  private static final char TERMINATOR = '\n';
+
+  /**
+   * The staging table for cast vote records.
+   */
+  private static final String CVR_STAGING = "cvr_copy_staging";
+
+  /**
+   * The staging table for CVR contest information.
+   */
+  private static final String INFO_STAGING = "cvr_contest_info_copy_staging";
+
+  /**
+   * The statement that creates the cast vote record staging table.
+   */
+  private static final String CREATE_CVR_STAGING =
+      "create temporary table " + CVR_STAGING +
+      " (record_type varchar(255), county_id int8, cvr_number int4, " +
+      "sequence_number int4, scanner_id int4, batch_id int4, record_id int4, " +
+      "imprinted_id varchar(255), ballot_type varchar(255)) on commit drop";
+
+  /**
+   * The statement that creates the CVR contest information staging table.
+   */
+  private static final String CREATE_INFO_STAGING =
+      "create temporary table " + INFO_STAGING +
+      " (sequence_number int4, index int4, contest_id int8, comment varchar(255), " +
+      "consensus varchar(255), choices text) on commit drop";
+
+  /**
+   * The COPY command for cast vote records.
+   */
+  private static final String COPY_CVRS =
+      "copy " + CVR_STAGING + " (record_type, county_id, cvr_number, " +
+      "sequence_number, scanner_id, batch_id, record_id, imprinted_id, " +
+      "ballot_type) from stdin";
+
+  /**
+   * The COPY command for CVR contest information.
+   */
+  private static final String COPY_INFO =
+      "copy " + INFO_STAGING + " (sequence_number, index, contest_id, comment, " +
+      "consensus, choices) from stdin";
+
+  /**
+   * The statement that moves the staged records into the real tables. The
+   * new cast vote record IDs are matched to the contest information by
+   * sequence number.
+   */
+  private static final String MOVE_STAGED =
+      "with inserted as (insert into cast_vote_record (id, version, record_type, " +
+      "timestamp, county_id, cvr_number, sequence_number, scanner_id, batch_id, " +
+      "record_id, imprinted_id, ballot_type) " +
+      "select nextval('" + ID_SEQUENCE + "'), 0, record_type, null, county_id, " +
+      "cvr_number, sequence_number, scanner_id, batch_id, record_id, imprinted_id, " +
+      "ballot_type from " + CVR_STAGING + " order by sequence_number " +
+      "returning id, sequence_number) " +
+      "insert into cvr_contest_info (cvr_id, index, contest_id, comment, consensus, " +
+      "choices) select i.id, s.index, s.contest_id, s.comment, s.consensus, s.choices " +
+      "from " + INFO_STAGING + " s join inserted i on i.sequence_number = s.sequence_number";
+
+  /**
+   * The statement that drops the staging tables.
+   */
+  private static final String DROP_STAGING =
+      "drop table " + CVR_STAGING + ", " + INFO_STAGING;
+
+  /**
+   * The converter used for contest choices.
+   */
+  private static final StringListConverter CHOICES_CONVERTER = new StringListConverter();
+
+  /**
+   * The records waiting to be loaded.
+   */
+  private final List<CastVoteRecord> my_pending = new ArrayList<>();
+
+  /**
+   * Adds a record to be loaded by the next call to load().
+   *
+   * @param the_cvr The record.
+   * @exception IllegalArgumentException if the record has a timestamp.
+   */
+  public void add(final CastVoteRecord the_cvr) {
+    if (the_cvr.timestamp() != null) {
+      throw new IllegalArgumentException("cannot bulk load records with timestamps");
+    }
+    my_pending.add(the_cvr);
+  }
+
+  /**
+   * @return the number of records waiting to be loaded.
+   */
+  public int pending() {
+    return my_pending.size();
+  }
+
+  /**
+   * Loads all the waiting records into the database, in the current
+   * transaction. The session is flushed first, so that the records can
+   * refer to contests that have been saved but not yet flushed.
+   *
+   * @return the number of records loaded.
+   * @exception PersistenceException if the records cannot be loaded.
+   */
+  public int load() throws PersistenceException {
+    final int result = my_pending.size();
+    if (result > 0) {
+      final StringBuilder cvr_rows = new StringBuilder();
+      final StringBuilder info_rows = new StringBuilder();
+      for (final CastVoteRecord cvr : my_pending) {
+        cvr_rows.append(cvrRow(cvr));
+        info_rows.append(contestInfoRows(cvr));
+      }
+      Persistence.flush();
+      Persistence.currentSession().doWork(the_connection ->
+          copy(the_connection, cvr_rows.toString(), info_rows.toString()));
+      my_pending.clear();
+    }
+    return result;
+  }
+
+  /**
+   * Copies the specified rows into the staging tables and moves them into
+   * the real tables.
+   *
+   * @param the_connection The connection.
+   * @param the_cvr_rows The cast vote record rows, in COPY text format.
+   * @param the_info_rows The contest information rows, in COPY text format.
+   * @exception SQLException if anything goes wrong.
+   */
+  private static void copy(final Connection the_connection,
+                           final String the_cvr_rows, final String the_info_rows)
+      throws SQLException {
+    final CopyManager copy_manager =
+        the_connection.unwrap(PGConnection.class).getCopyAPI();
+    try (Statement s = the_connection.createStatement()) {
+      s.execute(CREATE_CVR_STAGING);
+      s.execute(CREATE_INFO_STAGING);
+      copy_manager.copyIn(COPY_CVRS, new StringReader(the_cvr_rows));
+      copy_manager.copyIn(COPY_INFO, new StringReader(the_info_rows));
+      s.execute(MOVE_STAGED);
+      s.execute(DROP_STAGING);
+    } catch (final IOException e) {
+      throw new SQLException("could not copy cast vote records", e);
+    }
+  }
+
+  /**
+   * Encodes the staged columns of a cast vote record as a row in COPY
+   * text format.
+   *
+   * @param the_cvr The record.
+   * @return the row, including its terminator.
+   */
+  static String cvrRow(final CastVoteRecord the_cvr) {
+    final StringBuilder sb = new StringBuilder();
+    appendColumn(sb, the_cvr.recordType(), false);
+    appendColumn(sb, the_cvr.countyID(), true);
+    appendColumn(sb, the_cvr.cvrNumber(), true);
+    appendColumn(sb, the_cvr.sequenceNumber(), true);
+    appendColumn(sb, the_cvr.scannerID(), true);
+    appendColumn(sb, the_cvr.batchID(), true);
+    appendColumn(sb, the_cvr.recordID(), true);
+    appendColumn(sb, the_cvr.imprintedID(), true);
+    appendColumn(sb, the_cvr.ballotType(), true);
+    sb.append(TERMINATOR);
+    return sb.toString();
+  }
+
+  /**
+   * Encodes the staged columns of the contest information in a cast vote
+   * record as rows in COPY text format, one for each contest.
+   *
+   * @param the_cvr The record.
+   * @return the rows, including their terminators.
+   */
+  static String contestInfoRows(final CastVoteRecord the_cvr) {
+    final StringBuilder sb = new StringBuilder();
+    final List<CVRContestInfo> contest_info = the_cvr.contestInfo();
+    for (int i = 0; i < contest_info.size(); i++) {
+      final CVRContestInfo ci = contest_info.get(i);
+      appendColumn(sb, the_cvr.sequenceNumber(), false);
+      appendColumn(sb, i, true);
+      appendColumn(sb, ci.contest().id(), true);
+      appendColumn(sb, ci.comment(), true);
+      appendColumn(sb, ci.consensus(), true);
+      appendColumn(sb, CHOICES_CONVERTER.convertToDatabaseColumn(ci.choices()), true);
+      sb.append(TERMINATOR);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Appends a column value in COPY text format to the specified builder.
+   *
+   * @param the_builder The builder.
+   * @param the_value The value, which may be null.
+   * @param the_separate true to precede the value with a column separator,
+   * false otherwise.
+   */
+  private static void appendColumn(final StringBuilder the_builder,
+                                   final Object the_value,
+                                   final boolean the_separate) {
+    if (the_separate) {
+      the_builder.append(SEPARATOR);
+    }
+    if (the_value == null) {
+      the_builder.append(NULL);
+    } else {
+      // enumerations are stored by name, as with EnumType.STRING
+      final String value;
+      if (the_value instanceof Enum) {
+        value = ((Enum<?>) the_value).name();
+      } else {
+        value = the_value.toString();
+      }
+      for (int i = 0; i < value.length(); i++) {
+        final char c = value.charAt(i);
+        switch (c) {
+          case '\\':
+            the_builder.append("\\\\");
+            break;
+          case '\t':
+            the_builder.append("\\t");
+            break;
+          case '\n':
+            the_builder.append("\\n");
+            break;
+          case '\r':
+            the_builder.append("\\r");
+            break;
+          default:
+            the_builder.append(c);
+        }
+      }
+    }
+  }
+}
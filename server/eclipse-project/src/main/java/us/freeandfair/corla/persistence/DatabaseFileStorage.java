@@ -0,0 +1,87 @@
+/*
+ * Free & Fair Colorado RLA System
+ * 
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.persistence;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+import us.freeandfair.corla.model.UploadedFile;
+import us.freeandfair.corla.model.UploadedFile.StorageType;
+import us.freeandfair.corla.util.UploadedFileStreamer;
+
+/**
+ * Storage for uploaded files as database Blobs. Reading a file this way
+ * needs a transaction for as long as the read lasts, so detached reads
+ * use a dedicated thread (with its own session and transaction).
+ * 
+ * @version 1.0.0
+ */
+@SuppressWarnings("PMD.DoNotUseThreads")
+public class DatabaseFileStorage implements FileStorage {
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public StorageType type() {
+    return StorageType.DATABASE;
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void save(final UploadedFile the_file, final Path the_content, 
+                   final String the_content_hash) 
+      throws IOException {
+    // the Blob streams from the content, so the content must stay open
+    // until the file has been flushed to the database
+    try (InputStream is = Files.newInputStream(the_content)) {
+      the_file.setFile(Persistence.blobFor(is, Files.size(the_content)));
+      the_file.setStorage(StorageType.DATABASE, null);
+      Persistence.save(the_file);
+      Persistence.flush();
+    }
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public InputStream open(final UploadedFile the_file) throws IOException {
+    try {
+      return the_file.file().getBinaryStream();
+    } catch (final SQLException e) {
+      throw new IOException("could not read file " + the_file.id(), e);
+    }
+  }
+  
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public InputStream openDetached(final UploadedFile the_file) {
+    final UploadedFileStreamer ufs = new UploadedFileStreamer(the_file);
+    (new Thread(ufs)).start();
+    return new FilterInputStream(ufs.inputStream()) {
+      /**
+       * Stops the streamer, which closes the underlying stream. 
+       */
+      @Override
+      public void close() {
+        ufs.stop();
+      }
+    };
+  }
+}
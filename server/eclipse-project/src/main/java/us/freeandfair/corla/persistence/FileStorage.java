@@ -0,0 +1,71 @@
+/*
+ * Free & Fair Colorado RLA System
+ * 
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import javax.persistence.PersistenceException;
+
+import us.freeandfair.corla.model.UploadedFile;
+import us.freeandfair.corla.model.UploadedFile.StorageType;
+
+/**
+ * A place to store the contents of uploaded files.
+ * 
+ * @version 1.0.0
+ */
+public interface FileStorage {
+  /**
+   * @return the type of this storage, as recorded in the files it stores.
+   */
+  StorageType type();
+  
+  /**
+   * Stores the specified content as the content of the specified uploaded
+   * file, and persists the file. This must be called within a running 
+   * transaction, on a file that has not yet been persisted. The content may 
+   * be moved by this method, so the caller must not assume that it still 
+   * exists afterwards.
+   * 
+   * @param the_file The uploaded file.
+   * @param the_content The content.
+   * @param the_content_hash The SHA-256 hash of the content, as computed 
+   * by HashChecker.
+   * @exception IOException if the content cannot be stored.
+   * @exception PersistenceException if the file cannot be persisted.
+   */
+  void save(UploadedFile the_file, Path the_content, String the_content_hash)
+      throws IOException;
+  
+  /**
+   * Opens the content of the specified uploaded file for reading within 
+   * the current transaction. The stream must be closed before the 
+   * transaction ends.
+   * 
+   * @param the_file The uploaded file.
+   * @return a stream of the content.
+   * @exception IOException if the content cannot be opened.
+   */
+  InputStream open(UploadedFile the_file) throws IOException;
+  
+  /**
+   * Opens the content of the specified uploaded file for reading 
+   * independently of the current transaction, so that the caller can commit
+   * and begin transactions while reading. 
+   * 
+   * @param the_file The uploaded file.
+   * @return a stream of the content.
+   * @exception IOException if the content cannot be opened.
+   */
+  InputStream openDetached(UploadedFile the_file) throws IOException;
+}
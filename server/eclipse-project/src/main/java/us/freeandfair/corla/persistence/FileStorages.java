@@ -0,0 +1,115 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.persistence;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+import us.freeandfair.corla.Main;
+import us.freeandfair.corla.model.UploadedFile;
+import us.freeandfair.corla.model.UploadedFile.StorageType;
+
+/**
+ * The file storage backends for uploaded files. New uploads go to the
+ * configured backend; existing uploads are always read from the backend
+ * they were stored in, so the configuration can change without making
+ * earlier uploads unreadable.
+ *
+ * @version 1.0.0
+ */
+public final class FileStorages {
+  /**
+   * The "file storage" property; either "database" or "filesystem".
+   */
+  public static final String STORAGE_PROPERTY = "file_storage";
+
+  /**
+   * The "file storage directory" property, used by filesystem storage.
+   */
+  public static final String DIRECTORY_PROPERTY = "file_storage_directory";
+
+  /**
+   * The default file storage directory.
+   */
+  public static final String DEFAULT_DIRECTORY = "uploaded_files";
+
+  /**
+   * The database storage backend.
+   */
+  private static final FileStorage DATABASE = new DatabaseFileStorage();
+
+  /**
+   * The filesystem storage backend, created when first needed.
+   */
+  private static FileStorage filesystem;
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private FileStorages() {
+    // empty
+  }
+
+  /**
+   * @return the storage backend for new uploads.
+   * @exception IOException if the configured backend cannot be created.
+   */
+  public static FileStorage configured() throws IOException {
+    final String storage =
+        Main.properties().getProperty(STORAGE_PROPERTY,
+                                      StorageType.DATABASE.toString());
+    StorageType type;
+    try {
+      type = StorageType.valueOf(storage.trim().toUpperCase(Locale.US));
+    } catch (final IllegalArgumentException e) {
+      Main.LOGGER.error("invalid file storage " + storage + ", using database");
+      type = StorageType.DATABASE;
+    }
+    return forType(type);
+  }
+
+  /**
+   * Gets the storage backend that holds the specified file.
+   *
+   * @param the_file The file.
+   * @return the storage backend.
+   * @exception IOException if the backend cannot be created.
+   */
+  public static FileStorage forFile(final UploadedFile the_file) throws IOException {
+    return forType(the_file.storage());
+  }
+
+  /**
+   * Gets the storage backend of the specified type.
+   *
+   * @param the_type The type.
+   * @return the storage backend.
+   * @exception IOException if the backend cannot be created.
+   */
+  private static synchronized FileStorage forType(final StorageType the_type)
+      throws IOException {
+    final FileStorage result;
+    if (the_type == StorageType.FILESYSTEM) {
+      if (filesystem == null) {
+        final Properties properties = Main.properties();
+        filesystem =
+            new LocalFileStorage(Paths.get(properties.getProperty(DIRECTORY_PROPERTY,
+                                                                  DEFAULT_DIRECTORY)));
+      }
+      result = filesystem;
+    } else {
+      result = DATABASE;
+    }
+    return result;
+  }
+}
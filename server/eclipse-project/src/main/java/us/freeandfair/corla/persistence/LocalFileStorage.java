@@ -0,0 +1,268 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import us.freeandfair.corla.model.UploadedFile;
+import us.freeandfair.corla.model.UploadedFile.StorageType;
+
+/**
+ * Content-addressed storage for uploaded files in a local directory. Each
+ * file is stored once, under its SHA-256 hash, in a subdirectory named for
+ * the first two digits of the hash; uploading the same content again reuses
+ * the stored copy. Stored files are never modified, so they are read through
+ * read-only memory mappings, without a database connection or transaction.
+ *
+ * @version 1.0.0
+ */
+public class LocalFileStorage implements FileStorage {
+  /**
+   * The pattern that storage keys (SHA-256 hashes) must match.
+   */
+  private static final Pattern KEY_PATTERN = Pattern.compile("[0-9A-F]{64}");
+
+  /**
+   * The name of the directory in which content is staged before it is
+   * moved into place.
+   */
+  private static final String STAGING_DIRECTORY = "staging";
+
+  /**
+   * The length of the subdirectory names.
+   */
+  private static final int PREFIX_LENGTH = 2;
+
+  /**
+   * The largest region of a file mapped at once, in bytes.
+   */
+  private static final long MAP_WINDOW = 64L * 1024 * 1024; // 64 MB
+
+  /**
+   * The root directory.
+   */
+  private final Path my_root;
+
+  /**
+   * Constructs a new LocalFileStorage.
+   *
+   * @param the_root The root directory, which is created if necessary.
+   * @exception IOException if the root directory cannot be created.
+   */
+  public LocalFileStorage(final Path the_root) throws IOException {
+    my_root = the_root;
+    Files.createDirectories(my_root.resolve(STAGING_DIRECTORY));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public StorageType type() {
+    return StorageType.FILESYSTEM;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void save(final UploadedFile the_file, final Path the_content,
+                   final String the_content_hash)
+      throws IOException {
+    final String key = put(the_content, the_content_hash);
+    the_file.setStorage(StorageType.FILESYSTEM, key);
+    Persistence.save(the_file);
+    Persistence.flush();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public InputStream open(final UploadedFile the_file) throws IOException {
+    return get(the_file.storageKey());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public InputStream openDetached(final UploadedFile the_file) throws IOException {
+    return get(the_file.storageKey());
+  }
+
+  /**
+   * Stores the specified content under the specified hash, moving it into
+   * place. If content with the same hash is already stored, the specified
+   * content is deleted instead.
+   *
+   * @param the_content The content.
+   * @param the_hash The SHA-256 hash of the content.
+   * @return the storage key.
+   * @exception IOException if the content cannot be stored.
+   */
+  public String put(final Path the_content, final String the_hash) throws IOException {
+    final String key = the_hash.toUpperCase(Locale.US);
+    final Path target = pathFor(key);
+    if (Files.exists(target)) {
+      Files.delete(the_content);
+    } else {
+      Files.createDirectories(target.getParent());
+      // moving into the staging directory may need a copy, if the content is
+      // on another filesystem; the move into place is then atomic, so no one
+      // can see a partial file
+      final Path staged =
+          Files.createTempFile(my_root.resolve(STAGING_DIRECTORY), key, ".tmp");
+      Files.move(the_content, staged, StandardCopyOption.REPLACE_EXISTING);
+      Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+    return key;
+  }
+
+  /**
+   * Opens the content stored under the specified key.
+   *
+   * @param the_key The key.
+   * @return a stream of the content.
+   * @exception IOException if the content cannot be opened.
+   */
+  public InputStream get(final String the_key) throws IOException {
+    return new MappedInputStream(FileChannel.open(pathFor(the_key),
+                                                  StandardOpenOption.READ));
+  }
+
+  /**
+   * Gets the path for the specified key.
+   *
+   * @param the_key The key.
+   * @return the path.
+   * @exception IllegalArgumentException if the key is not a SHA-256 hash.
+   */
+  private Path pathFor(final String the_key) {
+    if (the_key == null || !KEY_PATTERN.matcher(the_key).matches()) {
+      throw new IllegalArgumentException("invalid storage key " + the_key);
+    }
+    return my_root.resolve(the_key.substring(0, PREFIX_LENGTH)).resolve(the_key);
+  }
+
+  /**
+   * An input stream over a file channel, which reads through successive
+   * read-only memory mappings of the file.
+   */
+  private static class MappedInputStream extends InputStream {
+    /**
+     * The channel.
+     */
+    private final FileChannel my_channel;
+
+    /**
+     * The size of the file.
+     */
+    private final long my_size;
+
+    /**
+     * The position in the file of the end of the current mapping.
+     */
+    private long my_mapped_to;
+
+    /**
+     * The current mapping.
+     */
+    private MappedByteBuffer my_buffer;
+
+    /**
+     * Constructs a new MappedInputStream.
+     *
+     * @param the_channel The channel.
+     * @exception IOException if the channel's size cannot be read.
+     */
+    MappedInputStream(final FileChannel the_channel) throws IOException {
+      super();
+      my_channel = the_channel;
+      my_size = the_channel.size();
+    }
+
+    /**
+     * Ensures that the current mapping has bytes remaining, mapping the
+     * next region of the file if necessary.
+     *
+     * @return true if there are bytes remaining, false at the end of the file.
+     * @exception IOException if the file cannot be mapped.
+     */
+    private boolean ensureMapped() throws IOException {
+      if ((my_buffer == null || !my_buffer.hasRemaining()) && my_mapped_to < my_size) {
+        final long length = Math.min(MAP_WINDOW, my_size - my_mapped_to);
+        my_buffer = my_channel.map(MapMode.READ_ONLY, my_mapped_to, length);
+        my_mapped_to = my_mapped_to + length;
+      }
+      return my_buffer != null && my_buffer.hasRemaining();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException {
+      int result = -1;
+      if (ensureMapped()) {
+        result = my_buffer.get() & 0xFF;
+      }
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(final byte[] the_bytes, final int the_offset, final int the_length)
+        throws IOException {
+      int result = -1;
+      if (the_length == 0) {
+        result = 0;
+      } else if (ensureMapped()) {
+        result = Math.min(the_length, my_buffer.remaining());
+        my_buffer.get(the_bytes, the_offset, result);
+      }
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int available() {
+      int result = 0;
+      if (my_buffer != null) {
+        result = my_buffer.remaining();
+      }
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+      my_buffer = null;
+      my_channel.close();
+    }
+  }
+}
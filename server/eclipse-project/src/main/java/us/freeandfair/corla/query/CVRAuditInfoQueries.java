@@ -0,0 +1,87 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.PersistenceException;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.Session;
+
+import us.freeandfair.corla.Main;
+import us.freeandfair.corla.model.CVRAuditInfo;
+import us.freeandfair.corla.persistence.Persistence;
+
+/**
+ * Queries having to do with CVRAuditInfo entities.
+ *
+ * @version 1.0.0
+ */
+public final class CVRAuditInfoQueries {
+  /**
+   * The "ID" field.
+   */
+  private static final String ID = "my_id";
+
+  /**
+   * The "ACVR" field.
+   */
+  private static final String ACVR = "my_acvr";
+
+  /**
+   * The maximum number of IDs to look up in a single query.
+   */
+  private static final int MAX_IDS_PER_QUERY = 1000;
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private CVRAuditInfoQueries() {
+    // do nothing
+  }
+
+  /**
+   * Finds which of the specified CVRs have been audited, that is, have
+   * audit info with an ACVR. This takes one query for every
+   * MAX_IDS_PER_QUERY distinct IDs, rather than one for each ID.
+   *
+   * @param the_cvr_ids The CVR IDs.
+   * @return the set of IDs, among the specified IDs, of audited CVRs.
+   * @exception PersistenceException if the query fails.
+   */
+  public static Set<Long> auditedIDs(final Collection<Long> the_cvr_ids) {
+    final Set<Long> result = new HashSet<>();
+    final List<Long> ids = new ArrayList<>(new HashSet<>(the_cvr_ids));
+    final Session s = Persistence.currentSession();
+    final CriteriaBuilder cb = s.getCriteriaBuilder();
+    for (int start = 0; start < ids.size(); start = start + MAX_IDS_PER_QUERY) {
+      final List<Long> chunk =
+          ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_QUERY));
+      final CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+      final Root<CVRAuditInfo> root = cq.from(CVRAuditInfo.class);
+      cq.select(root.get(ID)).where(cb.and(root.get(ID).in(chunk),
+                                           cb.isNotNull(root.get(ACVR))));
+      final TypedQuery<Long> query = s.createQuery(cq);
+      result.addAll(query.getResultList());
+    }
+    Main.LOGGER.debug("found " + result.size() + " audited CVRs among " +
+                      ids.size());
+    return result;
+  }
+}
@@ -11,27 +11,40 @@
 
 package us.freeandfair.corla.query;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.OptionalLong;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import javax.persistence.PersistenceException;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
 import us.freeandfair.corla.Main;
+import us.freeandfair.corla.json.CastVoteRecordProjection;
+import us.freeandfair.corla.json.CastVoteRecordProjection.ContestInfo;
 import us.freeandfair.corla.model.CastVoteRecord;
 import us.freeandfair.corla.model.CastVoteRecord.RecordType;
 import us.freeandfair.corla.persistence.Persistence;
@@ -58,6 +71,48 @@ public final class CastVoteRecordQueries {
    */
   private static final String RECORD_TYPE = "my_record_type";
   
+  /**
+   * The "ID" field.
+   */
+  private static final String ID = "my_id";
+  
+  /**
+   * The "contest info" field.
+   */
+  private static final String CONTEST_INFO = "my_contest_info";
+  
+  /**
+   * The fields selected for CVR summaries, in the order in which they are
+   * passed to the CastVoteRecord constructor (after the record type).
+   */
+  private static final String[] SUMMARY_FIELDS = {
+    "my_timestamp", COUNTY_ID, "my_cvr_number", SEQUENCE_NUMBER, "my_scanner_id",
+    "my_batch_id", "my_record_id", "my_imprinted_id", "my_ballot_type"
+  };
+  
+  /**
+   * The maximum number of values in a single query's IN list; longer lists
+   * are split across several queries.
+   */
+  private static final int MAX_IN_LIST_SIZE = 1000;
+  
+  /**
+   * The number of rows fetched at a time when reading projections.
+   */
+  private static final int PROJECTION_FETCH_SIZE = 1000;
+  
+  /**
+   * The query for projections of selected CVRs, with their contest 
+   * information, ordered by CVR ID and contest information index; the 
+   * selection of CVRs is substituted in before use.
+   */
+  private static final String PROJECTION_QUERY = 
+      "select c.id, c.record_type, c.timestamp, c.county_id, c.cvr_number, " +
+      "c.sequence_number, c.scanner_id, c.batch_id, c.record_id, c.imprinted_id, " +
+      "c.ballot_type, i.contest_id, i.comment, i.consensus, i.choices " +
+      "from (%s) c left join cvr_contest_info i on i.cvr_id = c.id " +
+      "order by c.id, i.index";
+  
   /**
    * The "could not query database for CVRs error message.
    */
@@ -294,7 +349,8 @@ public final class CastVoteRecordQueries {
   
   /**
    * Obtain the CastVoteRecord objects with the specified county, type, and
-   * sequence numbers.
+   * sequence numbers. The sequence numbers are looked up in chunks, and the
+   * contest information of each chunk's records is fetched in the same query.
    * 
    * @param the_county_id The county.
    * @param the_type The type.
@@ -311,19 +367,24 @@ public final class CastVoteRecordQueries {
     try {
       final Session s = Persistence.currentSession();
       final CriteriaBuilder cb = s.getCriteriaBuilder();
-      final CriteriaQuery<CastVoteRecord> cq = cb.createQuery(CastVoteRecord.class);
-      final Root<CastVoteRecord> root = cq.from(CastVoteRecord.class);
-      final List<Predicate> conjuncts = new ArrayList<>();
-      conjuncts.add(cb.equal(root.get(COUNTY_ID), the_county_id));
-      conjuncts.add(cb.equal(root.get(RECORD_TYPE), the_type));
-      conjuncts.add(root.get("my_sequence_number").in(unique_numbers));
-      cq.select(root).where(cb.and(conjuncts.toArray(new Predicate[conjuncts.size()])));
-      final TypedQuery<CastVoteRecord> query = s.createQuery(cq);
-      final List<CastVoteRecord> query_results = query.getResultList();
-      result = new HashMap<>();
-      for (final CastVoteRecord cvr : query_results) {
-        result.put(cvr.sequenceNumber(), cvr);
+      final Map<Integer, CastVoteRecord> found = new HashMap<>();
+      for (final List<Integer> chunk : chunks(unique_numbers)) {
+        final CriteriaQuery<CastVoteRecord> cq = cb.createQuery(CastVoteRecord.class);
+        final Root<CastVoteRecord> root = cq.from(CastVoteRecord.class);
+        root.fetch(CONTEST_INFO, JoinType.LEFT);
+        final List<Predicate> conjuncts = new ArrayList<>();
+        conjuncts.add(cb.equal(root.get(COUNTY_ID), the_county_id));
+        conjuncts.add(cb.equal(root.get(RECORD_TYPE), the_type));
+        conjuncts.add(root.get(SEQUENCE_NUMBER).in(chunk));
+        cq.select(root).where(cb.and(conjuncts.toArray(new Predicate[conjuncts.size()])));
+        final TypedQuery<CastVoteRecord> query = s.createQuery(cq);
+        // the fetch join returns each record once per contest, but they are
+        // all the same object
+        for (final CastVoteRecord cvr : query.getResultList()) {
+          found.put(cvr.sequenceNumber(), cvr);
+        }
       }
+      result = found;
     } catch (final PersistenceException e) {
       Main.LOGGER.error(COULD_NOT_QUERY_DATABASE);
     }
@@ -338,7 +399,60 @@ public final class CastVoteRecordQueries {
   }
   
   /**
-   * Obtain the CastVoteRecord objects with the specified IDs. 
+   * Obtain summaries of the CastVoteRecord objects with the specified county, 
+   * type, and sequence numbers. A summary is a read-only CastVoteRecord that 
+   * has every field except its contest information, and is not part of the 
+   * persistence context; it is meant for callers that only need the fields 
+   * that identify a ballot card, such as ballot lists.
+   * 
+   * @param the_county_id The county.
+   * @param the_type The type.
+   * @param the_sequence_numbers The sequence numbers.
+   * @return the matching summaries, mapped by sequence number, an empty map 
+   * if no records match, or null if the query fails.
+   */
+  public static Map<Integer, CastVoteRecord> 
+      getSummaries(final Long the_county_id, final RecordType the_type,
+                   final List<Integer> the_sequence_numbers) {
+    Map<Integer, CastVoteRecord> result = null;
+    final Set<Integer> unique_numbers = new HashSet<>(the_sequence_numbers);
+    
+    try {
+      final Session s = Persistence.currentSession();
+      final CriteriaBuilder cb = s.getCriteriaBuilder();
+      final Map<Integer, CastVoteRecord> found = new HashMap<>();
+      for (final List<Integer> chunk : chunks(unique_numbers)) {
+        final CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        final Root<CastVoteRecord> root = cq.from(CastVoteRecord.class);
+        final List<Predicate> conjuncts = new ArrayList<>();
+        conjuncts.add(cb.equal(root.get(COUNTY_ID), the_county_id));
+        conjuncts.add(cb.equal(root.get(RECORD_TYPE), the_type));
+        conjuncts.add(root.get(SEQUENCE_NUMBER).in(chunk));
+        selectSummary(cq, root);
+        cq.where(cb.and(conjuncts.toArray(new Predicate[conjuncts.size()])));
+        for (final Tuple tuple : s.createQuery(cq).getResultList()) {
+          final CastVoteRecord cvr = summary(the_type, tuple);
+          found.put(cvr.sequenceNumber(), cvr);
+        }
+      }
+      result = found;
+    } catch (final PersistenceException e) {
+      Main.LOGGER.error(COULD_NOT_QUERY_DATABASE);
+    }
+    if (result == null) {
+      Main.LOGGER.debug("found no CVR summaries for county " + the_county_id +
+                        ", type " + the_type + ", sequence " + unique_numbers);
+    } else {
+      Main.LOGGER.debug("found " + result.size() + " CVR summaries");
+    }
+    
+    return result;
+  }
+  
+  /**
+   * Obtain the CastVoteRecord objects with the specified IDs. The IDs are 
+   * looked up in chunks, and the contest information of each chunk's records
+   * is fetched in the same query.
    * 
    * @param the_ids The IDs.
    * @return the matching CastVoteRecord objects, an empty list if none are found,
@@ -350,13 +464,18 @@ public final class CastVoteRecordQueries {
     try {
       final Session s = Persistence.currentSession();
       final CriteriaBuilder cb = s.getCriteriaBuilder();
-      final CriteriaQuery<CastVoteRecord> cq = cb.createQuery(CastVoteRecord.class);
-      final Root<CastVoteRecord> root = cq.from(CastVoteRecord.class);
-      final List<Predicate> conjuncts = new ArrayList<>();
-      conjuncts.add(root.get("my_id").in(the_ids));
-      cq.select(root).where(cb.and(conjuncts.toArray(new Predicate[conjuncts.size()])));
-      final TypedQuery<CastVoteRecord> query = s.createQuery(cq);
-      result = query.getResultList();
+      // the fetch join returns each record once per contest, but they are 
+      // all the same object
+      final Set<CastVoteRecord> found = new LinkedHashSet<>();
+      for (final List<Long> chunk : chunks(new LinkedHashSet<>(the_ids))) {
+        final CriteriaQuery<CastVoteRecord> cq = cb.createQuery(CastVoteRecord.class);
+        final Root<CastVoteRecord> root = cq.from(CastVoteRecord.class);
+        root.fetch(CONTEST_INFO, JoinType.LEFT);
+        cq.select(root).where(root.get(ID).in(chunk));
+        final TypedQuery<CastVoteRecord> query = s.createQuery(cq);
+        found.addAll(query.getResultList());
+      }
+      result = new ArrayList<>(found);
     } catch (final PersistenceException e) {
       Main.LOGGER.error(COULD_NOT_QUERY_DATABASE);
     }
@@ -368,4 +487,258 @@ public final class CastVoteRecordQueries {
     
     return result;
   }
+  
+  /**
+   * Obtain summaries of the CastVoteRecord objects with the specified IDs,
+   * as described for getSummaries(Long, RecordType, List).
+   * 
+   * @param the_ids The IDs.
+   * @return the matching summaries, an empty list if none are found, or null 
+   * if the query fails.
+   */
+  public static List<CastVoteRecord> getSummaries(final List<Long> the_ids) {
+    List<CastVoteRecord> result = null;
+    
+    try {
+      final Session s = Persistence.currentSession();
+      final CriteriaBuilder cb = s.getCriteriaBuilder();
+      final List<CastVoteRecord> found = new ArrayList<>();
+      for (final List<Long> chunk : chunks(new LinkedHashSet<>(the_ids))) {
+        final CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        final Root<CastVoteRecord> root = cq.from(CastVoteRecord.class);
+        selectSummary(cq, root);
+        cq.where(root.get(ID).in(chunk));
+        for (final Tuple tuple : s.createQuery(cq).getResultList()) {
+          found.add(summary(tuple.get(RECORD_TYPE, RecordType.class), tuple));
+        }
+      }
+      result = found;
+    } catch (final PersistenceException e) {
+      Main.LOGGER.error(COULD_NOT_QUERY_DATABASE);
+    }
+    if (result == null) {
+      Main.LOGGER.debug("found no CVR summaries with ids " + the_ids);
+    } else {
+      Main.LOGGER.debug("found " + result.size() + " CVR summaries");
+    }
+    
+    return result;
+  }
+  
+  /**
+   * Reads projections of the CastVoteRecord objects with the specified types
+   * and counties, in ID order, and passes each to the specified consumer. The
+   * records are read through a database cursor, a bounded number of rows at
+   * a time, without loading any entities into the persistence context; so
+   * the memory used does not depend on the number of records. A long export
+   * can be read in several parts, by passing the last ID read in one part 
+   * as the starting point of the next. This method must be called within a 
+   * transaction.
+   * 
+   * @param the_types The record types.
+   * @param the_county_ids The county IDs, or null for all counties; no
+   * records are read for an empty set.
+   * @param the_after_id Only records with IDs greater than this are read.
+   * @param the_limit The maximum number of records to read; 0 or less 
+   * for no limit.
+   * @param the_consumer The consumer.
+   * @exception PersistenceException if the records cannot be read.
+   */
+  public static void forEachProjection(final Set<RecordType> the_types,
+                                       final Set<Long> the_county_ids,
+                                       final long the_after_id,
+                                       final int the_limit,
+                                       final Consumer<CastVoteRecordProjection> 
+                                           the_consumer) {
+    if (the_types.isEmpty() || the_county_ids != null && the_county_ids.isEmpty()) {
+      return;
+    }
+    final StringBuilder selection = 
+        new StringBuilder("select * from cast_vote_record where record_type in (");
+    appendPlaceholders(selection, the_types.size());
+    selection.append(')');
+    if (the_county_ids != null) {
+      selection.append(" and county_id in (");
+      appendPlaceholders(selection, the_county_ids.size());
+      selection.append(')');
+    }
+    selection.append(" and id > ? order by id");
+    if (the_limit > 0) {
+      selection.append(" limit ?");
+    }
+    final String sql = String.format(PROJECTION_QUERY, selection);
+    Persistence.currentSession().doWork(the_connection -> {
+      try (PreparedStatement ps = the_connection.prepareStatement(sql)) {
+        int parameter = 1;
+        for (final RecordType type : the_types) {
+          ps.setString(parameter, type.toString());
+          parameter = parameter + 1;
+        }
+        if (the_county_ids != null) {
+          for (final Long county_id : the_county_ids) {
+            ps.setLong(parameter, county_id);
+            parameter = parameter + 1;
+          }
+        }
+        ps.setLong(parameter, the_after_id);
+        if (the_limit > 0) {
+          ps.setInt(parameter + 1, the_limit);
+        }
+        ps.setFetchSize(PROJECTION_FETCH_SIZE);
+        try (ResultSet rs = ps.executeQuery()) {
+          readProjections(rs, the_consumer);
+        }
+      }
+    });
+  }
+  
+  /**
+   * Appends a comma-separated list of query parameter placeholders.
+   * 
+   * @param the_builder The builder to append to.
+   * @param the_count The number of placeholders, at least 1.
+   */
+  private static void appendPlaceholders(final StringBuilder the_builder,
+                                         final int the_count) {
+    the_builder.append('?');
+    for (int i = 1; i < the_count; i++) {
+      the_builder.append(", ?");
+    }
+  }
+  
+  /**
+   * Reads projections from a result set of the projection query, and passes
+   * each to the specified consumer once all its rows have been read.
+   * 
+   * @param the_rs The result set.
+   * @param the_consumer The consumer.
+   * @exception SQLException if the result set cannot be read.
+   */
+  @SuppressWarnings("PMD.AvoidLiteralsInIfCondition")
+  private static void readProjections(final ResultSet the_rs,
+                                      final Consumer<CastVoteRecordProjection> 
+                                          the_consumer)
+      throws SQLException {
+    CastVoteRecordProjection current = null;
+    while (the_rs.next()) {
+      final long id = the_rs.getLong(1);
+      if (current == null || current.id() != id) {
+        if (current != null) {
+          the_consumer.accept(current);
+        }
+        final Timestamp timestamp = the_rs.getTimestamp(3);
+        Instant instant = null;
+        if (timestamp != null) {
+          instant = timestamp.toInstant();
+        }
+        current = 
+            new CastVoteRecordProjection(id, RecordType.valueOf(the_rs.getString(2)), 
+                                         instant, nullableLong(the_rs, 4),
+                                         nullableInt(the_rs, 5), nullableInt(the_rs, 6),
+                                         nullableInt(the_rs, 7), nullableInt(the_rs, 8),
+                                         nullableInt(the_rs, 9), the_rs.getString(10),
+                                         the_rs.getString(11));
+      }
+      final Long contest_id = nullableLong(the_rs, 12);
+      if (contest_id != null) {
+        current.addContestInfo(new ContestInfo(contest_id, the_rs.getString(13),
+                                               the_rs.getString(14), 
+                                               the_rs.getString(15)));
+      }
+    }
+    if (current != null) {
+      the_consumer.accept(current);
+    }
+  }
+  
+  /**
+   * Reads a nullable long column.
+   * 
+   * @param the_rs The result set.
+   * @param the_column The column index.
+   * @return the value, or null if the column is null.
+   * @exception SQLException if the column cannot be read.
+   */
+  private static Long nullableLong(final ResultSet the_rs, final int the_column)
+      throws SQLException {
+    final long result = the_rs.getLong(the_column);
+    if (the_rs.wasNull()) {
+      return null;
+    }
+    return result;
+  }
+  
+  /**
+   * Reads a nullable int column.
+   * 
+   * @param the_rs The result set.
+   * @param the_column The column index.
+   * @return the value, or null if the column is null.
+   * @exception SQLException if the column cannot be read.
+   */
+  private static Integer nullableInt(final ResultSet the_rs, final int the_column)
+      throws SQLException {
+    final int result = the_rs.getInt(the_column);
+    if (the_rs.wasNull()) {
+      return null;
+    }
+    return result;
+  }
+  
+  /**
+   * Sets up a tuple query to select the fields of a CVR summary.
+   * 
+   * @param the_query The query.
+   * @param the_root The query root.
+   */
+  private static void selectSummary(final CriteriaQuery<Tuple> the_query,
+                                    final Root<CastVoteRecord> the_root) {
+    final List<Selection<?>> selections = new ArrayList<>();
+    selections.add(the_root.get(ID).alias(ID));
+    selections.add(the_root.get(RECORD_TYPE).alias(RECORD_TYPE));
+    for (final String field : SUMMARY_FIELDS) {
+      selections.add(the_root.get(field).alias(field));
+    }
+    the_query.multiselect(selections);
+  }
+  
+  /**
+   * Constructs a CVR summary from a tuple selected by selectSummary.
+   * 
+   * @param the_type The record type.
+   * @param the_tuple The tuple.
+   * @return the summary.
+   */
+  private static CastVoteRecord summary(final RecordType the_type, final Tuple the_tuple) {
+    final CastVoteRecord result = 
+        new CastVoteRecord(the_type, 
+                           the_tuple.get(SUMMARY_FIELDS[0], Instant.class),
+                           the_tuple.get(SUMMARY_FIELDS[1], Long.class),
+                           the_tuple.get(SUMMARY_FIELDS[2], Integer.class),
+                           the_tuple.get(SUMMARY_FIELDS[3], Integer.class),
+                           the_tuple.get(SUMMARY_FIELDS[4], Integer.class),
+                           the_tuple.get(SUMMARY_FIELDS[5], Integer.class),
+                           the_tuple.get(SUMMARY_FIELDS[6], Integer.class),
+                           the_tuple.get(SUMMARY_FIELDS[7], String.class),
+                           the_tuple.get(SUMMARY_FIELDS[8], String.class),
+                           null);
+    result.setID(the_tuple.get(ID, Long.class));
+    return result;
+  }
+  
+  /**
+   * Splits the specified values into chunks no larger than the maximum
+   * IN list size.
+   * 
+   * @param the_values The values.
+   * @return the chunks.
+   */
+  private static <T> List<List<T>> chunks(final Collection<T> the_values) {
+    final List<T> values = new ArrayList<>(the_values);
+    final List<List<T>> result = new ArrayList<>();
+    for (int i = 0; i < values.size(); i = i + MAX_IN_LIST_SIZE) {
+      result.add(values.subList(i, Math.min(values.size(), i + MAX_IN_LIST_SIZE)));
+    }
+    return result;
+  }
 }
@@ -11,7 +11,10 @@
 
 package us.freeandfair.corla.query;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.PersistenceException;
 import javax.persistence.TypedQuery;
@@ -71,4 +74,36 @@ public final class CountyContestComparisonAuditQueries {
     }
     return result;
   }
+  
+  /**
+   * Gets a stamp, for each county with comparison audits, that changes
+   * whenever any of the county's comparison audits, or its dashboard, is
+   * added, removed or updated. Audits that are deleted and recreated have
+   * new IDs, so the stamp includes the smallest and largest audit IDs.
+   *
+   * @return a map from county IDs to stamps, or null if the query fails.
+   */
+  public static Map<Long, List<Long>> changeStamps() {
+    Map<Long, List<Long>> result = null;
+    
+    try {
+      final Session s = Persistence.currentSession();
+      final List<Object[]> stamps =
+          s.createQuery("select d.my_id, d.my_version, count(a), sum(a.my_version), " +
+                        "min(a.my_id), max(a.my_id) " +
+                        "from CountyContestComparisonAudit a join a.my_dashboard d " +
+                        "group by d.my_id, d.my_version", 
+                        Object[].class).getResultList();
+      result = new HashMap<>();
+      for (final Object[] stamp : stamps) {
+        result.put((Long) stamp[0], 
+                   Arrays.asList((Long) stamp[1], (Long) stamp[2], (Long) stamp[3],
+                                 (Long) stamp[4], (Long) stamp[5]));
+      }
+    } catch (final PersistenceException e) {
+      Main.LOGGER.error("could not query database for county comparison audit stamps");
+    }
+    
+    return result;
+  }
 }
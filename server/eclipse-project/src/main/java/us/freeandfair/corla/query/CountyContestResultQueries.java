@@ -12,8 +12,11 @@
 package us.freeandfair.corla.query;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.persistence.PersistenceException;
@@ -121,6 +124,37 @@ public final class CountyContestResultQueries {
     return result;
   }
   
+  /**
+   * Gets a stamp, for each county, that changes whenever any of the county's
+   * contest results is added, removed or updated. Results that are deleted
+   * and recreated, as when a county re-imports its CVRs, have new IDs, so 
+   * the stamp includes the smallest and largest result IDs as well as the
+   * count and version total.
+   * 
+   * @return a map from county IDs to stamps, or null if the query fails.
+   */
+  public static Map<Long, List<Long>> changeStamps() {
+    Map<Long, List<Long>> result = null;
+    
+    try {
+      final Session s = Persistence.currentSession();
+      final List<Object[]> stamps =
+          s.createQuery("select r.my_county.my_id, count(r), sum(r.my_version), " +
+                        "min(r.my_id), max(r.my_id) " +
+                        "from CountyContestResult r group by r.my_county.my_id", 
+                        Object[].class).getResultList();
+      result = new HashMap<>();
+      for (final Object[] stamp : stamps) {
+        result.put((Long) stamp[0], Arrays.asList((Long) stamp[1], (Long) stamp[2],
+                                                  (Long) stamp[3], (Long) stamp[4]));
+      }
+    } catch (final PersistenceException e) {
+      Main.LOGGER.error("could not query database for contest result stamps");
+    }
+    
+    return result;
+  }
+  
   /**
    * Deletes all the contest results for the county with the specified ID.
    * 
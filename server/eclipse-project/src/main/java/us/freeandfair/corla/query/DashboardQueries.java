@@ -0,0 +1,121 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ * @created Oct 18, 2017
+ * @copyright 2017 Colorado Department of State
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.PersistenceException;
+
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import us.freeandfair.corla.Main;
+import us.freeandfair.corla.persistence.Persistence;
+
+/**
+ * Queries for change stamps of the state shown on the dashboards. A change
+ * stamp summarizes the versioned entities a dashboard is built from (for
+ * each kind of entity, the number of entities, the sum of their versions
+ * and their highest ID), so any committed change to those entities changes
+ * it. A stamp read in the same transaction as the state it describes is
+ * consistent with that state, whichever server instance made the changes.
+ *
+ * @version 1.0.0
+ */
+public final class DashboardQueries {
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private DashboardQueries() {
+    // do nothing
+  }
+
+  /**
+   * Retrieves a change stamp for the Department of State dashboard, which
+   * summarizes the state of every county.
+   *
+   * @return the change stamp, or null if it could not be retrieved.
+   */
+  public static List<Long> dosStamp() {
+    List<Long> result = null;
+    try {
+      final Session s = Persistence.currentSession();
+      result = new ArrayList<>();
+      result.add(s.createQuery("select d.my_version from DoSDashboard d", Long.class)
+                  .getSingleResult());
+      result.addAll(stamp(s.createQuery(
+          "select count(e), sum(e.my_version), max(e.my_id) from CountyDashboard e",
+          Object[].class)));
+      result.addAll(stamp(s.createQuery(
+          "select count(e), sum(e.my_version), max(e.my_id) from PersistentASMState e",
+          Object[].class)));
+      result.addAll(stamp(s.createQuery(
+          "select count(e), sum(e.my_version), max(e.my_id) from CountyContestResult e",
+          Object[].class)));
+      result.addAll(stamp(s.createQuery(
+          "select count(e), sum(e.my_version), max(e.my_id) " +
+          "from CountyContestComparisonAudit e", Object[].class)));
+    } catch (final PersistenceException e) {
+      Main.LOGGER.error("could not query database for DoS dashboard stamp");
+      result = null;
+    }
+    return result;
+  }
+
+  /**
+   * Retrieves a change stamp for a county dashboard.
+   *
+   * @param the_county_id The county ID.
+   * @return the change stamp, or null if it could not be retrieved.
+   */
+  public static List<Long> countyStamp(final Long the_county_id) {
+    List<Long> result = null;
+    try {
+      final Session s = Persistence.currentSession();
+      result = new ArrayList<>();
+      result.add(s.createQuery("select d.my_version from DoSDashboard d", Long.class)
+                  .getSingleResult());
+      result.add(s.createQuery("select e.my_version from CountyDashboard e " +
+                               "where e.my_id = :county", Long.class)
+                  .setParameter("county", the_county_id).getSingleResult());
+      // county and audit board state machines are identified by county ID
+      result.addAll(stamp(s.createQuery(
+          "select count(e), sum(e.my_version), max(e.my_id) from PersistentASMState e " +
+          "where e.my_asm_identity = :identity", Object[].class)
+          .setParameter("identity", the_county_id.toString())));
+      result.addAll(stamp(s.createQuery(
+          "select count(e), sum(e.my_version), max(e.my_id) from UploadedFile e " +
+          "where e.my_county.my_id = :county", Object[].class)
+          .setParameter("county", the_county_id)));
+      result.addAll(stamp(s.createQuery(
+          "select count(e), sum(e.my_version), max(e.my_id) from Contest e " +
+          "where e.my_county.my_id = :county", Object[].class)
+          .setParameter("county", the_county_id)));
+    } catch (final PersistenceException e) {
+      Main.LOGGER.error("could not query database for county dashboard stamp");
+      result = null;
+    }
+    return result;
+  }
+
+  /**
+   * Runs an aggregate stamp query.
+   *
+   * @param the_query The query.
+   * @return the aggregates.
+   */
+  private static List<Long> stamp(final Query<Object[]> the_query) {
+    final Object[] stamp = the_query.getSingleResult();
+    return Arrays.asList((Long) stamp[0], (Long) stamp[1], (Long) stamp[2]);
+  }
+}
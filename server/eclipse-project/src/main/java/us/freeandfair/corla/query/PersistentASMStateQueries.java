@@ -11,6 +11,7 @@
 
 package us.freeandfair.corla.query;
 
+import java.util.Arrays;
 import java.util.List;
 
 import javax.persistence.PersistenceException;
@@ -89,4 +90,24 @@ public final class PersistentASMStateQueries {
     return result;
   }
 
+  /**
+   * Retrieves a change stamp for all persistent ASM states: the number of
+   * states, the highest state ID and the sum of the state versions. Any
+   * committed change to the persistent ASM states changes the stamp.
+   *
+   * @return the change stamp, or null if it could not be retrieved.
+   */
+  public static List<Long> changeStamp() {
+    List<Long> result = null;
+    try {
+      final Session s = Persistence.currentSession();
+      final Object[] stamp =
+          s.createQuery("select count(s), max(s.my_id), sum(s.my_version) " +
+                        "from PersistentASMState s", Object[].class).getSingleResult();
+      result = Arrays.asList((Long) stamp[0], (Long) stamp[1], (Long) stamp[2]);
+    } catch (final PersistenceException e) {
+      Main.LOGGER.error("could not query database for persistent ASM state stamp");
+    }
+    return result;
+  }
 }
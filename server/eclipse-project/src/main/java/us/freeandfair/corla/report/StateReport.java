@@ -49,6 +49,7 @@ import us.freeandfair.corla.model.CVRAuditInfo;
 import us.freeandfair.corla.model.CastVoteRecord.RecordType;
 import us.freeandfair.corla.model.County;
 import us.freeandfair.corla.model.County.NameComparator;
+import us.freeandfair.corla.model.CountyContestComparisonAudit;
 import us.freeandfair.corla.model.CountyContestResult;
 import us.freeandfair.corla.model.DoSDashboard;
 import us.freeandfair.corla.model.Round;
@@ -548,6 +549,23 @@ public class StateReport {
               }
             }
           }
+          
+          for (final CountyContestComparisonAudit ccca : 
+               e.getValue().dashboard().comparisonAudits()) {
+            if (ccca.contestResult().id().equals(ccr.id())) {
+              row = summary_sheet.createRow(row_number++);
+              cell_number = 0;
+              cell = row.createCell(cell_number++);
+              cell.setCellType(CellType.STRING);
+              cell.setCellStyle(bold_style);
+              cell.setCellValue("Measured Risk");
+              
+              cell = row.createCell(cell_number++);
+              cell.setCellType(CellType.NUMERIC);
+              cell.setCellStyle(decimal_style);
+              cell.setCellValue(ccca.measuredRisk().doubleValue());
+            }
+          }
         }
       }
     }
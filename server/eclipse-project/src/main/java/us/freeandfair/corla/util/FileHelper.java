@@ -14,6 +14,14 @@ package us.freeandfair.corla.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import us.freeandfair.corla.crypto.HashChecker;
 
 /**
  * A class of helper methods for dealing with files.
@@ -54,4 +62,123 @@ public final class FileHelper {
     }
     return total;
   }
+  
+  /**
+   * Copy from the input stream to the channel, up to a maximum number of 
+   * bytes, computing the SHA-256 hash of the copied bytes and counting the 
+   * lines in them as they are copied. The bytes pass through a single 
+   * direct buffer, and are never read a second time. Lines are counted 
+   * by their terminators, as the Java 8 LineNumberReader counts them: a 
+   * line is ended by "\n", "\r" or "\r\n", and a final line with no 
+   * terminator is not counted.
+   * 
+   * @param the_input_stream The input stream.
+   * @param the_channel The channel to write to.
+   * @param the_buffer_size The buffer size.
+   * @param the_max_bytes The maximum number of bytes to copy.
+   * @return the results of the copy.
+   * @exception IOException if the copy fails.
+   */
+  public static DigestedCopy digestingCopy(final InputStream the_input_stream,
+                                           final WritableByteChannel the_channel,
+                                           final int the_buffer_size, 
+                                           final long the_max_bytes) 
+      throws IOException {
+    final MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IOException("unable to compute SHA-256 hashes", e);
+    }
+    final ReadableByteChannel input = Channels.newChannel(the_input_stream);
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(the_buffer_size);
+    long total = 0;
+    int lines = 0;
+    boolean after_cr = false;
+    int length = 0;
+    while (total < the_max_bytes && length >= 0) {
+      buffer.clear();
+      length = input.read(buffer);
+      if (length > 0) {
+        buffer.flip();
+        for (int i = 0; i < length; i++) {
+          final byte b = buffer.get(i);
+          if (b == '\n') {
+            // "\r\n" ends only one line
+            if (!after_cr) {
+              lines = lines + 1;
+            }
+            after_cr = false;
+          } else if (b == '\r') {
+            lines = lines + 1;
+            after_cr = true;
+          } else {
+            after_cr = false;
+          }
+        }
+        md.update(buffer);
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+          the_channel.write(buffer);
+        }
+        total = total + length;
+      }
+    }
+    return new DigestedCopy(total, HashChecker.hexString(md.digest()), lines);
+  }
+  
+  /**
+   * The results of a digesting copy.
+   */
+  public static class DigestedCopy {
+    /**
+     * The number of bytes copied.
+     */
+    private final long my_size;
+    
+    /**
+     * The SHA-256 hash of the copied bytes.
+     */
+    private final String my_hash;
+    
+    /**
+     * The number of lines copied.
+     */
+    private final int my_lines;
+    
+    /**
+     * Constructs a new DigestedCopy.
+     * 
+     * @param the_size The number of bytes copied.
+     * @param the_hash The SHA-256 hash of the copied bytes.
+     * @param the_lines The number of lines copied.
+     */
+    public DigestedCopy(final long the_size, final String the_hash, final int the_lines) {
+      my_size = the_size;
+      my_hash = the_hash;
+      my_lines = the_lines;
+    }
+    
+    /**
+     * @return the number of bytes copied.
+     */
+    public long size() {
+      return my_size;
+    }
+    
+    /**
+     * @return the SHA-256 hash of the copied bytes, in the same form 
+     * as the hashes computed by HashChecker.
+     */
+    public String hash() {
+      return my_hash;
+    }
+    
+    /**
+     * @return the number of lines copied.
+     */
+    public int lines() {
+      return my_lines;
+    }
+  }
 }
@@ -0,0 +1,148 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.asm;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import us.freeandfair.corla.asm.ASMState.CountyDashboardState;
+import us.freeandfair.corla.asm.ASMStateCache.Key;
+import us.freeandfair.corla.asm.ASMStateCache.TransactionView;
+
+/**
+ * A test case for ASMStateCache.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class ASMStateCacheTest {
+  /**
+   * A change stamp.
+   */
+  private static final List<Long> STAMP = Arrays.asList(2L, 2L, 5L);
+
+  /**
+   * A later change stamp.
+   */
+  private static final List<Long> LATER_STAMP = Arrays.asList(2L, 2L, 6L);
+
+  /**
+   * The key used in the tests.
+   */
+  private static final Key KEY = new Key(CountyDashboardASM.class, "1");
+
+  /**
+   * The number of times the loader has been called.
+   */
+  private int my_loads;
+
+  /**
+   * Empties the cache before each test.
+   */
+  @BeforeMethod()
+  public void setUp() {
+    ASMStateCache.invalidateAll();
+    my_loads = 0;
+  }
+
+  /**
+   * Makes a loader that counts its calls and reads the specified state.
+   *
+   * @param the_state The state.
+   * @return the loader.
+   */
+  private Function<Key, ASMState> loader(final ASMState the_state) {
+    return the_key -> {
+      my_loads = my_loads + 1;
+      return the_state;
+    };
+  }
+
+  /**
+   * Checks that a cached state is used by transactions with the same stamp,
+   * and not by transactions with a different one.
+   */
+  @Test()
+  public void testStampMismatch() {
+    final ASMState initial = CountyDashboardState.COUNTY_INITIAL_STATE;
+    final ASMState later = CountyDashboardState.BALLOT_MANIFEST_OK;
+    assertEquals(ASMStateCache.state(new TransactionView(null, STAMP), KEY,
+                                     loader(initial)), initial);
+    assertEquals(ASMStateCache.state(new TransactionView(null, STAMP), KEY,
+                                     loader(later)), initial);
+    assertEquals(my_loads, 1);
+    assertEquals(ASMStateCache.state(new TransactionView(null, LATER_STAMP), KEY,
+                                     loader(later)), later);
+    assertEquals(my_loads, 2);
+    // the cache now holds the later stamp's states only
+    assertEquals(ASMStateCache.state(new TransactionView(null, STAMP), KEY,
+                                     loader(initial)), initial);
+    assertEquals(my_loads, 3);
+  }
+
+  /**
+   * Checks that a transaction sees the states it has saved, rather than
+   * the cached ones.
+   */
+  @Test()
+  public void testSavedInTransaction() {
+    final ASMState initial = CountyDashboardState.COUNTY_INITIAL_STATE;
+    final ASMState saved = CountyDashboardState.BALLOT_MANIFEST_OK;
+    ASMStateCache.state(new TransactionView(null, STAMP), KEY, loader(initial));
+    final TransactionView view = new TransactionView(null, STAMP);
+    ASMStateCache.saved(view, KEY, saved);
+    assertEquals(ASMStateCache.state(view, KEY, loader(initial)), saved);
+    assertEquals(my_loads, 1);
+  }
+
+  /**
+   * Checks that a transaction that has saved states, and is then rolled
+   * back, leaves nothing it read or saved in the shared cache.
+   */
+  @Test()
+  public void testRollbackDoesNotPollute() {
+    final ASMState committed = CountyDashboardState.COUNTY_INITIAL_STATE;
+    final ASMState uncommitted = CountyDashboardState.BALLOT_MANIFEST_OK;
+    final Key other_key = new Key(AuditBoardDashboardASM.class, "1");
+    final TransactionView view = new TransactionView(null, STAMP);
+    ASMStateCache.saved(view, KEY, uncommitted);
+    // the transaction reads under its own writes, so must not fill the cache
+    ASMStateCache.state(view, other_key, loader(uncommitted));
+    assertEquals(my_loads, 1);
+    // the transaction is rolled back, and its view discarded
+    final TransactionView next = new TransactionView(null, STAMP);
+    assertEquals(ASMStateCache.state(next, KEY, loader(committed)), committed);
+    assertEquals(ASMStateCache.state(next, other_key, loader(committed)), committed);
+    assertEquals(my_loads, 3);
+  }
+
+  /**
+   * Checks that the cache is not used when the stamp could not be read.
+   */
+  @Test()
+  public void testNoStamp() {
+    final ASMState initial = CountyDashboardState.COUNTY_INITIAL_STATE;
+    ASMStateCache.state(new TransactionView(null, null), KEY, loader(initial));
+    ASMStateCache.state(new TransactionView(null, null), KEY, loader(initial));
+    assertEquals(my_loads, 2);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.asm;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import us.freeandfair.corla.asm.ASMEvent.CountyDashboardEvent;
+import us.freeandfair.corla.asm.ASMState.CountyDashboardState;
+
+/**
+ * A test case for ASMTransitionTable.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class ASMTransitionTableTest {
+  /**
+   * Checks that the tables of each dashboard ASM agree with a search of its
+   * transition function, for every state and event.
+   */
+  @Test()
+  public void testTablesMatchTransitionFunctions() {
+    checkAgainstSearch(new DoSDashboardASM());
+    checkAgainstSearch(new CountyDashboardASM("1"));
+    checkAgainstSearch(new AuditBoardDashboardASM("1"));
+  }
+
+  /**
+   * Checks that stepping an ASM follows its table.
+   */
+  @Test()
+  public void testStepEvent() {
+    final CountyDashboardASM asm = new CountyDashboardASM("1");
+    for (final ASMEvent event : asm.enabledASMEvents()) {
+      final CountyDashboardASM stepped = new CountyDashboardASM("1");
+      assertEquals(stepped.stepEvent(event),
+                   asm.my_transition_table.nextState(asm.currentState(), event));
+    }
+  }
+
+  /**
+   * Checks that a table rejects conflicting transitions.
+   */
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testConflictingTransitions() {
+    new ASMTransitionTable<>(CountyDashboardState.class, CountyDashboardEvent.class,
+        new HashSet<>(Arrays.asList(
+            new ASMTransition(CountyDashboardState.COUNTY_INITIAL_STATE,
+                              CountyDashboardEvent.IMPORT_BALLOT_MANIFEST_EVENT,
+                              CountyDashboardState.DEADLINE_MISSED),
+            new ASMTransition(CountyDashboardState.COUNTY_INITIAL_STATE,
+                              CountyDashboardEvent.IMPORT_BALLOT_MANIFEST_EVENT,
+                              CountyDashboardState.COUNTY_AUDIT_COMPLETE))));
+  }
+
+  /**
+   * Checks the tables of an ASM against a search of its transitions.
+   *
+   * @param the_asm The ASM.
+   */
+  private void checkAgainstSearch(final AbstractStateMachine the_asm) {
+    final UIToASMEventRelation relation = new UIToASMEventRelation();
+    for (final ASMState state : the_asm.my_states) {
+      final Set<ASMEvent> enabled = new HashSet<>();
+      for (final ASMEvent event : the_asm.my_events) {
+        ASMState expected = null;
+        for (final ASMTransition t : the_asm.my_transition_function) {
+          if (t.startStates().contains(state) && t.events().contains(event)) {
+            expected = t.endState();
+            enabled.add(event);
+          }
+        }
+        assertEquals(the_asm.my_transition_table.nextState(state, event), expected);
+      }
+      final Set<UIEvent> ui_enabled = new HashSet<>();
+      for (final ASMEvent event : enabled) {
+        ui_enabled.addAll(relation.leftArrow(event));
+      }
+      the_asm.setCurrentState(state);
+      assertEquals(the_asm.enabledASMEvents(), enabled);
+      assertEquals(the_asm.enabledUIEvents(), ui_enabled);
+    }
+  }
+}
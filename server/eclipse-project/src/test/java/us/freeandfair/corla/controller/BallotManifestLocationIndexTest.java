@@ -0,0 +1,57 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.controller;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import org.testng.annotations.Test;
+
+import us.freeandfair.corla.model.BallotManifestInfo;
+
+/**
+ * A test case for BallotManifestLocationIndex.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class BallotManifestLocationIndexTest {
+  /**
+   * Checks that locations are found by scanner and batch, that the first
+   * of several records for the same batch wins, and that batches with
+   * swapped or negative IDs are kept apart.
+   */
+  @Test()
+  public void testLocations() {
+    final BallotManifestLocationIndex.Builder builder =
+        new BallotManifestLocationIndex.Builder();
+    builder.add(new BallotManifestInfo(1L, 1, 2, 10, "Bin 1"));
+    builder.add(new BallotManifestInfo(1L, 2, 1, 10, "Bin 2"));
+    builder.add(new BallotManifestInfo(1L, 1, 2, 10, "Bin 3"));
+    builder.add(new BallotManifestInfo(1L, -1, -1, 10, "Bin 4"));
+    final BallotManifestLocationIndex index = builder.build();
+
+    // later additions do not change an index that has been built
+    builder.add(new BallotManifestInfo(1L, 3, 3, 10, "Bin 5"));
+
+    assertEquals(index.size(), 3);
+    assertEquals(index.location(1, 2), "Bin 1");
+    assertEquals(index.location(2, 1), "Bin 2");
+    assertEquals(index.location(-1, -1), "Bin 4");
+    assertNull(index.location(3, 3));
+    assertNull(index.location(0, -1));
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import us.freeandfair.corla.model.CastVoteRecord;
+import us.freeandfair.corla.model.CastVoteRecord.RecordType;
+
+/**
+ * A test case for the ballot selection in ComparisonAuditController.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class ComparisonAuditControllerTest {
+  /**
+   * The CVR IDs of the audit sequence used in the tests; CVR 1 appears
+   * in the first window of two ballots and again in the second.
+   */
+  private static final List<Long> SEQUENCE = Arrays.asList(1L, 2L, 1L, 3L, 4L);
+
+  /**
+   * Reads a range of the audit sequence as new summaries, the way
+   * getCVRSummariesInAuditSequence does.
+   *
+   * @param the_min The minimum index.
+   * @param the_max The maximum index (inclusive).
+   * @return the summaries.
+   */
+  private List<CastVoteRecord> window(final int the_min, final int the_max) {
+    final List<CastVoteRecord> result = new ArrayList<>();
+    for (int i = the_min; i <= the_max && i < SEQUENCE.size(); i++) {
+      final Long id = SEQUENCE.get(i);
+      final CastVoteRecord cvr =
+          new CastVoteRecord(RecordType.UPLOADED, null, 1L, id.intValue(), id.intValue(),
+                             1, 1, id.intValue(), "1-1-" + id, "type",
+                             Collections.emptyList());
+      cvr.setID(id);
+      result.add(cvr);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the IDs of the ballots in a list.
+   *
+   * @param the_cvrs The ballots.
+   * @return the IDs.
+   */
+  private List<Long> ids(final List<CastVoteRecord> the_cvrs) {
+    final List<Long> result = new ArrayList<>();
+    for (final CastVoteRecord cvr : the_cvrs) {
+      result.add(cvr.id());
+    }
+    return result;
+  }
+
+  /**
+   * Checks that an audited ballot whose duplicate appears in a later window
+   * is excluded from that window too, when audited ballots are excluded.
+   */
+  @Test()
+  public void testAuditedDuplicateInLaterWindow() {
+    final Set<Long> audited = Collections.singleton(1L);
+    final List<CastVoteRecord> selected =
+        ComparisonAuditController.selectBallots(0, 2, 2, true, false, this::window,
+            the_ids -> {
+              final Set<Long> result = new HashSet<>(the_ids);
+              result.retainAll(audited);
+              return result;
+            });
+    Assert.assertEquals(ids(selected), Arrays.asList(2L, 3L));
+    for (final CastVoteRecord cvr : selected) {
+      Assert.assertFalse(cvr.auditFlag());
+    }
+  }
+
+  /**
+   * Checks that a duplicate in a later window carries the audit flag of its
+   * first appearance when audited ballots are included.
+   */
+  @Test()
+  public void testAuditFlagOnDuplicate() {
+    final List<CastVoteRecord> selected =
+        ComparisonAuditController.selectBallots(0, 3, 3, true, true, this::window,
+            the_ids -> Collections.singleton(1L));
+    Assert.assertEquals(ids(selected), Arrays.asList(1L, 2L, 1L));
+    Assert.assertTrue(selected.get(0).auditFlag());
+    Assert.assertFalse(selected.get(1).auditFlag());
+    Assert.assertTrue(selected.get(2).auditFlag());
+  }
+}
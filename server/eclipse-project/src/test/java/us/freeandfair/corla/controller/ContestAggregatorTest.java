@@ -0,0 +1,181 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.controller;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import us.freeandfair.corla.controller.ContestAggregator.CountyTallies;
+import us.freeandfair.corla.controller.ContestAggregator.Tally;
+import us.freeandfair.corla.math.Audit;
+
+/**
+ * A test case for ContestAggregator.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class ContestAggregatorTest {
+  /**
+   * The gamma used in the tests.
+   */
+  private static final BigDecimal GAMMA = BigDecimal.valueOf(1.03905);
+
+  /**
+   * Creates a tally of a contest in one county.
+   *
+   * @param the_county The county ID.
+   * @param the_name The contest name.
+   * @param the_ballots The number of ballots cast in the county.
+   * @param the_alice The votes for Alice.
+   * @param the_bob The votes for Bob.
+   * @param the_risk_limit The risk limit, or null if the contest is not audited.
+   * @param the_one_over The one-vote overstatements.
+   * @param the_remaining The ballots left to audit.
+   * @return the tally.
+   */
+  @SuppressWarnings("checkstyle:parameternumber")
+  private Tally tally(final long the_county, final String the_name, final int the_ballots,
+                      final int the_alice, final int the_bob,
+                      final BigDecimal the_risk_limit, final int the_one_over,
+                      final Integer the_remaining) {
+    final Tally result = new Tally();
+    result.my_name = the_name;
+    result.my_key = ContestAggregator.key(the_name, Arrays.asList("Alice", "Bob"));
+    result.my_counties.add(the_county);
+    result.my_winners_allowed = 1;
+    result.my_votes.put("Alice", (long) the_alice);
+    result.my_votes.put("Bob", (long) the_bob);
+    result.my_county_ballot_count = the_ballots;
+    result.my_contest_ballot_count = the_alice + the_bob;
+    if (the_risk_limit != null) {
+      result.my_risk_limit = the_risk_limit;
+      result.my_gamma = GAMMA;
+      result.my_discrepancy_counts[3] = the_one_over;
+      result.my_optimistic_remaining = the_remaining;
+      result.my_estimated_remaining = the_remaining;
+    }
+    return result;
+  }
+
+  /**
+   * Gets the key of a contest between Alice and Bob.
+   *
+   * @param the_name The contest name.
+   * @return the key.
+   */
+  private List<String> key(final String the_name) {
+    return ContestAggregator.key(the_name, Arrays.asList("Bob", "Alice"));
+  }
+
+  /**
+   * Creates the tallies of a county.
+   *
+   * @param the_tallies The tallies.
+   * @return the county tallies.
+   */
+  private CountyTallies county(final Tally... the_tallies) {
+    final Map<Long, Tally> tallies = new HashMap<>();
+    for (final Tally tally : the_tallies) {
+      tallies.put((long) tallies.size(), tally);
+    }
+    return new CountyTallies(Collections.emptyList(), tallies);
+  }
+
+  /**
+   * Checks that tallies of the same contest in several counties are
+   * combined into one contest-wide aggregate.
+   */
+  @Test()
+  public void testReduce() {
+    final List<CountyTallies> counties =
+        Arrays.asList(county(tally(1, "Governor", 1000, 600, 300,
+                                   new BigDecimal("0.05"), 1, 10),
+                             tally(1, "Mayor", 1000, 50, 40, null, 0, null)),
+                      county(tally(2, "Governor", 3000, 1000, 1500,
+                                   new BigDecimal("0.1"), 2, 25)),
+                      county(tally(3, "Governor", 500, 100, 100, null, 0, null)));
+    final Map<List<String>, ContestAggregate> contests = ContestAggregator.reduce(counties);
+
+    assertEquals(contests.keySet(), 
+                 new HashSet<>(Arrays.asList(key("Governor"), key("Mayor"))));
+
+    final ContestAggregate governor = contests.get(key("Governor"));
+    assertEquals(governor.counties(), new HashSet<>(Arrays.asList(1L, 2L, 3L)));
+    assertEquals(governor.voteTotals().get("Alice").longValue(), 1700L);
+    assertEquals(governor.voteTotals().get("Bob").longValue(), 1900L);
+    assertEquals(governor.winners(), Collections.singleton("Bob"));
+    assertEquals(governor.minMargin(), 200L);
+    assertEquals(governor.countyBallotCount(), 4500L);
+    assertEquals(governor.contestBallotCount(), 3600L);
+    final BigDecimal margin =
+        BigDecimal.valueOf(200).divide(BigDecimal.valueOf(4500), MathContext.DECIMAL128);
+    assertEquals(governor.dilutedMargin(), margin);
+    assertEquals(governor.discrepancyCount(1), 3);
+    assertEquals(governor.samplesToAudit().intValue(),
+                 Audit.optimistic(new BigDecimal("0.05"), margin, GAMMA, 0, 0, 3, 0).
+                 intValue());
+    assertEquals(governor.optimisticRemaining().intValue(), 25);
+
+    final ContestAggregate mayor = contests.get(key("Mayor"));
+    assertEquals(mayor.winners(), Collections.singleton("Alice"));
+    assertNull(mayor.samplesToAudit());
+    assertNull(mayor.optimisticRemaining());
+  }
+
+  /**
+   * Checks that contests with the same name but different choices in
+   * different counties are not combined.
+   */
+  @Test()
+  public void testSameNameDifferentContests() {
+    final Tally first = tally(1, "County Commissioner", 1000, 600, 300, null, 0, null);
+    final Tally second = new Tally();
+    second.my_name = "County Commissioner";
+    second.my_key = 
+        ContestAggregator.key("County Commissioner", Arrays.asList("Carol", "Dave"));
+    second.my_counties.add(2L);
+    second.my_winners_allowed = 1;
+    second.my_votes.put("Carol", 400L);
+    second.my_votes.put("Dave", 450L);
+    second.my_county_ballot_count = 900;
+    second.my_contest_ballot_count = 850;
+    final Map<List<String>, ContestAggregate> contests =
+        ContestAggregator.reduce(Arrays.asList(county(first), county(second)));
+
+    assertEquals(contests.size(), 2);
+    final ContestAggregate alice_bob = contests.get(key("County Commissioner"));
+    assertEquals(alice_bob.counties(), Collections.singleton(1L));
+    assertEquals(alice_bob.countyBallotCount(), 1000L);
+    assertEquals(alice_bob.winners(), Collections.singleton("Alice"));
+    final ContestAggregate carol_dave = contests.get(second.my_key);
+    assertEquals(carol_dave.counties(), Collections.singleton(2L));
+    assertEquals(carol_dave.voteTotals().keySet(), 
+                 new HashSet<>(Arrays.asList("Carol", "Dave")));
+    assertEquals(carol_dave.winners(), Collections.singleton("Dave"));
+  }
+}
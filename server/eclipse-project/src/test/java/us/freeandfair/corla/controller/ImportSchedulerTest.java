@@ -0,0 +1,132 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * A test case for the ImportScheduler.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings({"PMD.AtLeastOneConstructor", "PMD.DoNotUseThreads"})
+public class ImportSchedulerTest {
+  /**
+   * The number of seconds to wait for anything to happen.
+   */
+  private static final long TIMEOUT = 10;
+
+  /**
+   * Checks that jobs for distinct counties are bounded by the worker count,
+   * run in submission order, and that a county cannot have two jobs at once.
+   *
+   * @exception InterruptedException if the test is interrupted.
+   */
+  @Test()
+  public void testQueueing() throws InterruptedException {
+    final ImportScheduler scheduler = new ImportScheduler("test-queue", 1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(3);
+    final List<Long> order = Collections.synchronizedList(new ArrayList<>());
+
+    for (long county = 1; county <= 3; county++) {
+      final long id = county;
+      Assert.assertTrue(scheduler.submit(id, () -> {
+        order.add(id);
+        try {
+          release.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        done.countDown();
+      }));
+    }
+    Assert.assertFalse(scheduler.submit(2L, () -> { }));
+    Assert.assertTrue(scheduler.isScheduled(3L));
+    Assert.assertEquals(scheduler.jobs().size(), 3);
+    // one job is running, so at least one (and, once it starts, two) wait
+    Assert.assertTrue(scheduler.queueDepth() >= 2);
+
+    release.countDown();
+    Assert.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+    Assert.assertEquals(order, Arrays.asList(1L, 2L, 3L));
+    waitForIdle(scheduler);
+    Assert.assertTrue(scheduler.submit(2L, () -> { }));
+  }
+
+  /**
+   * Checks that cancelling a running job interrupts it, and that cancelling
+   * a queued job still runs it so that it can see it was cancelled.
+   *
+   * @exception InterruptedException if the test is interrupted.
+   */
+  @Test()
+  public void testCancellation() throws InterruptedException {
+    final ImportScheduler scheduler = new ImportScheduler("test-cancel", 1);
+    final CountDownLatch started = new CountDownLatch(1);
+    final AtomicBoolean interrupted = new AtomicBoolean();
+    final AtomicBoolean queued_saw_cancel = new AtomicBoolean();
+    final CountDownLatch done = new CountDownLatch(2);
+
+    scheduler.submit(1L, () -> {
+      started.countDown();
+      try {
+        Thread.sleep(TimeUnit.SECONDS.toMillis(TIMEOUT * 2));
+      } catch (final InterruptedException e) {
+        interrupted.set(ImportScheduler.isCurrentJobCancelled());
+      }
+      done.countDown();
+    });
+    scheduler.submit(2L, () -> {
+      queued_saw_cancel.set(ImportScheduler.isCurrentJobCancelled() &&
+                            !Thread.currentThread().isInterrupted());
+      done.countDown();
+    });
+
+    Assert.assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+    Assert.assertTrue(scheduler.cancel(2L));
+    Assert.assertTrue(scheduler.cancel(1L));
+    Assert.assertFalse(scheduler.cancel(3L));
+    Assert.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+    Assert.assertTrue(interrupted.get());
+    Assert.assertTrue(queued_saw_cancel.get());
+    Assert.assertFalse(ImportScheduler.isCurrentJobCancelled());
+  }
+
+  /**
+   * Waits for a scheduler to have no jobs.
+   *
+   * @param the_scheduler The scheduler.
+   * @exception InterruptedException if the wait is interrupted.
+   */
+  private void waitForIdle(final ImportScheduler the_scheduler)
+      throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+    while (!the_scheduler.jobs().isEmpty() && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertTrue(the_scheduler.jobs().isEmpty());
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.controller;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import javax.persistence.PersistenceException;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import us.freeandfair.corla.controller.LogAppender.Submission;
+import us.freeandfair.corla.model.LogEntry;
+
+/**
+ * A test case for the chaining and batching in LogAppender.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class LogAppenderTest {
+  /**
+   * The information that makes the test store fail to save an entry.
+   */
+  private static final String BAD = "bad";
+
+  /**
+   * Creates a submission of unchained entries.
+   *
+   * @param the_information The information for each entry.
+   * @return the submission.
+   */
+  private Submission submission(final String... the_information) {
+    final List<LogEntry> entries = new ArrayList<>();
+    for (final String information : the_information) {
+      entries.add(new LogEntry(200, information, Instant.EPOCH));
+    }
+    return new Submission(entries, "admin", "host");
+  }
+
+  /**
+   * Checks that the committed log is one hash chain, in insertion order,
+   * and that it holds exactly the specified information.
+   *
+   * @param the_store The store.
+   * @param the_information The expected information, in order.
+   */
+  private void assertChain(final TestStore the_store, final String... the_information) {
+    final List<String> information = new ArrayList<>();
+    LogEntry previous = null;
+    for (final LogEntry entry : the_store.my_committed.values()) {
+      Assert.assertSame(entry.previousEntry(), previous);
+      final LogEntry recomputed =
+          new LogEntry(entry.resultCode(), entry.information(), entry.authenticationData(),
+                       entry.clientHost(), entry.timestamp(), previous);
+      Assert.assertEquals(entry.hash(), recomputed.hash());
+      information.add(entry.information());
+      previous = entry;
+    }
+    Assert.assertEquals(information, Arrays.asList(the_information));
+  }
+
+  /**
+   * Checks that entries inserted in separate batches form one chain.
+   */
+  @Test()
+  public void testChainAcrossBatches() {
+    final TestStore store = new TestStore();
+    final LogAppender appender = new LogAppender(store);
+    final Submission first = submission("a", "b");
+    final Submission second = submission("c");
+    final Submission third = submission("d", "e");
+    appender.insert(Arrays.asList(first, second));
+    appender.insert(Collections.singletonList(third));
+    assertChain(store, "a", "b", "c", "d", "e");
+    Assert.assertTrue(first.acknowledgement().isDone());
+    Assert.assertFalse(first.acknowledgement().isCompletedExceptionally());
+    Assert.assertFalse(third.acknowledgement().isCompletedExceptionally());
+    // the tail was kept in memory, so the log was only read once
+    Assert.assertEquals(store.my_last_reads, 1);
+  }
+
+  /**
+   * Checks that a submission that cannot be inserted fails by itself, and
+   * that the others in its batch are inserted and chained together.
+   */
+  @Test()
+  public void testFailureIsolation() {
+    final TestStore store = new TestStore();
+    final LogAppender appender = new LogAppender(store);
+    final Submission first = submission("a");
+    final Submission bad = submission("b", BAD);
+    final Submission last = submission("c");
+    appender.insert(Arrays.asList(first, bad, last));
+    assertChain(store, "a", "c");
+    Assert.assertFalse(first.acknowledgement().isCompletedExceptionally());
+    Assert.assertTrue(bad.acknowledgement().isCompletedExceptionally());
+    Assert.assertFalse(last.acknowledgement().isCompletedExceptionally());
+  }
+
+  /**
+   * Checks that the tail is reloaded from the store after a failed batch,
+   * so that later entries are chained to the last committed entry rather
+   * than to an entry that was rolled back.
+   */
+  @Test()
+  public void testTailReloadAfterFailure() {
+    final TestStore store = new TestStore();
+    final LogAppender appender = new LogAppender(store);
+    appender.insert(Collections.singletonList(submission("a")));
+    final Submission bad = submission("b", BAD);
+    appender.insert(Collections.singletonList(bad));
+    Assert.assertTrue(bad.acknowledgement().isCompletedExceptionally());
+    final int reads = store.my_last_reads;
+    appender.insert(Collections.singletonList(submission("c")));
+    Assert.assertEquals(store.my_last_reads, reads + 1);
+    assertChain(store, "a", "c");
+  }
+
+  /**
+   * Checks that a failure that is not a runtime exception fails the batch
+   * rather than escaping the appender.
+   */
+  @Test()
+  public void testErrorFailsSubmission() {
+    final TestStore store = new TestStore();
+    store.my_commit_error = true;
+    final LogAppender appender = new LogAppender(store);
+    final Submission submission = submission("a");
+    appender.insert(Collections.singletonList(submission));
+    Assert.assertTrue(submission.acknowledgement().isCompletedExceptionally());
+    store.my_commit_error = false;
+    appender.insert(Collections.singletonList(submission("b")));
+    assertChain(store, "b");
+  }
+
+  /**
+   * An in-memory store with transactions.
+   */
+  private static class TestStore implements LogAppender.Store {
+    /**
+     * The committed entries, by ID.
+     */
+    private final TreeMap<Long, LogEntry> my_committed = new TreeMap<>();
+
+    /**
+     * The entries saved in the current transaction.
+     */
+    private final List<LogEntry> my_pending = new ArrayList<>();
+
+    /**
+     * The next ID to assign.
+     */
+    private long my_next_id = 1;
+
+    /**
+     * The number of times the last entry was read.
+     */
+    private int my_last_reads;
+
+    /**
+     * Whether commits fail with an error.
+     */
+    private boolean my_commit_error;
+
+    @Override
+    public void begin() {
+      my_pending.clear();
+    }
+
+    @Override
+    public LogEntry last() {
+      my_last_reads = my_last_reads + 1;
+      if (my_committed.isEmpty()) {
+        return null;
+      }
+      return my_committed.lastEntry().getValue();
+    }
+
+    @Override
+    public LogEntry get(final Long the_id) {
+      return my_committed.get(the_id);
+    }
+
+    @Override
+    public void save(final LogEntry the_entry) {
+      if (BAD.equals(the_entry.information())) {
+        throw new PersistenceException("cannot save entry");
+      }
+      the_entry.setID(my_next_id);
+      my_next_id = my_next_id + 1;
+      my_pending.add(the_entry);
+    }
+
+    @Override
+    public void commit() {
+      if (my_commit_error) {
+        throw new AssertionError("commit failed");
+      }
+      for (final LogEntry entry : my_pending) {
+        my_committed.put(entry.id(), entry);
+      }
+      my_pending.clear();
+    }
+
+    @Override
+    public void rollback() {
+      my_pending.clear();
+    }
+  }
+}
@@ -16,8 +16,15 @@
 
 package us.freeandfair.corla.crypto;
 
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -64,6 +71,116 @@ public class PseudoRandomNumberGeneratorTest {
     Assert.assertEquals(numbers, expected);
   }
 
+  /**
+   * A test case to verify that extending a sequence incrementally yields
+   * the same numbers as generating it all at once.
+   */
+  @Test()
+  public void testIncrementalExtension() {
+    final String seed = "3546311556112163624615351222";
+    final PseudoRandomNumberGenerator all_at_once =
+        new PseudoRandomNumberGenerator(seed, true, 0, 99999);
+    final PseudoRandomNumberGenerator incremental =
+        new PseudoRandomNumberGenerator(seed, true, 0, 99999);
+    final List<Integer> expected = all_at_once.getRandomNumbers(0, 999);
+    final List<Integer> numbers = new ArrayList<>();
+    for (int i = 0; i < 1000; i = i + 100) {
+      numbers.addAll(incremental.getRandomNumbers(i, i + 99));
+    }
+    Assert.assertEquals(numbers, expected);
+    Assert.assertEquals(incremental.getRandomNumbers(250, 300), expected.subList(250, 301));
+    Assert.assertEquals(incremental.size(), 1000);
+  }
+
+  /**
+   * A test case to verify that sequences long enough to be generated in 
+   * parallel are identical to sequences generated one draw at a time, both
+   * with and without replacement.
+   */
+  @Test()
+  public void testParallelGeneration() {
+    final String seed = "3546311556112163624615351222";
+    for (final boolean replacement : new boolean[] {true, false}) {
+      final PseudoRandomNumberGenerator parallel =
+          new PseudoRandomNumberGenerator(seed, replacement, 0, 199999);
+      final PseudoRandomNumberGenerator sequential =
+          new PseudoRandomNumberGenerator(seed, replacement, 0, 199999);
+      final List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < 50000; i = i + 100) {
+        expected.addAll(sequential.getRandomNumbers(i, i + 99));
+      }
+      Assert.assertEquals(parallel.getRandomNumbers(0, 49999), expected);
+    }
+  }
+  
+  /**
+   * A test case to verify that drawing a large part of a permutation of a 
+   * large range without replacement yields distinct numbers in the range.
+   */
+  @Test()
+  public void testLargeRangeWithoutReplacement() {
+    final String seed = "3546311556112163624615351222";
+    final int maximum = 499999;
+    final PseudoRandomNumberGenerator gen =
+        new PseudoRandomNumberGenerator(seed, false, 0, maximum);
+    final List<Integer> numbers = gen.getRandomNumbers(0, 249999);
+    final Set<Integer> distinct = new HashSet<>(numbers);
+    Assert.assertEquals(distinct.size(), numbers.size());
+    for (final int number : numbers) {
+      Assert.assertTrue(0 <= number && number <= maximum);
+    }
+  }
+  
+  /**
+   * A differential test comparing the generator against a direct
+   * implementation of the reference algorithm (string concatenation, 
+   * SHA-256 and BigInteger reduction), for several seeds and ranges.
+   * 
+   * @exception NoSuchAlgorithmException if SHA-256 is unavailable.
+   */
+  @Test()
+  public void testAgainstReferenceImplementation() throws NoSuchAlgorithmException {
+    final String[] seeds = {"3546311556112163624615351222", 
+                            "01234567890123456789", 
+                            "98765432109876543210987654321098765432109876543210"};
+    final int[][] ranges = {{1, 876}, {0, 1}, {0, 999999}, {17, 500016}, 
+                            {0, Integer.MAX_VALUE - 1}};
+    for (final String seed : seeds) {
+      for (final int[] range : ranges) {
+        final PseudoRandomNumberGenerator gen = 
+            new PseudoRandomNumberGenerator(seed, true, range[0], range[1]);
+        final List<Integer> numbers = gen.getRandomNumbers(0, 1999);
+        for (int i = 0; i < numbers.size(); i++) {
+          Assert.assertEquals(numbers.get(i).intValue(), 
+                              referenceDraw(seed, i + 1, range[0], range[1]));
+        }
+      }
+    }
+  }
+  
+  /**
+   * Computes a random number using the reference algorithm.
+   * 
+   * @param the_seed The seed.
+   * @param the_count The count.
+   * @param the_minimum The minimum value.
+   * @param the_maximum The maximum value.
+   * @return the random number.
+   * @exception NoSuchAlgorithmException if SHA-256 is unavailable.
+   */
+  private int referenceDraw(final String the_seed, final int the_count,
+                            final int the_minimum, final int the_maximum) 
+      throws NoSuchAlgorithmException {
+    final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    final byte[] hash_output = 
+        digest.digest((the_seed + "," + the_count).getBytes(StandardCharsets.UTF_8));
+    final BigInteger int_output = new BigInteger(1, hash_output);
+    final BigInteger range = 
+        BigInteger.valueOf(the_maximum).subtract(BigInteger.valueOf(the_minimum)).
+        add(BigInteger.ONE);
+    return the_minimum + int_output.mod(range).intValueExact();
+  }
+
   /**
    * Test the seed verification class method
    */
@@ -0,0 +1,103 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.csv;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * A test case for the ImportBatchSizer.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class ImportBatchSizerTest {
+  /**
+   * One millisecond, in nanoseconds.
+   */
+  private static final long MSEC = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /**
+   * Checks that fast flushes and commits grow the sizes up to their bounds.
+   */
+  @Test()
+  public void testGrowth() {
+    final ImportBatchSizer sizer =
+        new ImportBatchSizer(80, 20, 500, 400, 100, 2000, 250, 2000);
+    for (int i = 0; i < 100; i++) {
+      sizer.flushed(sizer.batchSize(), MSEC);
+      sizer.committed(sizer.transactionSize(), MSEC, 1);
+    }
+    Assert.assertEquals(sizer.batchSize(), 500);
+    Assert.assertEquals(sizer.transactionSize(), 2000);
+  }
+
+  /**
+   * Checks that slow flushes and commits shrink the sizes down to their
+   * bounds, and that the batch size never exceeds the transaction size.
+   */
+  @Test()
+  public void testShrinking() {
+    final ImportBatchSizer sizer =
+        new ImportBatchSizer(400, 50, 1000, 1000, 100, 2000, 250, 2000);
+    sizer.committed(sizer.transactionSize(), 5000 * MSEC, 1);
+    Assert.assertEquals(sizer.transactionSize(), 500);
+    for (int i = 0; i < 100; i++) {
+      sizer.flushed(sizer.batchSize(), 1000 * MSEC);
+      sizer.committed(sizer.transactionSize(), 5000 * MSEC, 1);
+      Assert.assertTrue(sizer.batchSize() <= sizer.transactionSize());
+    }
+    Assert.assertEquals(sizer.batchSize(), 50);
+    Assert.assertEquals(sizer.transactionSize(), 100);
+  }
+
+  /**
+   * Checks that commits needing retries shrink the transaction size even
+   * when they are fast, and that latency within the target band leaves the
+   * sizes alone.
+   */
+  @Test()
+  public void testRetriesAndSteadyState() {
+    final ImportBatchSizer sizer =
+        new ImportBatchSizer(80, 20, 1000, 400, 100, 5000, 250, 2000);
+    sizer.committed(400, MSEC, 3);
+    Assert.assertEquals(sizer.transactionSize(), 200);
+    sizer.flushed(80, 200 * MSEC);
+    sizer.committed(200, 1500 * MSEC, 1);
+    Assert.assertEquals(sizer.batchSize(), 80);
+    Assert.assertEquals(sizer.transactionSize(), 200);
+    // a short (final) batch is projected to the full batch size
+    sizer.flushed(8, 30 * MSEC);
+    Assert.assertEquals(sizer.batchSize(), 40);
+  }
+
+  /**
+   * Checks that disabling adaptive sizing fixes the configured sizes.
+   */
+  @Test()
+  public void testFixedSizes() {
+    final Properties properties = new Properties();
+    properties.setProperty(ImportBatchSizer.ADAPTIVE_PROPERTY, "false");
+    final ImportBatchSizer sizer = ImportBatchSizer.fromProperties(properties, 80, 400);
+    sizer.flushed(80, 10_000 * MSEC);
+    sizer.committed(400, 1, 5);
+    Assert.assertEquals(sizer.batchSize(), 80);
+    Assert.assertEquals(sizer.transactionSize(), 400);
+  }
+}
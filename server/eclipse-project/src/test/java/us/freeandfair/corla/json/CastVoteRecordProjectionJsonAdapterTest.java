@@ -0,0 +1,112 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.json;
+
+import static org.testng.Assert.assertEquals;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.JsonParser;
+
+import org.testng.annotations.Test;
+
+import us.freeandfair.corla.Main;
+import us.freeandfair.corla.json.CastVoteRecordProjection.ContestInfo;
+import us.freeandfair.corla.model.CVRContestInfo;
+import us.freeandfair.corla.model.CVRContestInfo.ConsensusValue;
+import us.freeandfair.corla.model.CastVoteRecord;
+import us.freeandfair.corla.model.CastVoteRecord.RecordType;
+import us.freeandfair.corla.model.Choice;
+import us.freeandfair.corla.model.Contest;
+import us.freeandfair.corla.persistence.StringListConverter;
+
+/**
+ * A test case for CastVoteRecordProjectionJsonAdapter.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class CastVoteRecordProjectionJsonAdapterTest {
+  /**
+   * Checks that a projection is written as the same JSON as the cast vote
+   * record it was read from.
+   */
+  @Test()
+  public void testSameJSONAsEntity() {
+    final Contest contest =
+        new Contest("Mayor", null, "Mayor",
+                    Arrays.asList(new Choice("Alice", "", false, false),
+                                  new Choice("Bob \"B\"", "", false, false)),
+                    1, 1, 0);
+    contest.setID(7L);
+    final List<String> choices = Arrays.asList("Bob \"B\"");
+    final List<CVRContestInfo> infos = new ArrayList<>();
+    infos.add(new CVRContestInfo(contest, null, null, choices));
+    infos.add(new CVRContestInfo(contest, "smudged", ConsensusValue.NO,
+                                 new ArrayList<>()));
+    final Instant now = Instant.now();
+    final CastVoteRecord cvr = new CastVoteRecord(RecordType.AUDITOR_ENTERED, now, 3L,
+                                                  12, null, 1, 2, 3, "1-2-3", "B1",
+                                                  infos);
+    cvr.setID(42L);
+
+    final StringListConverter converter = new StringListConverter();
+    final CastVoteRecordProjection projection =
+        new CastVoteRecordProjection(42L, RecordType.AUDITOR_ENTERED, now, 3L, 12, null,
+                                     1, 2, 3, "1-2-3", "B1");
+    projection.addContestInfo(new ContestInfo(7L, null, null,
+                                              converter.convertToDatabaseColumn(choices)));
+    projection.addContestInfo(new ContestInfo(7L, "smudged", "NO",
+                                              converter.convertToDatabaseColumn(
+                                                  new ArrayList<>())));
+
+    final JsonParser parser = new JsonParser();
+    assertEquals(parser.parse(Main.GSON.toJson(projection)),
+                 parser.parse(Main.GSON.toJson(cvr)));
+  }
+
+  /**
+   * Checks that a projection read from its own JSON is written as the same
+   * JSON again.
+   */
+  @Test()
+  public void testRoundTrip() {
+    final StringListConverter converter = new StringListConverter();
+    final CastVoteRecordProjection projection =
+        new CastVoteRecordProjection(42L, RecordType.UPLOADED, Instant.now(), 3L, 12, 5,
+                                     1, 2, 3, "1-2-3", "B1");
+    projection.addContestInfo(new ContestInfo(7L, null, null,
+                                              converter.convertToDatabaseColumn(
+                                                  Arrays.asList("Bob \"B\"", "Alice"))));
+    projection.addContestInfo(new ContestInfo(8L, "smudged", "NO",
+                                              converter.convertToDatabaseColumn(
+                                                  new ArrayList<>())));
+
+    final String json = Main.GSON.toJson(projection);
+    final CastVoteRecordProjection read =
+        Main.GSON.fromJson(json, CastVoteRecordProjection.class);
+    assertEquals(read.id(), projection.id());
+    assertEquals(read.timestamp(), projection.timestamp());
+    assertEquals(read.contestInfo().size(), 2);
+    assertEquals(converter.convertToEntityAttribute(read.contestInfo().get(0).choices()),
+                 Arrays.asList("Bob \"B\"", "Alice"));
+    final JsonParser parser = new JsonParser();
+    assertEquals(parser.parse(Main.GSON.toJson(read)), parser.parse(json));
+  }
+}
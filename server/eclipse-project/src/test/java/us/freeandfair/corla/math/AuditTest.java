@@ -0,0 +1,155 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.math;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import org.testng.annotations.Test;
+
+import ch.obermuhlner.math.big.BigDecimalMath;
+
+/**
+ * A test case for Audit.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class AuditTest {
+  /**
+   * The gammas to test.
+   */
+  private static final BigDecimal[] GAMMAS = {
+    BigDecimal.valueOf(1.03905), BigDecimal.valueOf(1.1)
+  };
+
+  /**
+   * The risk limits to test.
+   */
+  private static final BigDecimal[] RISK_LIMITS = {
+    new BigDecimal("0.01"), new BigDecimal("0.05"), new BigDecimal("0.10"),
+    new BigDecimal("0.5"), BigDecimal.ONE
+  };
+
+  /**
+   * The diluted margins to test.
+   */
+  private static final BigDecimal[] MARGINS = {
+    new BigDecimal("0.00012345"), new BigDecimal("0.001"), new BigDecimal("0.0123"),
+    new BigDecimal("0.05"), new BigDecimal("0.1"), new BigDecimal("0.33333333"),
+    new BigDecimal("0.5"), BigDecimal.ONE
+  };
+
+  /**
+   * Checks that the sample size is the same as the BigDecimal reference
+   * for a range of parameters and discrepancy counts.
+   */
+  @Test()
+  public void testSameAsReference() {
+    for (final BigDecimal gamma : GAMMAS) {
+      for (final BigDecimal risk_limit : RISK_LIMITS) {
+        for (final BigDecimal margin : MARGINS) {
+          for (int i = 0; i < 256; i++) {
+            checkSame(risk_limit, margin, gamma, i & 3, (i >> 2) & 3, (i >> 4) & 3, i >> 6);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks that the sample size is the same as the BigDecimal reference
+   * when the exact sample size is an integer, or very nearly one, so the
+   * double-precision computation cannot be trusted to round correctly.
+   */
+  @Test()
+  public void testSameAsReferenceNearIntegers() {
+    final BigDecimal gamma = BigDecimal.valueOf(1.03905);
+    final BigDecimal risk_limit = new BigDecimal("0.1");
+    // the sample size with a diluted margin of 1
+    final BigDecimal unit =
+        BigDecimal.valueOf(2).multiply(gamma).negate().
+        multiply(BigDecimalMath.log(risk_limit, MathContext.DECIMAL128));
+    for (int size = 1; size < 2000; size = size * 3 + 1) {
+      final BigDecimal margin =
+          unit.divide(BigDecimal.valueOf(size), MathContext.DECIMAL128);
+      checkSame(risk_limit, margin, gamma, 0, 0, 0, 0);
+      checkSame(risk_limit, margin.add(new BigDecimal("1E-30")), gamma, 0, 0, 0, 0);
+      checkSame(risk_limit, margin.subtract(new BigDecimal("1E-30")), gamma, 0, 0, 0, 0);
+    }
+  }
+
+  /**
+   * Checks that the measured risk starts at 1, falls as ballots without
+   * discrepancies are audited, and reaches the risk limit by the time the
+   * optimistic sample size has been audited.
+   */
+  @Test()
+  public void testMeasuredRisk() {
+    for (final BigDecimal gamma : GAMMAS) {
+      for (final BigDecimal risk_limit : RISK_LIMITS) {
+        for (final BigDecimal margin : MARGINS) {
+          assertEquals(Audit.measuredRisk(risk_limit, margin, gamma, 0, 0, 0, 0, 0),
+                       BigDecimal.ONE);
+          final int size =
+              Audit.optimistic(risk_limit, margin, gamma, 0, 0, 1, 0).intValue();
+          final BigDecimal risk =
+              Audit.measuredRisk(risk_limit, margin, gamma, size, 0, 0, 1, 0);
+          assertTrue(risk.compareTo(risk_limit) <= 0,
+                     "risk " + risk + " at risk limit " + risk_limit + ", margin " +
+                     margin + ", gamma " + gamma);
+          assertTrue(risk.compareTo(
+                         Audit.measuredRisk(risk_limit, margin, gamma, size, 0, 0, 0, 0)) >= 0);
+          assertTrue(risk.compareTo(
+                         Audit.measuredRisk(risk_limit, margin, gamma, size, 0, 0, 0, 1)) <= 0);
+        }
+      }
+    }
+    assertEquals(Audit.measuredRisk(BigDecimal.ONE, BigDecimal.ZERO, GAMMAS[0], 100,
+                                    0, 0, 0, 0),
+                 BigDecimal.ONE);
+  }
+
+  /**
+   * Checks that the sample size for the specified parameters is the same as
+   * the BigDecimal reference.
+   *
+   * @param the_risk_limit The risk limit.
+   * @param the_margin The diluted margin.
+   * @param the_gamma The gamma.
+   * @param the_two_under The two-vote understatements.
+   * @param the_one_under The one-vote understatements.
+   * @param the_one_over The one-vote overstatements.
+   * @param the_two_over The two-vote overstatements.
+   */
+  @SuppressWarnings("checkstyle:parameternumber")
+  private void checkSame(final BigDecimal the_risk_limit, final BigDecimal the_margin,
+                         final BigDecimal the_gamma, final int the_two_under,
+                         final int the_one_under, final int the_one_over,
+                         final int the_two_over) {
+    assertEquals(Audit.optimistic(the_risk_limit, the_margin, the_gamma, the_two_under,
+                                  the_one_under, the_one_over, the_two_over),
+                 Audit.optimisticReference(the_risk_limit, the_margin, the_gamma,
+                                           the_two_under, the_one_under, the_one_over,
+                                           the_two_over),
+                 "risk limit " + the_risk_limit + ", margin " + the_margin +
+                 ", gamma " + the_gamma + ", discrepancies " + the_two_under + "/" +
+                 the_one_under + "/" + the_one_over + "/" + the_two_over);
+  }
+}
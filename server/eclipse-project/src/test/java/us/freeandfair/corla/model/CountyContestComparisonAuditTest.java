@@ -68,4 +68,23 @@ public class CountyContestComparisonAuditTest {
   public void initialSamplesToAudit() {
     Assert.assertEquals(audit.initialSamplesToAudit(), SAMPLES_TO_AUDIT);
   }
+
+  /**
+   * Record and remove a duplicated discrepancy and disagreement in one
+   * update each, and verify that the counts and estimate follow
+   */
+  @Test
+  public void weightedDiscrepancies() {
+    audit.recordDiscrepancy(null, -1, 3);
+    audit.recordDisagreement(null, 3);
+    Assert.assertEquals(audit.discrepancyCount(-1), 3);
+    Assert.assertEquals(audit.disagreementCount(), 3);
+    Assert.assertTrue(audit.optimisticSamplesToAudit() < SAMPLES_TO_AUDIT);
+    
+    audit.removeDiscrepancy(null, -1, 3);
+    audit.removeDisagreement(null, 3);
+    Assert.assertEquals(audit.discrepancyCount(-1), 0);
+    Assert.assertEquals(audit.disagreementCount(), 0);
+    Assert.assertEquals(audit.optimisticSamplesToAudit().intValue(), SAMPLES_TO_AUDIT);
+  }
 }
@@ -19,6 +19,7 @@ package us.freeandfair.corla.model;
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -173,5 +174,47 @@ public class CountyContestResultTest {
     
     Assert.assertEquals(margin, new BigDecimal("0.2"));
   }
+  
+  /**
+   * A unit test that verifies votes counted in a tally are added to the
+   * vote totals by choice index, skipping fictitious choices
+   */
+  @Test(priority = 4)
+  public void testAddVotes() {
+    final List<Choice> choices = new ArrayList<>();
+    choices.add(new Choice("Alice", "", false, false));
+    choices.add(new Choice("Write-in", "", false, true));
+    choices.add(new Choice("Bob", "", true, false));
+    final Contest contest = new Contest("Mayor", null, "", choices, 1, 1, 0);
+    final CountyContestResult mayor = new CountyContestResult(null, contest);
+    
+    final List<List<Choice>> contest_choices = new ArrayList<>();
+    contest_choices.add(new ArrayList<>());
+    contest_choices.add(choices);
+    final ContestTally tally = new ContestTally(contest_choices);
+    final ContestTally other = new ContestTally(contest_choices);
+    for (int i = 0; i < 3; i++) {
+      tally.addBallot();
+      tally.addContest(1);
+      tally.addVote(1, 0);
+    }
+    other.addBallot();
+    other.addContest(1);
+    other.addVote(1, 2);
+    other.addBallot();
+    tally.merge(other);
+    
+    mayor.addVotes(tally, 1);
+    mayor.updateResults();
+    
+    final Map<String, Integer> expected = new HashMap<>();
+    expected.put("Alice", 3);
+    expected.put("Bob", 1);
+    Assert.assertEquals(mayor.voteTotals(), expected);
+    Assert.assertEquals(mayor.contestBallotCount().intValue(), 4);
+    Assert.assertEquals(mayor.countyBallotCount().intValue(), 5);
+    Assert.assertEquals(mayor.winners(), Collections.singleton("Alice"));
+    Assert.assertEquals(mayor.minMargin().intValue(), 2);
+  }
 
 }
@@ -0,0 +1,311 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.persistence;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import us.freeandfair.corla.csv.DominionCVRExportParser;
+import us.freeandfair.corla.model.CVRContestInfo;
+import us.freeandfair.corla.model.CVRContestInfo.ConsensusValue;
+import us.freeandfair.corla.model.CastVoteRecord;
+import us.freeandfair.corla.model.CastVoteRecord.RecordType;
+import us.freeandfair.corla.model.Choice;
+import us.freeandfair.corla.model.Contest;
+import us.freeandfair.corla.model.County;
+import us.freeandfair.corla.model.CountyDashboard;
+import us.freeandfair.corla.query.CastVoteRecordQueries;
+import us.freeandfair.corla.query.ContestQueries;
+import us.freeandfair.corla.query.CountyContestResultQueries;
+
+/**
+ * A test case for the CastVoteRecordCopyLoader, checking that records
+ * imported through COPY are stored exactly as Hibernate stores them, and
+ * that COPY text encoding preserves special characters. The import
+ * comparison needs a scratch database, named by the corla.test.properties
+ * system property, and is skipped without one.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class CastVoteRecordCopyLoaderTest {
+  /**
+   * The sample Dominion CVR export, relative to the project directory.
+   */
+  private static final String SAMPLE_CVR_EXPORT =
+      "../../test/dominion-2017-CVR_Export_20170310104116.csv";
+
+  /**
+   * The system property naming the properties file of a scratch database
+   * to run the import comparison against; the comparison is skipped if it
+   * is not set.
+   */
+  private static final String TEST_PROPERTIES = "corla.test.properties";
+
+  /**
+   * The ID of the county imported through Hibernate.
+   */
+  private static final Long HIBERNATE_COUNTY = 9001L;
+
+  /**
+   * The ID of the county imported through COPY.
+   */
+  private static final Long COPY_COUNTY = 9002L;
+
+  /**
+   * The converter Hibernate uses for contest choices.
+   */
+  private static final StringListConverter CONVERTER = new StringListConverter();
+
+  /**
+   * Imports the sample CVR export with the Dominion parser twice, once
+   * through Hibernate and once through COPY, and checks that both imports
+   * store the same records.
+   *
+   * @exception IOException if the sample file or the database properties
+   * cannot be read.
+   */
+  @Test()
+  public void testSampleExportImports() throws IOException {
+    final Properties properties = databaseProperties();
+    final File file = new File(SAMPLE_CVR_EXPORT);
+    if (!file.exists()) {
+      throw new SkipException("sample CVR export not available");
+    }
+    try {
+      final List<List<Object>> hibernate_rows =
+          importSample(file, properties, HIBERNATE_COUNTY, false);
+      final List<List<Object>> copy_rows =
+          importSample(file, properties, COPY_COUNTY, true);
+      Assert.assertFalse(hibernate_rows.isEmpty());
+      Assert.assertEquals(copy_rows, hibernate_rows);
+    } finally {
+      deleteImport(HIBERNATE_COUNTY);
+      deleteImport(COPY_COUNTY);
+    }
+  }
+
+  /**
+   * Loads the properties of the scratch database and starts persistence
+   * with them.
+   *
+   * @return the properties.
+   * @exception IOException if the properties cannot be read.
+   * @exception SkipException if no scratch database is available.
+   */
+  private Properties databaseProperties() throws IOException {
+    final String path = System.getProperty(TEST_PROPERTIES);
+    if (path == null) {
+      throw new SkipException("no test database configured (" + TEST_PROPERTIES + ")");
+    }
+    final Properties result = new Properties();
+    try (InputStream in = new FileInputStream(path)) {
+      result.load(in);
+    }
+    Persistence.setProperties(result);
+    if (!Persistence.hasDB()) {
+      throw new SkipException("test database not available");
+    }
+    return result;
+  }
+
+  /**
+   * Imports the sample CVR export for the specified county, and reads back
+   * the records it stored.
+   *
+   * @param the_file The sample CVR export.
+   * @param the_properties The database properties.
+   * @param the_county_id The county ID.
+   * @param the_bulk_load true to import through COPY, false to import
+   * through Hibernate.
+   * @return the stored records, as lists of their column values.
+   * @exception IOException if the sample file cannot be read.
+   */
+  private List<List<Object>> importSample(final File the_file,
+                                          final Properties the_properties,
+                                          final Long the_county_id,
+                                          final boolean the_bulk_load)
+      throws IOException {
+    deleteImport(the_county_id);
+
+    Persistence.beginTransaction();
+    County county = Persistence.getByID(the_county_id, County.class);
+    if (county == null) {
+      county = new County("Loader Test " + the_county_id, the_county_id);
+      Persistence.saveOrUpdate(county);
+    }
+    if (Persistence.getByID(the_county_id, CountyDashboard.class) == null) {
+      Persistence.saveOrUpdate(new CountyDashboard(county));
+    }
+    Persistence.commitTransaction();
+
+    final Properties properties = new Properties();
+    properties.putAll(the_properties);
+    properties.setProperty(DominionCVRExportParser.BULK_LOAD_PROPERTY,
+                           String.valueOf(the_bulk_load));
+    Persistence.beginTransaction();
+    try (Reader reader = Files.newBufferedReader(the_file.toPath(),
+                                                 StandardCharsets.UTF_8)) {
+      final DominionCVRExportParser parser =
+          new DominionCVRExportParser(reader, Persistence.getByID(the_county_id,
+                                                                  County.class),
+                                      properties, false);
+      Assert.assertTrue(parser.parse(), parser.errorMessage());
+      Persistence.commitTransaction();
+    } finally {
+      if (Persistence.canTransactionRollback()) {
+        Persistence.rollbackTransaction();
+      }
+    }
+
+    Persistence.beginTransaction();
+    try {
+      return CastVoteRecordQueries.getMatching(the_county_id, RecordType.UPLOADED).
+          map(this::columns).collect(Collectors.toList());
+    } finally {
+      Persistence.commitTransaction();
+    }
+  }
+
+  /**
+   * Describes a stored record by its column values, leaving out those that
+   * are expected to differ between imports: the record and county IDs, and
+   * the contest IDs (contests are described by name).
+   *
+   * @param the_cvr The record.
+   * @return the column values.
+   */
+  private List<Object> columns(final CastVoteRecord the_cvr) {
+    final List<Object> result = new ArrayList<>();
+    result.addAll(Arrays.asList(the_cvr.recordType(), the_cvr.cvrNumber(),
+                                the_cvr.sequenceNumber(), the_cvr.scannerID(),
+                                the_cvr.batchID(), the_cvr.recordID(),
+                                the_cvr.imprintedID(), the_cvr.ballotType()));
+    for (final CVRContestInfo ci : the_cvr.contestInfo()) {
+      result.addAll(Arrays.asList(ci.contest().name(), ci.comment(), ci.consensus(),
+                                  CONVERTER.convertToDatabaseColumn(ci.choices())));
+    }
+    return result;
+  }
+
+  /**
+   * Deletes the records, results and contests imported for the specified
+   * county.
+   *
+   * @param the_county_id The county ID.
+   */
+  private void deleteImport(final Long the_county_id) {
+    Persistence.beginTransaction();
+    try {
+      CastVoteRecordQueries.deleteMatching(the_county_id, RecordType.UPLOADED);
+      CountyContestResultQueries.deleteForCounty(the_county_id);
+      ContestQueries.deleteForCounty(the_county_id);
+      Persistence.commitTransaction();
+    } finally {
+      if (Persistence.canTransactionRollback()) {
+        Persistence.rollbackTransaction();
+      }
+    }
+  }
+
+  /**
+   * Checks that special characters and nulls survive COPY text encoding.
+   */
+  @Test()
+  public void testEscaping() {
+    final County county = new County("Test", 1L);
+    final Contest contest =
+        new Contest("C", county, "",
+                    Arrays.asList(new Choice("Tab\tSlash\\", "", false, false),
+                                  new Choice("Line\nBreak\r", "", false, false)),
+                    2, 2, 0);
+    contest.setID(7L);
+    final CVRContestInfo ci =
+        new CVRContestInfo(contest, "a\tcomment", ConsensusValue.NO,
+                           Arrays.asList("Tab\tSlash\\", "Line\nBreak\r"));
+    final CastVoteRecord cvr =
+        new CastVoteRecord(RecordType.UPLOADED, null, 1L, 2, 3, 4, 5, 6,
+                           "\\N", "type\t1", Arrays.asList(ci));
+
+    final List<String> row = decodeRows(CastVoteRecordCopyLoader.cvrRow(cvr)).get(0);
+    Assert.assertEquals(row.get(7), "\\N");
+    Assert.assertEquals(row.get(8), "type\t1");
+
+    final List<String> info_row =
+        decodeRows(CastVoteRecordCopyLoader.contestInfoRows(cvr)).get(0);
+    Assert.assertEquals(info_row.get(3), "a\tcomment");
+    Assert.assertEquals(info_row.get(4), "NO");
+    Assert.assertEquals(CONVERTER.convertToEntityAttribute(info_row.get(5)),
+                        ci.choices());
+  }
+
+  /**
+   * Decodes rows in COPY text format.
+   *
+   * @param the_rows The rows.
+   * @return the decoded rows, with null for null columns.
+   */
+  private List<List<String>> decodeRows(final String the_rows) {
+    final List<List<String>> result = new ArrayList<>();
+    for (final String row : the_rows.split("\n")) {
+      final List<String> columns = new ArrayList<>();
+      for (final String column : row.split("\t", -1)) {
+        if ("\\N".equals(column)) {
+          columns.add(null);
+        } else {
+          final StringBuilder sb = new StringBuilder();
+          for (int i = 0; i < column.length(); i++) {
+            char c = column.charAt(i);
+            if (c == '\\') {
+              i = i + 1;
+              switch (column.charAt(i)) {
+                case 't':
+                  c = '\t';
+                  break;
+                case 'n':
+                  c = '\n';
+                  break;
+                case 'r':
+                  c = '\r';
+                  break;
+                default:
+                  c = column.charAt(i);
+              }
+            }
+            sb.append(c);
+          }
+          columns.add(sb.toString());
+        }
+      }
+      result.add(columns);
+    }
+    return result;
+  }
+}
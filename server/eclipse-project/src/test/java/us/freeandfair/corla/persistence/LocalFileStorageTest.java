@@ -0,0 +1,162 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.persistence;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import us.freeandfair.corla.crypto.HashChecker;
+
+/**
+ * A test case for LocalFileStorage.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class LocalFileStorageTest {
+  /**
+   * The storage root for the current test.
+   */
+  private Path my_root;
+
+  /**
+   * Creates a fresh storage root.
+   *
+   * @exception IOException if it cannot be created.
+   */
+  @BeforeMethod()
+  public void createRoot() throws IOException {
+    my_root = Files.createTempDirectory("corla-storage");
+  }
+
+  /**
+   * Deletes the storage root.
+   *
+   * @exception IOException if it cannot be deleted.
+   */
+  @AfterMethod()
+  public void deleteRoot() throws IOException {
+    try (Stream<Path> paths = Files.walk(my_root)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  /**
+   * Stores content, reads it back, and stores the same content again.
+   *
+   * @exception IOException if the storage fails.
+   */
+  @Test()
+  public void testRoundTrip() throws IOException {
+    final LocalFileStorage storage = new LocalFileStorage(my_root);
+    final String text = "CvrNumber,TabulatorNum\r\n1,2\r\n";
+    final Path content = upload(text);
+    final String hash = HashChecker.hashFile(content.toFile());
+
+    final String key = storage.put(content, hash);
+    assertEquals(key, hash);
+    assertFalse(Files.exists(content));
+    assertEquals(read(storage.get(key)), text);
+
+    // storing the same content again keeps the original copy
+    final Path again = upload(text);
+    assertEquals(storage.put(again, hash.toLowerCase(Locale.US)), key);
+    assertFalse(Files.exists(again));
+    assertEquals(read(storage.get(key)), text);
+  }
+
+  /**
+   * Checks that empty content can be stored and read.
+   *
+   * @exception IOException if the storage fails.
+   */
+  @Test()
+  public void testEmptyContent() throws IOException {
+    final LocalFileStorage storage = new LocalFileStorage(my_root);
+    final Path content = upload("");
+    final String key = storage.put(content, HashChecker.hashFile(content.toFile()));
+    try (InputStream is = storage.get(key)) {
+      assertEquals(is.read(), -1);
+    }
+  }
+
+  /**
+   * Checks that keys that are not hashes are rejected.
+   *
+   * @exception IOException if the storage cannot be created.
+   */
+  @Test()
+  public void testInvalidKeys() throws IOException {
+    final LocalFileStorage storage = new LocalFileStorage(my_root);
+    for (final String key : new String[] {null, "", "../../etc/passwd", "ABC"}) {
+      boolean rejected = false;
+      try {
+        storage.get(key).close();
+      } catch (final IllegalArgumentException e) {
+        rejected = true;
+      }
+      assertTrue(rejected, "key " + key);
+    }
+  }
+
+  /**
+   * Writes the specified text to a temporary file, as an upload would.
+   *
+   * @param the_text The text.
+   * @return the file.
+   * @exception IOException if the file cannot be written.
+   */
+  private Path upload(final String the_text) throws IOException {
+    final Path result = Files.createTempFile("upload", ".csv");
+    Files.write(result, the_text.getBytes(StandardCharsets.UTF_8));
+    return result;
+  }
+
+  /**
+   * Reads a stream as text, a few bytes at a time, and closes it.
+   *
+   * @param the_stream The stream.
+   * @return the text.
+   * @exception IOException if the stream cannot be read.
+   */
+  private String read(final InputStream the_stream) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream is = the_stream) {
+      final byte[] buffer = new byte[3];
+      int length = is.read(buffer);
+      while (length >= 0) {
+        out.write(buffer, 0, length);
+        length = is.read(buffer);
+      }
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Free & Fair Colorado RLA System
+ *
+ * @title ColoradoRLA
+ *
+ * @created Oct 18, 2017
+ *
+ * @copyright 2017 Colorado Department of State
+ *
+ * @license SPDX-License-Identifier: AGPL-3.0-or-later
+ *
+ * @description A system to assist in conducting statewide risk-limiting audits.
+ */
+
+package us.freeandfair.corla.util;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.annotations.Test;
+
+import us.freeandfair.corla.crypto.HashChecker;
+import us.freeandfair.corla.util.FileHelper.DigestedCopy;
+
+/**
+ * A test case for FileHelper's digesting copy.
+ *
+ * @version 1.0.0
+ */
+// TestNG classes do not need constructors
+@SuppressWarnings("PMD.AtLeastOneConstructor")
+public class FileHelperTest {
+  /**
+   * Copies a file and checks the copy, its size and its hash.
+   *
+   * @exception IOException if the file cannot be read.
+   */
+  @Test()
+  public void testDigestingCopyOfFile() throws IOException {
+    final File test_file = new File(this.getClass().getResource("/HashFile.txt").getFile());
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final DigestedCopy copy;
+    try (InputStream is = new FileInputStream(test_file)) {
+      // a tiny buffer exercises the buffer boundaries
+      copy = FileHelper.digestingCopy(is, Channels.newChannel(out), 3, Integer.MAX_VALUE);
+    }
+    assertEquals(copy.hash(), HashChecker.hashFile(test_file));
+    assertEquals(copy.size(), test_file.length());
+    assertEquals(out.size(), test_file.length());
+  }
+
+  /**
+   * Checks that lines are counted by their terminators, including "\r\n" 
+   * pairs split across buffers and a final unterminated line.
+   *
+   * @exception IOException if the copy fails.
+   */
+  @Test()
+  public void testLineCounting() throws IOException {
+    final String[] samples = {
+      "", "a", "a\n", "a\r\nb\r\n", "a\rb\nc\r\n\r\n", "\n\n\r\r", "a,b\r\nc,d\ne",
+    };
+    final int[] lines = {0, 0, 1, 2, 4, 4, 2};
+    for (int i = 0; i < samples.length; i++) {
+      final byte[] bytes = samples[i].getBytes(StandardCharsets.UTF_8);
+      for (int buffer_size = 1; buffer_size <= 4; buffer_size++) {
+        final DigestedCopy copy =
+            FileHelper.digestingCopy(new ByteArrayInputStream(bytes),
+                                     Channels.newChannel(new ByteArrayOutputStream()),
+                                     buffer_size, Integer.MAX_VALUE);
+        assertEquals(copy.lines(), lines[i], "lines in sample " + i);
+      }
+    }
+  }
+}